@@ -0,0 +1,69 @@
+package org.sjwimmer.tacharting.chart.api;
+
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes the requests of the asynchronous {@link OHLCVDataSource} api. The futures of this class can be cancelled:
+ * {@link CompletableFuture#cancel(boolean)} interrupts the thread that executes the request.
+ */
+public final class DataSourceTasks {
+
+    private static ExecutorService defaultExecutor;
+
+    private DataSourceTasks(){}
+
+    /**
+     * @return the shared executor with {@link Parameter#DATASOURCE_THREADS} daemon threads
+     */
+    public static synchronized Executor getDefaultExecutor(){
+        if(defaultExecutor == null){
+            AtomicInteger threadCount = new AtomicInteger();
+            defaultExecutor = Executors.newFixedThreadPool(Math.max(1, Parameter.DATASOURCE_THREADS), r -> {
+                Thread thread = new Thread(r, "datasource-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Executes the <tt>task</tt> on the <tt>executor</tt>
+     * @param task the request
+     * @param executor the executor
+     * @return a future with the result of the <tt>task</tt>, cancelling the future interrupts the task
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task, Executor executor){
+        CompletableFuture<T> result = new CompletableFuture<>();
+        FutureTask<Void> runner = new FutureTask<>(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t){
+                result.completeExceptionally(t);
+            }
+        }, null);
+        result.whenComplete((value, error) -> {
+            if(result.isCancelled()){
+                runner.cancel(true);
+            }
+        });
+        try {
+            executor.execute(runner);
+        } catch (RejectedExecutionException ree){
+            result.completeExceptionally(ree);
+        }
+        return result;
+    }
+
+    /**
+     * @param error the exception of a future
+     * @return true if the future has been cancelled (and the error can be ignored)
+     */
+    public static boolean isCancellation(Throwable error){
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof CancellationException || cause instanceof InterruptedException;
+    }
+}
@@ -1,17 +1,23 @@
 package org.sjwimmer.tacharting.chart.api;
 
-import org.sjwimmer.tacharting.chart.model.TaBarSeries;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
 import org.sjwimmer.tacharting.chart.model.key.Key;
 
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * Api for a datasource of ohlc data with volume. This could be a 
  * database connection or a connection to another broker (like Interavtive Brokers or IEX)
  * or simple HTML-Get connection.
- *
+ * <p>
+ * The asynchronous functions (e.g. {@link #getSymbolDataAsync(Key, ZonedDateTime, ZonedDateTime)}) execute the
+ * blocking functions on an executor (see {@link DataSourceTasks}). Cancelling a returned future interrupts the request.
  */
 public interface OHLCVDataSource<K extends Key, R> {
 
@@ -22,15 +28,90 @@ public interface OHLCVDataSource<K extends Key, R> {
 	 */
 	List<String> getAllAvailableSymbols() throws Exception;
 	
-    TaBarSeries getSymbolData(K symbol, ZonedDateTime from, ZonedDateTime to) throws Exception;
+    ChartBarSeries getSymbolData(K symbol, ZonedDateTime from, ZonedDateTime to) throws Exception;
     
-    TaBarSeries getSymbolData(K symbol) throws Exception;
+    ChartBarSeries getSymbolData(K symbol) throws Exception;
     
-    List<TaBarSeries> getSymbolData(List<K> symbols, ZonedDateTime from, ZonedDateTime to) throws Exception;
+    List<ChartBarSeries> getSymbolData(List<K> symbols, ZonedDateTime from, ZonedDateTime to) throws Exception;
     
     boolean connect(R ressource);
     
     void disconnect();
     
     boolean isReady();
+
+    /**
+     * Requests the series on the default executor (see {@link #getSymbolDataAsync(Key, ZonedDateTime, ZonedDateTime, Executor)})
+     */
+    default CompletableFuture<ChartBarSeries> getSymbolDataAsync(K symbol, ZonedDateTime from, ZonedDateTime to){
+        return getSymbolDataAsync(symbol, from, to, DataSourceTasks.getDefaultExecutor());
+    }
+
+    /**
+     * Requests the series without blocking the calling thread (see {@link #getSymbolData(Key, ZonedDateTime, ZonedDateTime)})
+     * @param symbol the key of the series
+     * @param from the first date
+     * @param to the last date
+     * @param executor the executor for the request
+     * @return a future with the series, cancelling it interrupts the request
+     */
+    default CompletableFuture<ChartBarSeries> getSymbolDataAsync(K symbol, ZonedDateTime from, ZonedDateTime to,
+                                                                 Executor executor){
+        return DataSourceTasks.supply(() -> getSymbolData(symbol, from, to), executor);
+    }
+
+    /**
+     * Requests the whole series without blocking the calling thread (see {@link #getSymbolData(Key)})
+     * @param symbol the key of the series
+     * @return a future with the series, cancelling it interrupts the request
+     */
+    default CompletableFuture<ChartBarSeries> getSymbolDataAsync(K symbol){
+        return DataSourceTasks.supply(() -> getSymbolData(symbol), DataSourceTasks.getDefaultExecutor());
+    }
+
+    /**
+     * Requests the series of all <tt>symbols</tt> without blocking the calling thread
+     * (see {@link #getSymbolData(List, ZonedDateTime, ZonedDateTime)})
+     * @param symbols the keys of the series
+     * @param from the first date
+     * @param to the last date
+     * @param executor the executor for the request
+     * @return a future with the series in the order of the <tt>symbols</tt>, cancelling it interrupts the request
+     */
+    default CompletableFuture<List<ChartBarSeries>> getSymbolDataAsync(List<K> symbols, ZonedDateTime from,
+                                                                       ZonedDateTime to, Executor executor){
+        return DataSourceTasks.supply(() -> getSymbolData(symbols, from, to), executor);
+    }
+
+    /**
+     * Requests the series in consecutive time windows of the length <tt>chunk</tt> and passes the bars of every
+     * window to the <tt>consumer</tt> as soon as they are available, so that a large series can be shown before it
+     * is loaded completely. Data sources that cannot request a part of a series should override this function.
+     * @param symbol the key of the series
+     * @param from the first date
+     * @param to the last date
+     * @param chunk the length of one time window
+     * @param consumer receives the bars of every window in ascending order (on the thread of the <tt>executor</tt>)
+     * @param executor the executor for the requests
+     * @return a future that completes after the last window, cancelling it stops the requests
+     */
+    default CompletableFuture<Void> getSymbolDataChunked(K symbol, ZonedDateTime from, ZonedDateTime to, Duration chunk,
+                                                         Consumer<ChartBarSeries> consumer, Executor executor){
+        if(chunk.isNegative() || chunk.isZero()){
+            throw new IllegalArgumentException(String.format("Chunk length must be positive: %s", chunk));
+        }
+        return DataSourceTasks.supply(() -> {
+            for(ZonedDateTime start = from; !start.isAfter(to); start = start.plus(chunk)){
+                if(Thread.currentThread().isInterrupted()){
+                    throw new InterruptedException(String.format("Request of %s has been cancelled", symbol));
+                }
+                ZonedDateTime end = start.plus(chunk).minusSeconds(1);
+                ChartBarSeries series = getSymbolData(symbol, start, end.isAfter(to) ? to : end);
+                if(!series.isEmpty()){
+                    consumer.accept(series);
+                }
+            }
+            return null;
+        }, executor);
+    }
 }
@@ -1,13 +1,17 @@
 package org.sjwimmer.tacharting.chart.api;
 
-import org.sjwimmer.tacharting.chart.model.TaBarSeries;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
+import org.sjwimmer.tacharting.chart.model.SeriesInfo;
 import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
 import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
 import org.ta4j.core.Bar;
 
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Interface for connections to a database to store and receive financial data
@@ -23,12 +27,19 @@ public interface SQLConnector extends OHLCVDataSource<SQLKey, Void> {
     List<SQLKey> getKeyList(GeneralTimePeriod table) throws SQLException;
 
     /**
-     * Removes all entries which had the key of the <tt>series</tt> key consists of {@link TaBarSeries#getName()},
+     * Returns the range and size of all stored time series
+     * @return the catalog of the stored time series of all time periods
+     * @throws SQLException SQLException
+     */
+    List<SeriesInfo> getSeriesInfos() throws SQLException;
+
+    /**
+     * Removes all entries which had the key of the <tt>series</tt> key consists of {@link ChartBarSeries#getName()},
      * {@link Currency#getCurrencyCode()}, {@link GeneralTimePeriod}
      * @param series the series with the key (could be empty)
      * @throws SQLException SQLException
      */
-    boolean removeData(TaBarSeries series) throws SQLException;
+    boolean removeData(ChartBarSeries series) throws SQLException;
 
     boolean removeData(SQLKey key) throws SQLException;
 
@@ -38,7 +49,53 @@ public interface SQLConnector extends OHLCVDataSource<SQLKey, Void> {
      * @param replace if true existing entries will be overwritten
      * @throws SQLException SQLException
      */
-    void insertData(TaBarSeries series, boolean replace) throws SQLException;
+    void insertData(ChartBarSeries series, boolean replace) throws SQLException;
+
+    /**
+     * Inserts the data of the <tt>series</tt> without blocking the calling thread (see
+     * {@link #insertData(ChartBarSeries, boolean)})
+     * @param series the time series to store
+     * @param replace if true existing entries will be overwritten
+     * @return a future that completes when the data has been inserted
+     * @throws SQLException if the insert could not be started
+     */
+    default CompletableFuture<Void> insertDataAsync(ChartBarSeries series, boolean replace) throws SQLException {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                insertData(series, replace);
+            } catch (SQLException sqle){
+                throw new CompletionException(sqle);
+            }
+        });
+    }
+
+    /**
+     * Inserts the data of the <tt>series</tt> without blocking the calling thread and records that all bars of its
+     * key between <tt>from</tt> and <tt>to</tt> are stored, also if there are no bars in the range (see
+     * {@link #getStoredRanges(SQLKey)})
+     * @param series the time series to store
+     * @param replace if true existing entries will be overwritten
+     * @param from the first date (epoch second) of the requested range of the <tt>series</tt>
+     * @param to the last date (epoch second) of the requested range of the <tt>series</tt>
+     * @return a future that completes when the data has been inserted
+     * @throws SQLException if the insert could not be started
+     */
+    default CompletableFuture<Void> insertDataAsync(ChartBarSeries series, boolean replace, long from, long to)
+            throws SQLException {
+        return insertDataAsync(series, replace);
+    }
+
+    /**
+     * Returns the ranges that have been stored completely (see
+     * {@link #insertDataAsync(ChartBarSeries, boolean, long, long)}). Bars that have been inserted without a range are
+     * not covered
+     * @param key the {@link SQLKey key} that identifies the time series
+     * @return the disjoint ranges {from, to} (epoch seconds, inclusive) in ascending order
+     * @throws SQLException SQLException
+     */
+    default List<long[]> getStoredRanges(SQLKey key) throws SQLException {
+        return Collections.emptyList();
+    }
 
     /**
      * Returns the last recent available bar of the time series with the <code>key</code>
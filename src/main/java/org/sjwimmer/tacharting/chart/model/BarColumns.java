@@ -0,0 +1,200 @@
+package org.sjwimmer.tacharting.chart.model;
+
+import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
+
+import java.util.Arrays;
+import java.util.Currency;
+
+/**
+ * Growable primitive columns (end time as epoch second, open, high, low, close, volume) to collect bar data
+ * while reading it from a data source. The columns can be handed over to a {@link ColumnarBarSeries} without
+ * creating any {@link org.ta4j.core.Bar} object.
+ */
+public class BarColumns {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] endTimes;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private int size;
+
+    public BarColumns(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the initial number of rows
+     */
+    public BarColumns(int capacity){
+        int c = Math.max(capacity, 16);
+        endTimes = new long[c];
+        open = new double[c];
+        high = new double[c];
+        low = new double[c];
+        close = new double[c];
+        volume = new double[c];
+    }
+
+    /**
+     * Appends a row
+     * @param endTime the end time of the bar as epoch second
+     * @param o open price
+     * @param h high price
+     * @param l low price
+     * @param c close price
+     * @param v volume
+     */
+    public void add(long endTime, double o, double h, double l, double c, double v){
+        if(size == endTimes.length){
+            grow(size + (size >> 1) + 1);
+        }
+        endTimes[size] = endTime;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    /**
+     * Appends all rows of another BarColumns instance
+     * @param other the other columns
+     */
+    public void addAll(BarColumns other){
+        if(size + other.size > endTimes.length){
+            grow(Math.max(size + other.size, size + (size >> 1)));
+        }
+        System.arraycopy(other.endTimes, 0, endTimes, size, other.size);
+        System.arraycopy(other.open, 0, open, size, other.size);
+        System.arraycopy(other.high, 0, high, size, other.size);
+        System.arraycopy(other.low, 0, low, size, other.size);
+        System.arraycopy(other.close, 0, close, size, other.size);
+        System.arraycopy(other.volume, 0, volume, size, other.size);
+        size += other.size;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public long getEndTime(int row){
+        return endTimes[row];
+    }
+
+    public double getOpen(int row){
+        return open[row];
+    }
+
+    public double getHigh(int row){
+        return high[row];
+    }
+
+    public double getLow(int row){
+        return low[row];
+    }
+
+    public double getClose(int row){
+        return close[row];
+    }
+
+    public double getVolume(int row){
+        return volume[row];
+    }
+
+    /**
+     * @return the end times (epoch seconds) of all rows, the array can be longer than {@link #size()}
+     */
+    public long[] endTimes(){
+        return endTimes;
+    }
+
+    /**
+     * Brings the rows in ascending order of their end time. Rows in descending order (like in many csv exports)
+     * are reversed, other unordered rows are sorted. Rows with an end time that is already stored are removed.
+     */
+    public void ensureAscending(){
+        boolean ascending = true;
+        boolean descending = true;
+        for(int i = 1; i < size && (ascending || descending); i++){
+            ascending &= endTimes[i - 1] < endTimes[i];
+            descending &= endTimes[i - 1] > endTimes[i];
+        }
+        if(ascending){
+            return;
+        }
+        if(descending){
+            reverse();
+            return;
+        }
+        sortAndRemoveDuplicates();
+    }
+
+    /**
+     * Creates a {@link ColumnarBarSeries} that uses the columns of this instance. This instance must not be used
+     * anymore after calling this function.
+     * @param name the name (symbol) of the series
+     * @param currency the {@link Currency}
+     * @param periodType the {@link GeneralTimePeriod}
+     * @return a ColumnarBarSeries with the rows of this columns
+     */
+    public ColumnarBarSeries toSeries(String name, Currency currency, GeneralTimePeriod periodType){
+        ensureAscending();
+        return new ColumnarBarSeries(name, currency, periodType, endTimes, open, high, low, close, volume, size);
+    }
+
+    private void reverse(){
+        for(int i = 0, j = size - 1; i < j; i++, j--){
+            swap(i, j);
+        }
+    }
+
+    private void swap(int i, int j){
+        long t = endTimes[i]; endTimes[i] = endTimes[j]; endTimes[j] = t;
+        double d = open[i]; open[i] = open[j]; open[j] = d;
+        d = high[i]; high[i] = high[j]; high[j] = d;
+        d = low[i]; low[i] = low[j]; low[j] = d;
+        d = close[i]; close[i] = close[j]; close[j] = d;
+        d = volume[i]; volume[i] = volume[j]; volume[j] = d;
+    }
+
+    private void sortAndRemoveDuplicates(){
+        Integer[] order = new Integer[size];
+        for(int i = 0; i < size; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(endTimes[a], endTimes[b])); // stable
+        BarColumns sorted = new BarColumns(size);
+        for(int i = 0; i < size; i++){
+            int row = order[i];
+            if(sorted.size > 0 && sorted.endTimes[sorted.size - 1] == endTimes[row]){
+                continue;
+            }
+            sorted.add(endTimes[row], open[row], high[row], low[row], close[row], volume[row]);
+        }
+        endTimes = sorted.endTimes;
+        open = sorted.open;
+        high = sorted.high;
+        low = sorted.low;
+        close = sorted.close;
+        volume = sorted.volume;
+        size = sorted.size;
+    }
+
+    private void grow(int capacity){
+        endTimes = Arrays.copyOf(endTimes, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+}
@@ -0,0 +1,623 @@
+package org.sjwimmer.tacharting.chart.model;
+
+import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.num.Num;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * {@link ChartBarSeries} that stores the bar data in parallel primitive arrays (columns) instead of one
+ * {@link Bar} object per bar. The end time of a bar is stored as epoch second, open, high, low, close, volume
+ * and amount as double values.<p/>
+ * {@link Bar} objects are only created on demand as light weight views on one row of the columns, so
+ * all ta4j indicators work on this series as on every other {@link BarSeries}. Classes that know this
+ * implementation can read the columns directly (see {@link #getClose(int)} etc.) without any allocation.
+ * @apiNote the time zone and the time period (duration) are the same for all bars of the series
+ */
+public class ColumnarBarSeries implements ChartBarSeries {
+
+    private static final long serialVersionUID = -1792543460913268211L;
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final String name;
+    private final Currency currency;
+    private final GeneralTimePeriod periodType;
+    private final ZoneId zoneId;
+    private final Duration timePeriod;
+    private final Function<Number, Num> numFunction;
+
+    // columns, valid data is stored in [offset, offset + size)
+    private long[] endTimes;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private double[] amount;
+    private int[] trades;
+    private int offset;
+    private int size;
+
+    private int seriesBeginIndex = -1;
+    private int seriesEndIndex = -1;
+    private int maximumBarCount = Integer.MAX_VALUE;
+    private int removedBarsCount = 0;
+
+    /**
+     * Constructor for an empty series
+     * @param name the name (symbol) of the series
+     * @param currency the {@link Currency} of the series
+     * @param periodType the {@link GeneralTimePeriod} of the series
+     * @param capacity the initial number of bars that can be stored without growing the columns
+     */
+    public ColumnarBarSeries(String name, Currency currency, GeneralTimePeriod periodType, int capacity){
+        this(name, currency, periodType, ZoneId.systemDefault(), Duration.ZERO, Parameter.numFunction, capacity);
+    }
+
+    /**
+     * Constructor for an empty series
+     * @param name the name (symbol) of the series
+     * @param currency the {@link Currency} of the series
+     * @param periodType the {@link GeneralTimePeriod} of the series
+     * @param zoneId the time zone of the end times of the bars
+     * @param timePeriod the duration of every bar
+     * @param numFunction the function to create {@link Num} values for the bar views and indicators
+     * @param capacity the initial number of bars that can be stored without growing the columns
+     */
+    public ColumnarBarSeries(String name, Currency currency, GeneralTimePeriod periodType, ZoneId zoneId,
+                             Duration timePeriod, Function<Number, Num> numFunction, int capacity){
+        this.name = name;
+        this.currency = currency;
+        this.periodType = periodType;
+        this.zoneId = Objects.requireNonNull(zoneId);
+        this.timePeriod = Objects.requireNonNull(timePeriod);
+        this.numFunction = Objects.requireNonNull(numFunction);
+        allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * Constructor that copies the bars of an existing {@link BarSeries}
+     * @param series the series with the bars
+     * @param currency the {@link Currency} of the series
+     * @param periodType the {@link GeneralTimePeriod} of the series
+     */
+    public ColumnarBarSeries(BarSeries series, Currency currency, GeneralTimePeriod periodType){
+        this(series.getName(), currency, periodType,
+                series.isEmpty() ? ZoneId.systemDefault() : series.getFirstBar().getEndTime().getZone(),
+                series.isEmpty() ? Duration.ZERO : series.getFirstBar().getTimePeriod(),
+                series.function(), Math.max(series.getBarCount(), DEFAULT_CAPACITY));
+        for(int i = Math.max(series.getBeginIndex(), series.getRemovedBarsCount()); i <= series.getEndIndex() && i >= 0; i++){
+            addBar(series.getBar(i), false);
+        }
+    }
+
+    /**
+     * Constructor that wraps already filled columns. The arrays are used directly and must not be modified
+     * from outside after this call
+     * @param name the name (symbol) of the series
+     * @param currency the {@link Currency} of the series
+     * @param periodType the {@link GeneralTimePeriod} of the series
+     * @param endTimes the end times of the bars as epoch seconds (ascending order)
+     * @param open the open prices
+     * @param high the high prices
+     * @param low the low prices
+     * @param close the close prices
+     * @param volume the volumes
+     * @param size the number of valid entries in the arrays
+     */
+    public ColumnarBarSeries(String name, Currency currency, GeneralTimePeriod periodType, long[] endTimes,
+                             double[] open, double[] high, double[] low, double[] close, double[] volume, int size){
+        this.name = name;
+        this.currency = currency;
+        this.periodType = periodType;
+        this.zoneId = ZoneId.systemDefault();
+        this.timePeriod = Duration.ZERO;
+        this.numFunction = Parameter.numFunction;
+        if(endTimes.length < size || open.length < size || high.length < size || low.length < size
+                || close.length < size || volume.length < size){
+            throw new IllegalArgumentException("All columns must contain at least "+size+" entries");
+        }
+        this.endTimes = endTimes;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.amount = new double[endTimes.length];
+        this.trades = new int[endTimes.length];
+        this.size = size;
+        if(size > 0){
+            seriesBeginIndex = 0;
+            seriesEndIndex = size - 1;
+        }
+    }
+
+    /**
+     * Appends a bar given by its primitive values. This is the allocation free way to fill the series.
+     * @param endTime the end time of the bar as epoch second
+     * @param openPrice the open price
+     * @param highPrice the high price
+     * @param lowPrice the low price
+     * @param closePrice the close price
+     * @param vol the volume
+     * @throws IllegalArgumentException if the end time is not after the end time of the last bar
+     */
+    public void addBar(long endTime, double openPrice, double highPrice, double lowPrice, double closePrice, double vol){
+        addBar(endTime, openPrice, highPrice, lowPrice, closePrice, vol, 0, 0, false);
+    }
+
+    private void addBar(long endTime, double openPrice, double highPrice, double lowPrice, double closePrice,
+                        double vol, double amt, int nbTrades, boolean replace){
+        if(size > 0){
+            long last = endTimes[offset + size - 1];
+            if(replace){
+                size--;
+                seriesEndIndex--;
+            } else if(endTime <= last){
+                throw new IllegalArgumentException(String.format("Cannot add a bar with end time %s that is <= to series end time %s",
+                        Instant.ofEpochSecond(endTime), Instant.ofEpochSecond(last)));
+            }
+        }
+        ensureCapacity();
+        int row = offset + size;
+        endTimes[row] = endTime;
+        open[row] = openPrice;
+        high[row] = highPrice;
+        low[row] = lowPrice;
+        close[row] = closePrice;
+        volume[row] = vol;
+        amount[row] = amt;
+        trades[row] = nbTrades;
+        size++;
+        if(seriesBeginIndex == -1){
+            seriesBeginIndex = 0;
+        }
+        seriesEndIndex++;
+        removeExceedingBars();
+    }
+
+    /** Primitive access ************************************************************************************************/
+
+    /**
+     * @param index the index of the bar (same index as for {@link #getBar(int)})
+     * @return the end time of the bar as epoch second
+     */
+    public long getEndEpochSecond(int index){
+        return endTimes[row(index)];
+    }
+
+    public double getOpen(int index){
+        return open[row(index)];
+    }
+
+    public double getHigh(int index){
+        return high[row(index)];
+    }
+
+    public double getLow(int index){
+        return low[row(index)];
+    }
+
+    public double getClose(int index){
+        return close[row(index)];
+    }
+
+    public double getVolume(int index){
+        return volume[row(index)];
+    }
+
+    /**
+     * @return the time zone of the end times of this series
+     */
+    public ZoneId getZoneId(){
+        return zoneId;
+    }
+
+    /**
+     * Copies the column with the close prices of all bars currently stored in this series
+     * (index <code>0</code> of the array is the bar with index {@link #getBeginIndex()} or
+     * {@link #getRemovedBarsCount()} if bars were removed)
+     * @return the close prices
+     */
+    public double[] getCloseColumn(){
+        return Arrays.copyOfRange(close, offset, offset + size);
+    }
+
+    /**
+     * Estimated heap size of the stored bar data (without the object headers)
+     * @return the number of bytes allocated for the columns
+     */
+    public long getAllocatedBytes(){
+        return (long) endTimes.length * (Long.BYTES + 6 * Double.BYTES + Integer.BYTES);
+    }
+
+    /** ChartBarSeries *************************************************************************************************/
+
+    @Override
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    @Override
+    public GeneralTimePeriod getTimeFormatType() {
+        return periodType;
+    }
+
+    @Override
+    public SQLKey getKey() {
+        return new SQLKey(getName(), periodType, currency);
+    }
+
+    /** BarSeries ******************************************************************************************************/
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Bar getBar(int i) {
+        return new ColumnarBar(row(i));
+    }
+
+    @Override
+    public int getBarCount() {
+        if(seriesEndIndex < 0){
+            return 0;
+        }
+        int startIndex = Math.max(removedBarsCount, seriesBeginIndex);
+        return seriesEndIndex - startIndex + 1;
+    }
+
+    /**
+     * @return a read only list view on the bars of this series, the bars are created on demand
+     */
+    @Override
+    public List<Bar> getBarData() {
+        return new AbstractList<Bar>() {
+            @Override
+            public Bar get(int index) {
+                if(index < 0 || index >= size){
+                    throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+                }
+                return new ColumnarBar(offset + index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public int getBeginIndex() {
+        return seriesBeginIndex;
+    }
+
+    @Override
+    public int getEndIndex() {
+        return seriesEndIndex;
+    }
+
+    @Override
+    public int getMaximumBarCount() {
+        return maximumBarCount;
+    }
+
+    @Override
+    public void setMaximumBarCount(int maximumBarCount) {
+        if(maximumBarCount <= 0){
+            throw new IllegalArgumentException("Maximum bar count must be strictly positive");
+        }
+        this.maximumBarCount = maximumBarCount;
+        removeExceedingBars();
+    }
+
+    @Override
+    public int getRemovedBarsCount() {
+        return removedBarsCount;
+    }
+
+    @Override
+    public void addBar(Bar bar, boolean replace) {
+        Objects.requireNonNull(bar);
+        addBar(bar.getEndTime().toEpochSecond(),
+                toDouble(bar.getOpenPrice()),
+                toDouble(bar.getHighPrice()),
+                toDouble(bar.getLowPrice()),
+                toDouble(bar.getClosePrice()),
+                toDouble(bar.getVolume()),
+                toDouble(bar.getAmount()),
+                bar.getTrades(),
+                replace);
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime) {
+        addBar(endTime.toEpochSecond(), Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0, 0, 0, false);
+    }
+
+    @Override
+    public void addBar(ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume, Num amount) {
+        addBar(endTime.toEpochSecond(), toDouble(openPrice), toDouble(highPrice), toDouble(lowPrice),
+                toDouble(closePrice), toDouble(volume), toDouble(amount), 0, false);
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume) {
+        addBar(endTime, openPrice, highPrice, lowPrice, closePrice, volume, numOf(0));
+    }
+
+    @Override
+    public void addBar(Duration timePeriod, ZonedDateTime endTime, Num openPrice, Num highPrice, Num lowPrice, Num closePrice, Num volume, Num amount) {
+        addBar(endTime, openPrice, highPrice, lowPrice, closePrice, volume, amount);
+    }
+
+    @Override
+    public void addTrade(Num tradeVolume, Num tradePrice) {
+        int row = lastRow();
+        addPrice(row, tradePrice.doubleValue());
+        double v = tradeVolume.doubleValue();
+        volume[row] += v;
+        amount[row] += v * tradePrice.doubleValue();
+        trades[row]++;
+    }
+
+    @Override
+    public void addPrice(Num price) {
+        addPrice(lastRow(), price.doubleValue());
+    }
+
+    @Override
+    public BarSeries getSubSeries(int startIndex, int endIndex) {
+        if(startIndex > endIndex){
+            throw new IllegalArgumentException(
+                    String.format("the endIndex: %s must be bigger than startIndex: %s", endIndex, startIndex));
+        }
+        ColumnarBarSeries sub = new ColumnarBarSeries(name, currency, periodType, zoneId, timePeriod, numFunction,
+                endIndex - startIndex);
+        if(size > 0){
+            int start = Math.max(startIndex - removedBarsCount, 0);
+            int end = Math.min(endIndex - removedBarsCount, size);
+            for(int r = offset + start; r < offset + end; r++){
+                sub.addBar(endTimes[r], open[r], high[r], low[r], close[r], volume[r], amount[r], trades[r], false);
+            }
+        }
+        return sub;
+    }
+
+    @Override
+    public Num numOf(Number number) {
+        return numFunction.apply(number);
+    }
+
+    @Override
+    public Function<Number, Num> function() {
+        return numFunction;
+    }
+
+    /**
+     * Two ChartBarSeries are equal if symbol, timePeriod and currency are the same
+     * @param o object
+     * @return false if <tt>o</tt> is not the 'same' ChartBarSeries
+     */
+    @Override
+    public boolean equals(Object o){
+        if(!(o instanceof ChartBarSeries)){
+            return false;
+        }
+        ChartBarSeries other = (ChartBarSeries) o;
+        return Objects.equals(other.getCurrency(), currency) &&
+                Objects.equals(other.getTimeFormatType(), periodType) &&
+                Objects.equals(other.getName(), name);
+    }
+
+    @Override
+    public int hashCode(){
+        return Objects.hash(name, currency, periodType);
+    }
+
+    /** internal *******************************************************************************************************/
+
+    /**
+     * Maps a series index to the row in the columns (see {@link org.ta4j.core.BaseBarSeries#getBar(int)})
+     */
+    private int row(int i){
+        int innerIndex = i - removedBarsCount;
+        if(innerIndex < 0){
+            if(i < 0){
+                throw new IndexOutOfBoundsException(outOfBoundsMessage(i));
+            }
+            if(size == 0){
+                throw new IndexOutOfBoundsException(outOfBoundsMessage(removedBarsCount));
+            }
+            innerIndex = 0;
+        } else if(innerIndex >= size){
+            throw new IndexOutOfBoundsException(outOfBoundsMessage(i));
+        }
+        return offset + innerIndex;
+    }
+
+    private int lastRow(){
+        if(size == 0){
+            throw new IllegalStateException("Series "+name+" does not contain any bar");
+        }
+        return offset + size - 1;
+    }
+
+    private void addPrice(int row, double price){
+        if(Double.isNaN(open[row])){
+            open[row] = price;
+        }
+        close[row] = price;
+        high[row] = Double.isNaN(high[row]) ? price : Math.max(high[row], price);
+        low[row] = Double.isNaN(low[row]) ? price : Math.min(low[row], price);
+    }
+
+    private String outOfBoundsMessage(int index){
+        return String.format("Size of series: %s bars, %s bars removed, index = %s", size, removedBarsCount, index);
+    }
+
+    private void removeExceedingBars(){
+        if(size > maximumBarCount){
+            int nbBarsToRemove = size - maximumBarCount;
+            offset += nbBarsToRemove;
+            size -= nbBarsToRemove;
+            removedBarsCount += nbBarsToRemove;
+        }
+    }
+
+    private void allocate(int capacity){
+        endTimes = new long[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new double[capacity];
+        amount = new double[capacity];
+        trades = new int[capacity];
+    }
+
+    /**
+     * Makes sure that one more row can be appended. Moves the data to the front of the columns if bars
+     * were removed at the beginning, else grows the columns by 50 percent
+     */
+    private void ensureCapacity(){
+        if(offset + size < endTimes.length){
+            return;
+        }
+        int capacity = endTimes.length;
+        if(offset > capacity / 2){
+            compact(capacity);
+        } else {
+            compact(Math.max(capacity + (capacity >> 1), DEFAULT_CAPACITY));
+        }
+    }
+
+    private void compact(int capacity){
+        endTimes = copy(endTimes, capacity);
+        open = copy(open, capacity);
+        high = copy(high, capacity);
+        low = copy(low, capacity);
+        close = copy(close, capacity);
+        volume = copy(volume, capacity);
+        amount = copy(amount, capacity);
+        int[] newTrades = new int[capacity];
+        System.arraycopy(trades, offset, newTrades, 0, size);
+        trades = newTrades;
+        offset = 0;
+    }
+
+    private long[] copy(long[] column, int capacity){
+        long[] result = new long[capacity];
+        System.arraycopy(column, offset, result, 0, size);
+        return result;
+    }
+
+    private double[] copy(double[] column, int capacity){
+        double[] result = new double[capacity];
+        System.arraycopy(column, offset, result, 0, size);
+        return result;
+    }
+
+    private static double toDouble(Num num){
+        return num == null ? Double.NaN : num.doubleValue();
+    }
+
+    /**
+     * View on one row of the columns. Must not be used after bars were removed or the columns
+     * were reallocated (it will then point to another row).
+     */
+    private class ColumnarBar implements Bar {
+
+        private static final long serialVersionUID = 2317468307584418212L;
+        private final int row;
+
+        ColumnarBar(int row){
+            this.row = row;
+        }
+
+        @Override
+        public Num getOpenPrice() {
+            return numOf(open[row]);
+        }
+
+        @Override
+        public Num getLowPrice() {
+            return numOf(low[row]);
+        }
+
+        @Override
+        public Num getHighPrice() {
+            return numOf(high[row]);
+        }
+
+        @Override
+        public Num getClosePrice() {
+            return numOf(close[row]);
+        }
+
+        @Override
+        public Num getVolume() {
+            return numOf(volume[row]);
+        }
+
+        @Override
+        public int getTrades() {
+            return trades[row];
+        }
+
+        @Override
+        public Num getAmount() {
+            return numOf(amount[row]);
+        }
+
+        @Override
+        public Duration getTimePeriod() {
+            return timePeriod;
+        }
+
+        @Override
+        public ZonedDateTime getBeginTime() {
+            return getEndTime().minus(timePeriod);
+        }
+
+        @Override
+        public ZonedDateTime getEndTime() {
+            return ZonedDateTime.ofInstant(Instant.ofEpochSecond(endTimes[row]), zoneId);
+        }
+
+        @Override
+        public void addTrade(Num tradeVolume, Num tradePrice) {
+            addPrice(tradePrice);
+            volume[row] += tradeVolume.doubleValue();
+            amount[row] += tradeVolume.doubleValue() * tradePrice.doubleValue();
+            trades[row]++;
+        }
+
+        @Override
+        public void addPrice(Num price) {
+            ColumnarBarSeries.this.addPrice(row, price.doubleValue());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{end time: %1s, close price: %2$f, open price: %3$f, min price: %4$f, max price: %5$f, volume: %6$f}",
+                    getEndTime(), close[row], open[row], low[row], high[row], volume[row]);
+        }
+    }
+}
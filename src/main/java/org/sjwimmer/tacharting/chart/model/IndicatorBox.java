@@ -33,20 +33,20 @@ import java.util.List;
 public interface IndicatorBox {
 
     /**
-     * Sets the current {@link TaBarSeries series} of this indicator box
+     * Sets the current {@link ChartBarSeries series} of this indicator box
      * All dynamical added indicators (via runtime through {@link #addIndicator(Indicator, boolean) addIndicator(...)}
      * will be deleted or updated // TODO: check if it is possible to update a custom indicator
      * All static added indicators (loaded fom xml file) will be reloaded so that they contain correct data
-     * @param series the {@link TaBarSeries time series}
+     * @param series the {@link ChartBarSeries time series}
      */
-    void setBarSeries(TaBarSeries series);
+    void setBarSeries(ChartBarSeries series);
 
     /**
-     * Returns the {@link TaBarSeries time series} stored in this indicator box
+     * Returns the {@link ChartBarSeries time series} stored in this indicator box
      * @return the time series
      */
-    TaBarSeries getBarSeries();
-    ObservableObjectValue<TaBarSeries> getObservableBarSeries();
+    ChartBarSeries getBarSeries();
+    ObservableObjectValue<ChartBarSeries> getObservableBarSeries();
 
     /**
      * Adds a strategy to the indicator box
@@ -93,6 +93,12 @@ public interface IndicatorBox {
      */
     void reloadAll();
 
+    /**
+     * Updates all indicators stored in this indicator box after bars have been appended to the
+     * {@link #getBarSeries() series}, only the values of the new bars are computed (see {@link ChartIndicator#update()})
+     */
+    void updateAll();
+
     /**
      * Reloads a specific indicator that is identified by <code>key</code>
      * @param key identifier of the indicator (for instance: EMAIndicator_1)
@@ -0,0 +1,39 @@
+package org.sjwimmer.tacharting.chart.model;
+
+import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Range and size of a stored time series, read from the catalog of a database without reading its bars
+ */
+public class SeriesInfo {
+
+    public final SQLKey key;
+    public final long firstEpochSecond;
+    public final long lastEpochSecond;
+    public final long bars;
+
+    public SeriesInfo(SQLKey key, long firstEpochSecond, long lastEpochSecond, long bars){
+        this.key = key;
+        this.firstEpochSecond = firstEpochSecond;
+        this.lastEpochSecond = lastEpochSecond;
+        this.bars = bars;
+    }
+
+    public ZonedDateTime getFirst(){
+        return Instant.ofEpochSecond(firstEpochSecond).atZone(ZoneId.systemDefault());
+    }
+
+    public ZonedDateTime getLast(){
+        return Instant.ofEpochSecond(lastEpochSecond).atZone(ZoneId.systemDefault());
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%s (%s): %s - %s, %d bars", key, key.period, getFirst().toLocalDate(),
+                getLast().toLocalDate(), bars);
+    }
+}
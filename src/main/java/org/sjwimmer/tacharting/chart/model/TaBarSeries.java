@@ -1,13 +1,16 @@
 package org.sjwimmer.tacharting.chart.model;
 
 import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
 import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
 import org.ta4j.core.Bar;
 import org.ta4j.core.BaseBarSeries;
 import org.ta4j.core.BarSeries;
+import org.ta4j.core.num.Num;
 
 import java.util.Currency;
 import java.util.List;
+import java.util.function.Function;
 
 public class TaBarSeries extends BaseBarSeries implements ChartBarSeries {
 
@@ -17,13 +20,28 @@ public class TaBarSeries extends BaseBarSeries implements ChartBarSeries {
     private final GeneralTimePeriod periodType;
 
     public TaBarSeries(String name, List<Bar> BarList, Currency currency, GeneralTimePeriod periodType){
-        super(name,BarList);
+        this(name, BarList, functionOf(BarList), currency, periodType);
+    }
+
+    public TaBarSeries(String name, List<Bar> BarList, Function<Number, Num> numFunction, Currency currency, GeneralTimePeriod periodType){
+        super(name,BarList,numFunction);
         this.currency = currency;
         this.periodType = periodType;
     }
 
     public TaBarSeries(BarSeries series, Currency currency, GeneralTimePeriod periodType){
-        this(series.getName(), series.getBarData(),currency,periodType);
+        this(series.getName(), series.getBarData(), series.function(), currency,periodType);
+    }
+
+    /**
+     * @param bars a list of bars
+     * @return the function of the Num values of the bars or the current {@link Parameter#numFunction}
+     */
+    private static Function<Number, Num> functionOf(List<Bar> bars){
+        if(bars.isEmpty() || bars.get(0).getClosePrice() == null){
+            return Parameter.numFunction;
+        }
+        return bars.get(0).getClosePrice().function();
     }
 
     public Currency getCurrency() {
@@ -0,0 +1,65 @@
+package org.sjwimmer.tacharting.chart.model.types;
+
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.Num;
+import org.ta4j.core.num.PrecisionNum;
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+/**
+ * Enum for the available {@link Num} implementations that can be used for bar data and indicator calculations.
+ * see also:
+ * <ul>  {@link org.sjwimmer.tacharting.chart.parameters.Parameter#setNumType(NumType, int)}</ul>
+ */
+public enum NumType {
+
+    /** 64 bit floating point values ({@link DoubleNum}), fastest calculation */
+    DOUBLE("64 bit floating point, fast calculation"),
+    /** arbitrary precision values ({@link PrecisionNum}), precision (significant digits) is configurable */
+    PRECISION("BigDecimal based with configurable precision, slow calculation");
+
+    /** default precision (significant digits) of {@link PrecisionNum} */
+    public static final int DEFAULT_PRECISION = 32;
+
+    public final String comment;
+
+    NumType(String comment){
+        this.comment = comment;
+    }
+
+    /**
+     * Returns the function to create {@link Num} values of this type
+     * @param precision the number of significant digits (only used for {@link #PRECISION})
+     * @return the function to create Num values
+     */
+    public Function<Number, Num> function(int precision){
+        switch (this){
+            case DOUBLE:
+                return DoubleNum::valueOf;
+            case PRECISION:
+            default:
+                if(precision == DEFAULT_PRECISION){
+                    return PrecisionNum::valueOf;
+                }
+                return number -> number instanceof BigDecimal
+                        ? PrecisionNum.valueOf((BigDecimal) number, precision)
+                        : PrecisionNum.valueOf(number.toString(), precision);
+        }
+    }
+
+    /**
+     * @param name the name of the enum value (case insensitive), e.g. "double"
+     * @return the corresponding NumType or {@link #PRECISION} if there is no NumType with that name
+     */
+    public static NumType of(String name){
+        if(name != null){
+            for(NumType type: values()){
+                if(type.toString().equalsIgnoreCase(name.trim())){
+                    return type;
+                }
+            }
+        }
+        return PRECISION;
+    }
+}
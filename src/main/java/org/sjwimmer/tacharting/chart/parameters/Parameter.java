@@ -19,9 +19,9 @@
 package org.sjwimmer.tacharting.chart.parameters;
 
 import javafx.stage.FileChooser;
+import org.sjwimmer.tacharting.chart.model.types.NumType;
 import org.sjwimmer.tacharting.chart.model.types.TimeFormatType;
 import org.ta4j.core.num.Num;
-import org.ta4j.core.num.PrecisionNum;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -32,10 +32,44 @@ public  class Parameter {
 
 
     public final static String OS = System.getProperty("os.name").toLowerCase();
-    public final static Function<Number, Num> numFunction = PrecisionNum::valueOf;
-    
-    
-    
+
+    /** Num backend ***************************************************************************************************/
+    public static final String PROPERTY_NUM_TYPE = "tacharting.num";
+    public static final String PROPERTY_NUM_PRECISION = "tacharting.num.precision";
+
+    private static volatile NumType numType = NumType.of(System.getProperty(PROPERTY_NUM_TYPE));
+    private static volatile int numPrecision = Integer.getInteger(PROPERTY_NUM_PRECISION, NumType.DEFAULT_PRECISION);
+
+    /**
+     * Function to create the {@link Num} values of all loaded bar data. Can be changed with
+     * {@link #setNumType(NumType, int)} or the system properties {@value #PROPERTY_NUM_TYPE} and
+     * {@value #PROPERTY_NUM_PRECISION}
+     */
+    public static volatile Function<Number, Num> numFunction = numType.function(numPrecision);
+
+    /**
+     * Sets the {@link NumType} for all data that will be loaded from now on. Already loaded series
+     * keep their Num type, indicators always use the Num type of their series
+     * @param type the {@link NumType}
+     * @param precision the number of significant digits (only used for {@link NumType#PRECISION})
+     */
+    public static synchronized void setNumType(NumType type, int precision){
+        if(precision <= 0){
+            throw new IllegalArgumentException("Precision must be positive: "+precision);
+        }
+        numType = type;
+        numPrecision = precision;
+        numFunction = type.function(precision);
+    }
+
+    public static NumType getNumType(){
+        return numType;
+    }
+
+    public static int getNumPrecision(){
+        return numPrecision;
+    }
+
     /** Header names of financial org.sjwimmer.tacharting.data ********************************************************************************/
     public final static HashSet<String> HEADER_DATE = new HashSet<>(Arrays.asList("date", "timestamp"));
     public final static HashSet<String> HEADER_OPEN = new HashSet<>(Arrays.asList("open", "first", "open price", "first price"));
@@ -64,6 +98,9 @@ public  class Parameter {
     public final static String USER_INDICATOR_PROPERTIES_FILE = PROGRAM_FOLDER+S+"indicatorParameters.xml";
     public final static String API_PROPERTIES_FILE = PROGRAM_FOLDER+S+"properties/api.properties";
     public static final String DATABASE_PATH = PROGRAM_FOLDER+S+"financial_data";
+    public static final String CACHE_PATH = PROGRAM_FOLDER+S+"cache";
+    public static final String ARCHIVE_PATH = PROGRAM_FOLDER+S+"archive";
+    public static final String HTTP_CACHE_PATH = CACHE_PATH+S+"http";
 
     /** Extensions ****************************************************************************************************/
     public final static FileChooser.ExtensionFilter EXTENSION_FILTER_CSV = new  FileChooser.ExtensionFilter("CSV","*.csv", "*.CSV");
@@ -76,9 +113,106 @@ public  class Parameter {
 
     public static final String PROPERTY_CSV_SEPARATOR = "csv_seperator";
     public static final String PROPERTY_CSV_QUOTE = "csv_endline";
+    /** default of {@link #PROPERTY_CSV_QUOTE} for all csv connectors (the escape character of opencsv) */
+    public static final String DEFAULT_CSV_QUOTE = "\\";
+
+    /** Csv import ****************************************************************************************************/
+    /** csv files larger than this size (bytes) are imported with the parallel, memory-mapped csv connector */
+    public static long CSV_MAPPED_IMPORT_SIZE = 32L * 1024 * 1024;
 
     /** Database ******************************************************************************************************/
     public static final String DATABASE_NAME = "financial_data.db";
+    /** system property for the synchronous mode of the database (OFF, NORMAL, FULL) */
+    public static final String PROPERTY_DATABASE_SYNCHRONOUS = "tacharting.database.synchronous";
+    /** system property for the number of rows that are inserted in one transaction */
+    public static final String PROPERTY_DATABASE_BATCH_SIZE = "tacharting.database.batch_size";
+    /** system property for the maximal number of read-only connections */
+    public static final String PROPERTY_DATABASE_READ_CONNECTIONS = "tacharting.database.read_connections";
+    /** system property for the number of write jobs that can wait for the writer thread */
+    public static final String PROPERTY_DATABASE_WRITE_QUEUE_SIZE = "tacharting.database.write_queue_size";
+    /** system property to disable the aggregation of inserted bars into the coarser tables (true, false) */
+    public static final String PROPERTY_DATABASE_ROLLUP = "tacharting.database.rollup";
+    /** system property to store minute bars delta-encoded in one row per symbol and day (true, false) */
+    public static final String PROPERTY_DATABASE_MINUTE_BLOCKS = "tacharting.database.minute_blocks";
+    /** system property for the number of keys from which a batched read uses several read connections */
+    public static final String PROPERTY_DATABASE_PARALLEL_READ_KEYS = "tacharting.database.parallel_read_keys";
+
+    public static String DATABASE_SYNCHRONOUS = System.getProperty(PROPERTY_DATABASE_SYNCHRONOUS, "NORMAL");
+    public static int DATABASE_BATCH_SIZE = Integer.getInteger(PROPERTY_DATABASE_BATCH_SIZE, 10000);
+    public static int DATABASE_READ_CONNECTIONS = Integer.getInteger(PROPERTY_DATABASE_READ_CONNECTIONS, 4);
+    public static int DATABASE_WRITE_QUEUE_SIZE = Integer.getInteger(PROPERTY_DATABASE_WRITE_QUEUE_SIZE, 64);
+    public static boolean DATABASE_ROLLUP = Boolean.parseBoolean(System.getProperty(PROPERTY_DATABASE_ROLLUP, "true"));
+    public static int DATABASE_PARALLEL_READ_KEYS = Integer.getInteger(PROPERTY_DATABASE_PARALLEL_READ_KEYS, 1000);
+    public static boolean DATABASE_MINUTE_BLOCKS = Boolean.parseBoolean(System.getProperty(PROPERTY_DATABASE_MINUTE_BLOCKS, "false"));
+
+    /** Indicators ****************************************************************************************************/
+    /** system property for the number of threads that reload the indicators of a new series */
+    public static final String PROPERTY_INDICATOR_THREADS = "tacharting.indicator.threads";
+    /** system property to compute the core indicators with primitive arithmetic instead of ta4j (true, false) */
+    public static final String PROPERTY_INDICATOR_KERNELS = "tacharting.indicator.kernels";
+    /** system property to compare the values of the indicator kernels with the ta4j values (true, false) */
+    public static final String PROPERTY_INDICATOR_CROSS_CHECK = "tacharting.indicator.cross_check";
+    /** system property for the relative tolerance of the cross check */
+    public static final String PROPERTY_INDICATOR_CROSS_CHECK_TOLERANCE = "tacharting.indicator.cross_check.tolerance";
+    /** system property to compute the values of an indicator only for the visible bars of the chart (true, false) */
+    public static final String PROPERTY_INDICATOR_LAZY = "tacharting.indicator.lazy";
+    /** system property for the number of bars of a chunk of lazily computed values */
+    public static final String PROPERTY_INDICATOR_CHUNK_SIZE = "tacharting.indicator.chunk_size";
+    /** system property for the maximal number of cached chunks of one indicator */
+    public static final String PROPERTY_INDICATOR_CHUNK_CACHE = "tacharting.indicator.chunk_cache";
+    /** system property for the number of time frames an exponential average is computed before the first needed bar */
+    public static final String PROPERTY_INDICATOR_WARM_UP = "tacharting.indicator.warm_up";
+    /** system property for the number of bars that are visible after a series is loaded (0 = all bars) */
+    public static final String PROPERTY_CHART_VISIBLE_BARS = "tacharting.chart.visible_bars";
+
+    public static int INDICATOR_THREADS = Integer.getInteger(PROPERTY_INDICATOR_THREADS,
+            Runtime.getRuntime().availableProcessors());
+    public static boolean INDICATOR_KERNELS = Boolean.parseBoolean(System.getProperty(PROPERTY_INDICATOR_KERNELS, "true"));
+    public static boolean INDICATOR_CROSS_CHECK = Boolean.parseBoolean(System.getProperty(PROPERTY_INDICATOR_CROSS_CHECK, "false"));
+    public static double INDICATOR_CROSS_CHECK_TOLERANCE = Double.parseDouble(
+            System.getProperty(PROPERTY_INDICATOR_CROSS_CHECK_TOLERANCE, "1e-6"));
+    public static boolean INDICATOR_LAZY = Boolean.parseBoolean(System.getProperty(PROPERTY_INDICATOR_LAZY, "true"));
+    public static int INDICATOR_CHUNK_SIZE = Integer.getInteger(PROPERTY_INDICATOR_CHUNK_SIZE, 4096);
+    public static int INDICATOR_CHUNK_CACHE = Integer.getInteger(PROPERTY_INDICATOR_CHUNK_CACHE, 64);
+    public static int INDICATOR_WARM_UP = Integer.getInteger(PROPERTY_INDICATOR_WARM_UP, 20);
+    public static int CHART_VISIBLE_BARS = Integer.getInteger(PROPERTY_CHART_VISIBLE_BARS, 0);
+
+    /** Downloads *****************************************************************************************************/
+    /** system property for the maximal number of concurrent downloads */
+    public static final String PROPERTY_DOWNLOAD_CONCURRENCY = "tacharting.download.concurrency";
+    /** system property for the maximal number of requests per second to one host */
+    public static final String PROPERTY_DOWNLOAD_HOST_RATE = "tacharting.download.host_rate";
+    /** system property for the number of retries of a failed download */
+    public static final String PROPERTY_DOWNLOAD_RETRIES = "tacharting.download.retries";
+    /** system property for the delay (ms) before the first retry, doubled for each further retry */
+    public static final String PROPERTY_DOWNLOAD_BACKOFF = "tacharting.download.backoff";
+    /** system property for the url of the yahoo download api (e.g. a local test server) */
+    public static final String PROPERTY_YAHOO_BASE_URL = "tacharting.yahoo.base_url";
+    /** system property to archive the raw yahoo responses in {@link #ARCHIVE_PATH} (true, false) */
+    public static final String PROPERTY_YAHOO_ARCHIVE = "tacharting.yahoo.archive";
+    /** system property for the time (s) a cached http response is used without revalidation */
+    public static final String PROPERTY_HTTP_CACHE_TTL = "tacharting.http_cache.ttl";
+    /** system property for the maximal size (MB) of the http cache, 0 to disable the cache */
+    public static final String PROPERTY_HTTP_CACHE_SIZE = "tacharting.http_cache.size";
+    /** system property for the maximal size (MB) of the series that are cached in memory per data source */
+    public static final String PROPERTY_DATA_CACHE_SIZE = "tacharting.data_cache.size";
+    /** system property for the time (s) the cached bars up to the request time are used before they are requested again */
+    public static final String PROPERTY_DATA_CACHE_TTL = "tacharting.data_cache.ttl";
+    /** system property for the number of threads of the asynchronous data source requests */
+    public static final String PROPERTY_DATASOURCE_THREADS = "tacharting.datasource.threads";
+
+    public static int DOWNLOAD_CONCURRENCY = Integer.getInteger(PROPERTY_DOWNLOAD_CONCURRENCY, 4);
+    public static double DOWNLOAD_HOST_RATE = Double.parseDouble(System.getProperty(PROPERTY_DOWNLOAD_HOST_RATE, "2"));
+    public static int DOWNLOAD_RETRIES = Integer.getInteger(PROPERTY_DOWNLOAD_RETRIES, 3);
+    public static long DOWNLOAD_BACKOFF = Long.getLong(PROPERTY_DOWNLOAD_BACKOFF, 500);
+    public static String YAHOO_BASE_URL = System.getProperty(PROPERTY_YAHOO_BASE_URL, "https://query1.finance.yahoo.com/v7/finance/download/");
+    public static boolean YAHOO_ARCHIVE = Boolean.parseBoolean(System.getProperty(PROPERTY_YAHOO_ARCHIVE, "false"));
+    public static long HTTP_CACHE_TTL = Long.getLong(PROPERTY_HTTP_CACHE_TTL, 900);
+    public static long HTTP_CACHE_SIZE = Long.getLong(PROPERTY_HTTP_CACHE_SIZE, 256);
+    public static long DATA_CACHE_SIZE = Long.getLong(PROPERTY_DATA_CACHE_SIZE, 64);
+    public static long DATA_CACHE_TTL = Long.getLong(PROPERTY_DATA_CACHE_TTL, 60);
+    public static int DATASOURCE_THREADS = Integer.getInteger(PROPERTY_DATASOURCE_THREADS,
+            Runtime.getRuntime().availableProcessors());
 
 
     /***********************************************************************************************/
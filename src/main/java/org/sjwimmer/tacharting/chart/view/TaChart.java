@@ -36,11 +36,15 @@ import org.jfree.chart.renderer.xy.XYItemRenderer;
 import org.jfree.chart.title.LegendTitle;
 import org.jfree.chart.ui.RectangleAnchor;
 import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.data.Range;
 import org.jfree.data.time.Minute;
-import org.jfree.data.xy.DefaultHighLowDataset;
+import org.jfree.data.time.TimeSeriesCollection;
+import org.jfree.data.xy.AbstractXYDataset;
 import org.jfree.data.xy.OHLCDataset;
 import org.jfree.data.xy.XYDataset;
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
 import org.sjwimmer.tacharting.chart.model.IndicatorBox;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
 import org.sjwimmer.tacharting.chart.view.jfreechart.TaChartViewer;
 import org.sjwimmer.tacharting.implementation.model.BaseIndicatorBox;
 import org.sjwimmer.tacharting.implementation.model.ChartIndicator;
@@ -61,6 +65,7 @@ public class TaChart extends StackPane implements MapChangeListener<String, Char
     private final IndicatorBox chartIndicatorBox;
     private final CombinedDomainXYPlot combinedXYPlot;
     private final XYPlot mainPlot;
+    private final BarSeriesDataset candles;
 
 
     private final Map<TradingRecord, List<Marker>> mapTradingRecordMarker;
@@ -79,9 +84,11 @@ public class TaChart extends StackPane implements MapChangeListener<String, Char
         mapTradingRecordMarker = new HashMap<>();
         this.chartIndicatorBox = box;
         this.chartIndicatorBox.getIndicartors().addListener(this);
-        XYDataset candlesBarData = createOHLCDataset(chartIndicatorBox.getBarSeries());
-        this.mainPlot = createMainPlot(candlesBarData);
+        this.candles = new BarSeriesDataset(chartIndicatorBox.getBarSeries());
+        this.mainPlot = createMainPlot(candles);
         this.combinedXYPlot = createCombinedDomainXYPlot(mainPlot);
+        showLastBars(chartIndicatorBox.getBarSeries());
+        mainPlot.getDomainAxis().addChangeListener(e -> showVisibleBars());
         this.setCache(true);
         this.setCacheHint(CacheHint.SPEED);
         final JFreeChart chart = new JFreeChart(combinedXYPlot);
@@ -192,7 +199,7 @@ public class TaChart extends StackPane implements MapChangeListener<String, Char
         for(String identifier: indicatorIdentifiers) {
             ChartIndicator chartIndicator = chartIndicatorBox.getChartIndicator(identifier);
             mainPlot.setRenderer(anonymID, chartIndicator.getRenderer()); // set renderer first!
-            mainPlot.setDataset(anonymID, chartIndicator.getDataSet());
+            mainPlot.setDataset(anonymID, dataSetOf(chartIndicator));
             chartIndicator.setVisible(true);
             mainPlot.mapDatasetToRangeAxis(anonymID, 0);
             mainPlot.setDatasetRenderingOrder(DatasetRenderingOrder.FORWARD);
@@ -253,13 +260,99 @@ public class TaChart extends StackPane implements MapChangeListener<String, Char
         return plot;
     }
 
+    /**
+     * Updates the chart after bars have been appended to the series of the indicator box: the candles are read from
+     * the series and the indicators only add the values of the new bars to their datasets
+     * (see {@link IndicatorBox#updateAll()}). Has to be called on the JavaFX application thread.
+     */
+    public void updateBars(){
+        candles.barsAppended();
+        chartIndicatorBox.updateAll();
+    }
+
     private void reloadBarSeries(BarSeries series){
-        mainPlot.setDataset(0, createOHLCDataset(series));
+        candles.setSeries(series);
         mainPlot.setRenderer(0, new TaCandlestickRenderer(3,true));
-        mainPlot.getDomainAxis().setAutoRange(true);
+        showLastBars(series);
         mainPlot.getRangeAxis().setAutoRange(true);
     }
 
+    /**
+     * Shows the last bars of the <tt>series</tt> (see {@link Parameter#CHART_VISIBLE_BARS}) or all bars
+     */
+    private void showLastBars(BarSeries series){
+        int visibleBars = Parameter.CHART_VISIBLE_BARS;
+        int barCount = series.getBarCount();
+        if(visibleBars <= 0 || barCount <= visibleBars){
+            mainPlot.getDomainAxis().setAutoRange(true);
+            return;
+        }
+        mainPlot.getDomainAxis().setRange(endMillisOf(series, barCount - visibleBars), endMillisOf(series, barCount - 1));
+    }
+
+    /**
+     * Returns the dataset of the <tt>chartIndicator</tt>. If the indicators are computed lazily
+     * (see {@link Parameter#INDICATOR_LAZY}) the dataset only contains the visible bars.
+     */
+    private TimeSeriesCollection dataSetOf(ChartIndicator chartIndicator){
+        if(!Parameter.INDICATOR_LAZY){
+            return chartIndicator.getDataSet();
+        }
+        int[] visible = visibleBars();
+        return chartIndicator.getDataSet(visible[0], visible[1]);
+    }
+
+    /**
+     * Adds the values of the visible bars to the datasets of the plotted indicators after the range of the domain
+     * axis has changed (e.g. the user has panned or zoomed out)
+     */
+    private void showVisibleBars(){
+        if(!Parameter.INDICATOR_LAZY){
+            return;
+        }
+        int[] visible = visibleBars();
+        List<String> keys = new ArrayList<>(currentOverlayKeys);
+        keys.addAll(currentSubplotKeys);
+        for(String key: keys){
+            ChartIndicator chartIndicator = chartIndicatorBox.getChartIndicator(key);
+            if(chartIndicator != null){
+                chartIndicator.showBars(visible[0], visible[1]);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first visible bar and the index after the last visible bar
+     */
+    private int[] visibleBars(){
+        BarSeries series = chartIndicatorBox.getBarSeries();
+        Range range = mainPlot.getDomainAxis().getRange();
+        int from = indexOf(series, (long) range.getLowerBound());
+        int to = indexOf(series, (long) Math.ceil(range.getUpperBound()));
+        return new int[]{from, Math.min(series.getBarCount(), to + 1)};
+    }
+
+    // binary search for the first bar that ends at or after the time (ms), the bar count if there is none
+    private static int indexOf(BarSeries series, long millis){
+        int low = 0;
+        int high = series.getBarCount();
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(endMillisOf(series, middle) < millis){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long endMillisOf(BarSeries series, int index){
+        return series instanceof ColumnarBarSeries
+                ? ((ColumnarBarSeries) series).getEndEpochSecond(index) * 1000
+                : series.getBar(index).getEndTime().toEpochSecond() * 1000;
+    }
+
     /**
      * Creates a {@link CombinedDomainXYPlot combinedDomainXYPlot} with the <tt>plot</tt> as 'main plot' id = 0
      * @param plot the first plot (main plot) that will get 70 percent colorOf the plot area
@@ -293,40 +386,12 @@ public class TaChart extends StackPane implements MapChangeListener<String, Char
         numberAxis.setTickUnit(new NumberTickUnit(0.5));
         numberAxis.setTickLabelFont(new Font("NumberAxisBarFont",Font.BOLD,8));
         numberAxis.setAutoTickUnitSelection(true);
-        XYPlot indicatorPlot = new XYPlot(chartIndicator.getDataSet(), mainPlot.getDomainAxis(), numberAxis, chartIndicator.getRenderer());
+        XYPlot indicatorPlot = new XYPlot(dataSetOf(chartIndicator), mainPlot.getDomainAxis(), numberAxis, chartIndicator.getRenderer());
         indicatorPlot.setRangeAxisLocation(AxisLocation.TOP_OR_LEFT);
 
         return indicatorPlot;
     }
 
-    /**
-     * Builds a JFreeChart OHLC dataset from a ta4j time series.
-     * @param series a time series
-     * @return an Open-High-Low-Close dataset
-     */
-    private static OHLCDataset createOHLCDataset(BarSeries series) {
-        final int nbBars = series.getBarCount();
-
-        Date[] dates = new Date[nbBars];
-        double[] opens = new double[nbBars];
-        double[] highs = new double[nbBars];
-        double[] lows = new double[nbBars];
-        double[] closes = new double[nbBars];
-        double[] volumes = new double[nbBars];
-
-        for (int i = 0; i < nbBars; i++) {
-            Bar Bar = series.getBar(i);
-            dates[i] = new Date(Bar.getEndTime().toEpochSecond() * 1000);
-            opens[i] = Bar.getOpenPrice().doubleValue();
-            highs[i] = Bar.getHighPrice().doubleValue();
-            lows[i] = Bar.getLowPrice().doubleValue();
-            closes[i] = Bar.getClosePrice().doubleValue();
-            volumes[i] = Bar.getVolume().doubleValue();
-        }
-
-        return new DefaultHighLowDataset(series.getName(), dates, highs, lows, opens, closes, volumes);
-    }
-
     /**
      * This function is called when the {@link ChartIndicator Chartindicators} of the underlying
      * {@link BaseIndicatorBox indicatorBox} change (change, new or remove)
@@ -358,6 +423,132 @@ public class TaChart extends StackPane implements MapChangeListener<String, Char
         }
     }
 
+    /**
+     * Open-High-Low-Close dataset that reads the bars of a ta4j time series, so that appended bars do not need a copy
+     * of the series (see {@link #barsAppended()})
+     */
+    static class BarSeriesDataset extends AbstractXYDataset implements OHLCDataset {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient BarSeries series;
+
+        BarSeriesDataset(BarSeries series){
+            this.series = series;
+        }
+
+        /**
+         * Shows the bars of another series
+         * @param series a time series
+         */
+        void setSeries(BarSeries series){
+            this.series = series;
+            fireDatasetChanged();
+        }
+
+        /**
+         * Notifies the plot that bars have been appended to the series
+         */
+        void barsAppended(){
+            fireDatasetChanged();
+        }
+
+        @Override
+        public int getSeriesCount() {
+            return 1;
+        }
+
+        @Override
+        public Comparable getSeriesKey(int series) {
+            return this.series.getName();
+        }
+
+        @Override
+        public int getItemCount(int series) {
+            return this.series.getBarCount();
+        }
+
+        @Override
+        public Number getX(int series, int item) {
+            return getXValue(series, item);
+        }
+
+        @Override
+        public double getXValue(int series, int item) {
+            return endMillisOf(this.series, this.series.getBeginIndex() + item);
+        }
+
+        @Override
+        public Number getY(int series, int item) {
+            return getClose(series, item);
+        }
+
+        @Override
+        public Number getHigh(int series, int item) {
+            return getHighValue(series, item);
+        }
+
+        @Override
+        public double getHighValue(int series, int item) {
+            int index = this.series.getBeginIndex() + item;
+            return this.series instanceof ColumnarBarSeries
+                    ? ((ColumnarBarSeries) this.series).getHigh(index)
+                    : this.series.getBar(index).getHighPrice().doubleValue();
+        }
+
+        @Override
+        public Number getLow(int series, int item) {
+            return getLowValue(series, item);
+        }
+
+        @Override
+        public double getLowValue(int series, int item) {
+            int index = this.series.getBeginIndex() + item;
+            return this.series instanceof ColumnarBarSeries
+                    ? ((ColumnarBarSeries) this.series).getLow(index)
+                    : this.series.getBar(index).getLowPrice().doubleValue();
+        }
+
+        @Override
+        public Number getOpen(int series, int item) {
+            return getOpenValue(series, item);
+        }
+
+        @Override
+        public double getOpenValue(int series, int item) {
+            int index = this.series.getBeginIndex() + item;
+            return this.series instanceof ColumnarBarSeries
+                    ? ((ColumnarBarSeries) this.series).getOpen(index)
+                    : this.series.getBar(index).getOpenPrice().doubleValue();
+        }
+
+        @Override
+        public Number getClose(int series, int item) {
+            return getCloseValue(series, item);
+        }
+
+        @Override
+        public double getCloseValue(int series, int item) {
+            int index = this.series.getBeginIndex() + item;
+            return this.series instanceof ColumnarBarSeries
+                    ? ((ColumnarBarSeries) this.series).getClose(index)
+                    : this.series.getBar(index).getClosePrice().doubleValue();
+        }
+
+        @Override
+        public Number getVolume(int series, int item) {
+            return getVolumeValue(series, item);
+        }
+
+        @Override
+        public double getVolumeValue(int series, int item) {
+            int index = this.series.getBeginIndex() + item;
+            return this.series instanceof ColumnarBarSeries
+                    ? ((ColumnarBarSeries) this.series).getVolume(index)
+                    : this.series.getBar(index).getVolume().doubleValue();
+        }
+    }
+
     /**
      * Custom CandleSBarRenderer to display filled red/green candles
      */
@@ -77,7 +77,7 @@ public class Loader {
         if (ticks.get(0).getEndTime().isAfter(ticks.get(ticks.size()-1).getEndTime()))
             Collections.reverse(ticks);
 
-        return new BaseBarSeries(nameInCSV, ticks);
+        return new BaseBarSeries(nameInCSV, ticks, Parameter.numFunction);
     }
 
     public static BarSeries getMinuteBarSeries(URL file, String name){
@@ -116,7 +116,7 @@ public class Loader {
 
         if (ticks.get(0).getEndTime().isAfter(ticks.get(ticks.size()-1).getEndTime()))
             Collections.reverse(ticks);
-        return new BaseBarSeries(nameInCSV, ticks);
+        return new BaseBarSeries(nameInCSV, ticks, Parameter.numFunction);
     }
 
 	
@@ -0,0 +1,116 @@
+/*
+ GNU Lesser General Public License
+
+ Copyright (c) 2017 Wimmer, Simon-Justus
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sjwimmer.tacharting.example;
+
+import org.sjwimmer.tacharting.chart.model.types.NumType;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeries;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.EMAIndicator;
+import org.ta4j.core.indicators.MACDIndicator;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandsMiddleIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandsUpperIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
+import org.ta4j.core.num.Num;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Simple benchmark that compares the throughput of the available {@link NumType num types}.<p/>
+ * For every NumType a random walk series is created (bars/s of the creation) and several indicators that are
+ * also used in the chart are calculated over the complete series (bars/s of the indicator calculation).
+ * Usage: <code>NumBenchmark [number of bars] [precision] [iterations]</code>
+ */
+public class NumBenchmark {
+
+    private static volatile double sink; // prevents dead code elimination of the calculations
+
+    public static void main(String[] args){
+        int barCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int precision = args.length > 1 ? Integer.parseInt(args[1]) : NumType.DEFAULT_PRECISION;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.println(String.format("Bars: %s, precision: %s, iterations: %s", barCount, precision, iterations));
+        for(NumType type: NumType.values()){
+            Parameter.setNumType(type, precision);
+            long loadNanos = Long.MAX_VALUE;
+            long calcNanos = Long.MAX_VALUE;
+            for(int i = 0; i <= iterations; i++){ // first iteration is warm up
+                long start = System.nanoTime();
+                BarSeries series = createSeries(barCount);
+                long loaded = System.nanoTime();
+                sink = calculate(series);
+                long end = System.nanoTime();
+                if(i > 0){
+                    loadNanos = Math.min(loadNanos, loaded - start);
+                    calcNanos = Math.min(calcNanos, end - loaded);
+                }
+            }
+            System.out.println(String.format("%-10s load: %12.0f bars/s, indicators: %12.0f bars/s",
+                    type, barsPerSecond(barCount, loadNanos), barsPerSecond(barCount, calcNanos)));
+        }
+    }
+
+    private static BarSeries createSeries(int barCount){
+        Random random = new Random(42);
+        BarSeries series = new BaseBarSeries("benchmark", Parameter.numFunction);
+        ZonedDateTime time = ZonedDateTime.of(2000, 1, 1, 9, 30, 0, 0, ZoneId.systemDefault());
+        double close = 100;
+        for(int i = 0; i < barCount; i++){
+            double open = close;
+            close = Math.max(1, open + random.nextGaussian() * 0.1);
+            double high = Math.max(open, close) + random.nextDouble() * 0.05;
+            double low = Math.min(open, close) - random.nextDouble() * 0.05;
+            series.addBar(Duration.ZERO, time.plusMinutes(i), open, high, low, close, random.nextInt(100_000));
+        }
+        return series;
+    }
+
+    private static double calculate(BarSeries series){
+        ClosePriceIndicator close = new ClosePriceIndicator(series);
+        StandardDeviationIndicator sd = new StandardDeviationIndicator(close, 20);
+        List<Indicator<Num>> indicators = Arrays.asList(
+                new SMAIndicator(close, 20),
+                new EMAIndicator(close, 50),
+                new RSIIndicator(close, 14),
+                new MACDIndicator(close, 12, 26),
+                new BollingerBandsUpperIndicator(new BollingerBandsMiddleIndicator(new EMAIndicator(close, 20)), sd));
+        double sum = 0;
+        for(Indicator<Num> indicator: indicators){
+            for(int i = series.getBeginIndex(); i <= series.getEndIndex(); i++){
+                sum += indicator.getValue(i).doubleValue();
+            }
+        }
+        return sum;
+    }
+
+    private static double barsPerSecond(int barCount, long nanos){
+        return barCount / (nanos / 1_000_000_000d);
+    }
+}
@@ -50,6 +50,9 @@ import org.sjwimmer.tacharting.chart.view.TaChart;
 import org.sjwimmer.tacharting.implementation.model.BaseIndicatorBox;
 import org.sjwimmer.tacharting.implementation.model.ChartIndicator;
 import org.sjwimmer.tacharting.implementation.model.api.CSVConnector;
+import org.sjwimmer.tacharting.implementation.model.api.CachingDataSource;
+import org.sjwimmer.tacharting.implementation.model.api.MappedCSVConnector;
+import org.sjwimmer.tacharting.implementation.model.api.SeriesFileCache;
 import org.sjwimmer.tacharting.implementation.model.api.CsvSettingsManager;
 import org.sjwimmer.tacharting.implementation.model.api.ExcelConnector;
 import org.sjwimmer.tacharting.implementation.model.api.SqlLiteConnector;
@@ -59,6 +62,7 @@ import org.sjwimmer.tacharting.implementation.model.api.key.ExcelKey;
 import org.sjwimmer.tacharting.implementation.model.api.key.IEXKey;
 import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
 import org.sjwimmer.tacharting.implementation.service.IEXDataSource;
+import org.sjwimmer.tacharting.implementation.service.IncrementalSync;
 import org.sjwimmer.tacharting.implementation.service.YahooService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,9 +74,15 @@ import javax.xml.xpath.XPathException;
 import javax.xml.xpath.XPathExpressionException;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.sjwimmer.tacharting.chart.parameters.Parameter.EXTENSION_FILTER_CSV;
 import static org.sjwimmer.tacharting.chart.parameters.Parameter.EXTENSION_FILTER_EXCEL;
@@ -83,8 +93,13 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
     private TaChart chart;
     private final Map<String, CheckMenuItem> itemMap = new HashMap<>();
     private final ObservableMap<GeneralTimePeriod, List<SQLKey>> tableKey = FXCollections.observableHashMap();
+    private final Map<SQLKey, SeriesInfo> seriesInfos = new ConcurrentHashMap<>();
 
     private SQLConnector sqlConnector;
+    private final SeriesFileCache seriesFileCache = new SeriesFileCache();
+    private final CachingDataSource<IEXKey, Object> iexSource = new CachingDataSource<>(new IEXDataSource());
+    /** the load of the selected watchlist entry, cancelled if another entry is selected */
+    private CompletableFuture<ChartBarSeries> watchlistLoad;
 
     @FXML private VBox vbxChart;
 
@@ -166,15 +181,27 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
 
         tvWatchlist.setRoot(root);
         tvWatchlist.setContextMenu(buildContextMenu());
+        tvWatchlist.setCellFactory(view -> new WatchlistCell());
         tvWatchlist.getSelectionModel().selectedItemProperty().addListener((observable, o, n)->{
-            if(n.getValue() instanceof SQLKey){ // is symbol entry was selected
-                try {
-                    TaBarSeries series = sqlConnector.getSymbolData((SQLKey) n.getValue());
-                    chart.getChartIndicatorBox().setBarSeries(series);
-                    TableColumn header = new TableColumn("Strategies");
-                } catch (Exception sql){
-                    sql.printStackTrace();
+            if(n != null && n.getValue() instanceof SQLKey){ // is symbol entry was selected
+                if(watchlistLoad != null){
+                    watchlistLoad.cancel(true);
                 }
+                SQLKey key = (SQLKey) n.getValue();
+                CompletableFuture<ChartBarSeries> load = sqlConnector.getSymbolDataAsync(key);
+                watchlistLoad = load;
+                load.whenComplete((series, error) -> Platform.runLater(() -> {
+                    if(load.isCancelled() || load != watchlistLoad){
+                        return;
+                    }
+                    if(error != null){
+                        if(!DataSourceTasks.isCancellation(error)){
+                            log.error("Could not load {}: {}", key, error.getMessage());
+                        }
+                        return;
+                    }
+                    chart.getChartIndicatorBox().setBarSeries(series);
+                }));
             }
         });
 
@@ -209,6 +236,7 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
                     log.debug("Remove {} from database", key);
                     try{
                         sqlConnector.removeData(key);
+                        seriesInfos.remove(key);
                     }catch (Exception e){
                     	log.error(e.getMessage());
                     }
@@ -238,7 +266,7 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
         vbxChart.getChildren().add(chart);
         box.getIndicartors().addListener(this);
         buildMenuEntries(box);
-        TaBarSeries series = box.getBarSeries();
+        ChartBarSeries series = box.getBarSeries();
         storeSeries(series);
 
     }
@@ -254,17 +282,19 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
 
 
     /**
-     *
-     * @param series the TaBarSeries that should be stored in DB
+     * Adds the series to the write queue of the {@link SQLConnector}
+     * @param series the ChartBarSeries that should be stored in DB
      */
-    public synchronized void storeSeries(final TaBarSeries series){
-            new Thread(()-> {
-                try{
-                    sqlConnector.insertData(series, false);
-                    }  catch (SQLException sqle){
-                        sqle.printStackTrace();
-                }}).start();
-
+    public void storeSeries(final ChartBarSeries series){
+        try{
+            sqlConnector.insertDataAsync(series, false).whenComplete((v, e) -> {
+                if(e != null){
+                    log.error("Could not store {}: {}", series.getName(), e.getMessage());
+                }
+            });
+        } catch (SQLException sqle){
+            log.error("Could not store {}: {}", series.getName(), sqle.getMessage());
+        }
     }
 
     /**
@@ -451,9 +481,15 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
 
     private void addCSV(File file){
         try{
-            CSVConnector csvConnector = new CSVConnector();
-            csvConnector.connect(file);
-            TaBarSeries series = csvConnector.getSymbolData(CSVKey.DEFAULT_KEY);
+            ChartBarSeries series = seriesFileCache.load(file);
+            if(series == null){
+                OHLCVDataSource<CSVKey, File> csvConnector = file.length() > Parameter.CSV_MAPPED_IMPORT_SIZE
+                        ? new MappedCSVConnector()
+                        : new CSVConnector();
+                csvConnector.connect(file);
+                series = csvConnector.getSymbolData(CSVKey.DEFAULT_KEY);
+                storeInFileCache(file, series);
+            }
             storeSeries(series);
             this.tableKey.get(series.getTimeFormatType()).add(series.getKey());
         } catch (Exception ioe){
@@ -476,16 +512,29 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
 
     public void addExcel(File file){
         try{
-            ExcelConnector excelConnector = new ExcelConnector();
-            if(excelConnector.connect(file)) {
-            	TaBarSeries series = excelConnector.getSymbolData(ExcelKey.DEFAULT_KEY);
-            	this.tableKey.get(series.getTimeFormatType()).add(series.getKey());
+            ChartBarSeries series = seriesFileCache.load(file);
+            if(series == null) {
+                ExcelConnector excelConnector = new ExcelConnector();
+                if(!excelConnector.connect(file)) {
+                    return;
+                }
+                series = excelConnector.getSymbolData(ExcelKey.DEFAULT_KEY);
+                storeInFileCache(file, series);
             }
+            this.tableKey.get(series.getTimeFormatType()).add(series.getKey());
         } catch (Exception e){
             e.printStackTrace(); //TODO
         }
     }
 
+    private void storeInFileCache(File file, ChartBarSeries series){
+        try{
+            seriesFileCache.store(file, series);
+        } catch (IOException ioe){
+            log.error("Could not store {} in file cache: {}", file, ioe.getMessage());
+        }
+    }
+
 
     public void loadDataFromSelectedApi(String... symbol){
         switch (choiceBoxAPI.valueProperty().get()){
@@ -500,8 +549,92 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
         }
     }
 
+    /**
+     * Appends the bars that are newer than the last stored bar to the selected watchlist entry (or to all entries of
+     * the selected time period) with the selected api. The new bars of the shown series are appended to the chart.
+     */
     public void updateDataFromSelectedApi(){
-        new Alert(Alert.AlertType.INFORMATION, "Currently not supported");
+        TreeItem<Key> item = tvWatchlist.getSelectionModel().getSelectedItem();
+        if(item == null){
+            return;
+        }
+        List<SQLKey> keys = new ArrayList<>();
+        if(item.getValue() instanceof SQLKey){
+            keys.add((SQLKey) item.getValue());
+        } else {
+            for(TreeItem<Key> child: item.getChildren()){
+                if(child.getValue() instanceof SQLKey){
+                    keys.add((SQLKey) child.getValue());
+                }
+            }
+        }
+        IncrementalSync.BarRequest request;
+        switch (choiceBoxAPI.valueProperty().get()){
+            case Yahoo:{
+                YahooService yahooService = new YahooService();
+                request = (key, from, to) -> yahooService.requestSeries(key.symbol, from, to);
+                break;
+            }
+            case AlphaVantage: {
+                log.error("AlphaVantage connection not implemented");
+                return;
+            }
+            default: {
+                request = (key, from, to) -> iexSource.getSymbolData(new IEXKey(key.symbol), from, to);
+            }
+        }
+        SyncService syncService = new SyncService(new IncrementalSync(sqlConnector, request), keys);
+        priProgress.setVisible(true);
+        priProgress.progressProperty().bind(syncService.progressProperty());
+        syncService.setOnSucceeded(value->{
+            priProgress.setVisible(false);
+            StringBuilder report = new StringBuilder();
+            for(IncrementalSync.Result result: syncService.getValue()){
+                report.append(result).append(System.lineSeparator());
+            }
+            new Alert(Alert.AlertType.INFORMATION, report.toString()).show();
+            for(IncrementalSync.Result result: syncService.getValue()){
+                if(result.written > 0 && result.key.equals(chart.getChartIndicatorBox().getBarSeries().getKey())){
+                    appendStoredBars(result.key);
+                }
+            }
+        });
+        syncService.setOnFailed(value->{
+            priProgress.setVisible(false);
+            log.error("Update failed: {}", syncService.getException().getMessage());
+        });
+        syncService.start();
+    }
+
+    /**
+     * Appends the stored bars that are newer than the last bar of the shown series to the series and updates the
+     * chart (see {@link TaChart#updateBars()}). Series that cannot be appended to are loaded again
+     * @param key the key of the shown series
+     */
+    private void appendStoredBars(SQLKey key){
+        IndicatorBox box = chart.getChartIndicatorBox();
+        ChartBarSeries shown = box.getBarSeries();
+        try {
+            if(!(shown instanceof ColumnarBarSeries) || shown.isEmpty()){
+                box.setBarSeries(sqlConnector.getSymbolData(key));
+                return;
+            }
+            ColumnarBarSeries series = (ColumnarBarSeries) shown;
+            long last = series.getEndEpochSecond(series.getEndIndex());
+            ChartBarSeries stored = sqlConnector.getSymbolData(key,
+                    ZonedDateTime.ofInstant(Instant.ofEpochSecond(last + 1), ZoneOffset.UTC), ZonedDateTime.now());
+            ColumnarBarSeries newBars = stored instanceof ColumnarBarSeries
+                    ? (ColumnarBarSeries) stored
+                    : new ColumnarBarSeries(stored, stored.getCurrency(), stored.getTimeFormatType());
+            for(int i = newBars.getBeginIndex(); i <= newBars.getEndIndex() && i >= 0; i++){
+                series.addBar(newBars.getEndEpochSecond(i), newBars.getOpen(i), newBars.getHigh(i), newBars.getLow(i),
+                        newBars.getClose(i), newBars.getVolume(i));
+            }
+            chart.updateBars();
+            log.debug("Appended {} bars to {}", newBars.getBarCount(), key);
+        } catch (Exception e){
+            log.error("Could not append the new bars of {}: {}", key, e.getMessage());
+        }
     }
 
     private void loadYahooData(String... symbol){
@@ -514,7 +647,7 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
         priProgress.progressProperty().bind(yahooConnector.progressProperty());
         yahooConnector.start();
         yahooConnector.setOnSucceeded(value->{
-            for(TaBarSeries series: yahooConnector.getValue()){
+            for(ChartBarSeries series: yahooConnector.getValue()){
                 this.tableKey.get(series.getTimeFormatType()).add(series.getKey());
                 if(tbnStoreData.isSelected()){
                     storeSeries(series);
@@ -533,9 +666,8 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
     	log.debug("Start IEX request...");
         String[] cleanSymbols = Arrays.stream(symbol).map(e->e.replaceAll("\\s+","")).toArray(String[]::new);
 
-        IEXDataSource iexSource = new IEXDataSource();
         for(String sym: symbol) {
-        	TaBarSeries series;
+        	ChartBarSeries series;
 			try {
 				series = iexSource.getSymbolData(new IEXKey(sym));
 	            this.tableKey.get(series.getTimeFormatType()).add(series.getKey());
@@ -579,6 +711,64 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
         }
     }
 
+    /**
+     * Service to append the new bars of several SQLKeys with an {@link IncrementalSync}
+     */
+    class SyncService extends Service<List<IncrementalSync.Result>>{
+
+        private final IncrementalSync sync;
+        private final List<SQLKey> keys;
+
+        SyncService(IncrementalSync sync, List<SQLKey> keys){
+            this.sync = sync;
+            this.keys = keys;
+        }
+
+        @Override
+        protected Task<List<IncrementalSync.Result>> createTask() {
+            return new Task<List<IncrementalSync.Result>>() {
+
+                @Override
+                protected List<IncrementalSync.Result> call() {
+                    List<IncrementalSync.Result> results = new ArrayList<>();
+                    for(int i = 0; i < keys.size(); i++){
+                        SQLKey key = keys.get(i);
+                        updateMessage("Update " + key);
+                        try{
+                            results.add(sync.sync(key));
+                        } catch (Exception e){
+                            log.error("Could not update {}: {}", key, e.getMessage());
+                        }
+                        updateProgress(i + 1, keys.size());
+                    }
+                    return results;
+                }
+            };
+        }
+    }
+
+    /**
+     * Cell of the watchlist that shows the range and size of a stored time series from the catalog as tooltip
+     */
+    class WatchlistCell extends TreeCell<Key>{
+
+        @Override
+        protected void updateItem(Key item, boolean empty){
+            super.updateItem(item, empty);
+            if(empty || item == null){
+                setText(null);
+                setGraphic(null);
+                setTooltip(null);
+                return;
+            }
+            setText(item.toString());
+            setGraphic(getTreeItem() == null ? null : getTreeItem().getGraphic());
+            SeriesInfo info = item instanceof SQLKey ? seriesInfos.get(item) : null;
+            setTooltip(info == null ? null : new Tooltip(String.format("%s - %s%n%d bars",
+                    info.getFirst().toLocalDateTime(), info.getLast().toLocalDateTime(), info.bars)));
+        }
+    }
+
     /**
      * Service to load all SQLKeys from database with help of a {@link SQLConnector}
      */
@@ -592,9 +782,16 @@ public class ChartController implements MapChangeListener<String, ChartIndicator
                 @Override
                 protected Void call() throws Exception {
                     try {
+                        Map<GeneralTimePeriod, List<SQLKey>> keys = new EnumMap<>(GeneralTimePeriod.class);
+                        for(GeneralTimePeriod table: GeneralTimePeriod.values()){
+                            keys.put(table, new ArrayList<>());
+                        }
+                        for(SeriesInfo info: sqlConnector.getSeriesInfos()){
+                            seriesInfos.put(info.key, info);
+                            keys.get(info.key.period).add(info.key);
+                        }
                         for(GeneralTimePeriod table: GeneralTimePeriod.values()){
-                            List<SQLKey> keys = sqlConnector.getKeyList(table);
-                            tableKey.put(table, keys);
+                            tableKey.put(table, keys.get(table));
                         }
                     } catch (SQLException e){
                         log.error("Error while requesting key list from database: {}"+e.getMessage());
@@ -19,20 +19,25 @@
 
 package org.sjwimmer.tacharting.implementation.model;
 
+import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableObjectValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableMap;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.sjwimmer.tacharting.chart.api.DataSourceTasks;
 import org.sjwimmer.tacharting.chart.api.IndicatorParameterManager;
 import org.sjwimmer.tacharting.chart.model.IndicatorBox;
-import org.sjwimmer.tacharting.chart.model.TaBarSeries;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
 import org.sjwimmer.tacharting.chart.model.types.ChartType;
 import org.sjwimmer.tacharting.chart.model.types.IndicatorCategory;
 import org.sjwimmer.tacharting.chart.model.types.ShapeType;
 import org.sjwimmer.tacharting.chart.model.types.StrokeType;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
 import org.sjwimmer.tacharting.implementation.util.ConverterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.ta4j.core.BarSeries;
 import org.ta4j.core.Indicator;
 import org.ta4j.core.Strategy;
@@ -46,10 +51,6 @@ import org.ta4j.core.indicators.candles.LowerShadowIndicator;
 import org.ta4j.core.indicators.candles.RealBodyIndicator;
 import org.ta4j.core.indicators.candles.UpperShadowIndicator;
 import org.ta4j.core.indicators.helpers.*;
-import org.ta4j.core.indicators.keltner.KeltnerChannelLowerIndicator;
-import org.ta4j.core.indicators.keltner.KeltnerChannelMiddleIndicator;
-import org.ta4j.core.indicators.keltner.KeltnerChannelUpperIndicator;
-import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
 import org.ta4j.core.indicators.volume.*;
 import org.ta4j.core.num.Num;
 
@@ -58,6 +59,17 @@ import javax.xml.xpath.XPathExpressionException;
 import java.awt.*;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.sjwimmer.tacharting.implementation.model.IndicatorKernels.*;
+import static org.sjwimmer.tacharting.implementation.model.IndicatorStreams.*;
 
 /**
  * Represents the model for plotted time series with indicators.
@@ -65,34 +77,42 @@ import java.util.*;
  */
 public class BaseIndicatorBox implements IndicatorBox {
 
-    
+    private static ExecutorService reloadExecutor;
+
+    private final Logger log = LoggerFactory.getLogger(BaseIndicatorBox.class);
 	private final ObservableMap<String, ChartIndicator> indicartors;
     private final ObservableMap<String, Strategy> strategies;
     private final ObservableMap<String, ChartIndicator> tempIndicators;
     private final IndicatorParameterManager parameter;
-    private final ObjectProperty<TaBarSeries> series;
-    private final ObjectProperty<Indicator<Num>> closePriceIndicator;
+    private final ObjectProperty<ChartBarSeries> series;
+    /** the shared ta4j indicators of the loaded indicators, replaced by the registry of every reload */
+    private volatile IndicatorRegistry registry;
+    /** the reload of the current thread, null if indicators are loaded directly into {@link #indicartors} */
+    private final ThreadLocal<Reload> currentReload = new ThreadLocal<>();
+    /** incremented for every {@link #reloadAll()}, results of older reloads are dropped */
+    private final AtomicLong reloadGeneration = new AtomicLong();
+    private final List<CompletableFuture<?>> pendingReloads = new ArrayList<>();
 
     /**
      * Constructor <p/>
-     * @param series a {@link TaBarSeries time series}
+     * @param series a {@link ChartBarSeries time series}
      * @param parameterManager a {@link IndicatorParameterManager parameter manager} for indicator parameters
      */
-    public BaseIndicatorBox(TaBarSeries series, IndicatorParameterManager parameterManager){
+    public BaseIndicatorBox(ChartBarSeries series, IndicatorParameterManager parameterManager){
         Objects.requireNonNull(series);
         this.indicartors = FXCollections.observableMap(new HashMap<>());
         this.strategies = FXCollections.observableMap(new HashMap<>());
         this.tempIndicators =  FXCollections.observableMap(new HashMap<>());
         this.series = new SimpleObjectProperty<>(series);
-        this.closePriceIndicator = new SimpleObjectProperty<>(new ClosePriceIndicator(this.series.get()));
+        this.registry = new IndicatorRegistry(series);
         this.parameter = parameterManager;
     }
 
     /**
      * Constructor <p/>
-     * @param series a {@link TaBarSeries time series}
+     * @param series a {@link ChartBarSeries time series}
      */
-    public BaseIndicatorBox(TaBarSeries series){
+    public BaseIndicatorBox(ChartBarSeries series){
         this(series, new BaseIndicatorParameterManager());
     }
 
@@ -104,13 +124,13 @@ public class BaseIndicatorBox implements IndicatorBox {
      * @param series the new BarSeries object for this indicator box
      */
     @Override
-    public void setBarSeries(TaBarSeries series){
+    public void setBarSeries(ChartBarSeries series){
         Objects.requireNonNull(series);
         if(series == this.series.get()){
             return;
         }
         this.series.setValue(series);
-        this.closePriceIndicator.set(new ClosePriceIndicator(series));
+        this.registry = new IndicatorRegistry(series);
         this.tempIndicators.clear();
         reloadAll();
     }
@@ -131,12 +151,12 @@ public class BaseIndicatorBox implements IndicatorBox {
     }
 
     @Override
-    public TaBarSeries getBarSeries(){
+    public ChartBarSeries getBarSeries(){
         return series.get();
     }
 
     @Override
-    public ObservableObjectValue<TaBarSeries> getObservableBarSeries(){
+    public ObservableObjectValue<ChartBarSeries> getObservableBarSeries(){
         return series;
     }
 
@@ -149,11 +169,17 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         IndicatorCategory category = parameter.getCategory(key);
 
-        ChartIndicator sma = new ChartIndicator(new SMAIndicator(closePriceIndicator.get(), smaTimeFrame),
+        ChartIndicator<Num> sma = new ChartIndicator<>(registry().sma(closePrice(), smaTimeFrame),
                 String.format("%s (%s) (%s)",getIdentifier(key),getID(key),smaTimeFrame),
                 createRenderer(color,stroke,shape),
                 chartType.toBoolean(),
                 category);
+        ChartBarSeries barSeries = series();
+        sma.setKernel(() -> new double[][]{sma(close(barSeries), smaTimeFrame)});
+        sma.setStream(() -> {
+            Sma stream = new Sma(smaTimeFrame);
+            return i -> new double[]{stream.next(closeOf(barSeries, i))};
+        }, smaTimeFrame);
         addChartIndicator(key, sma);
     }
 
@@ -166,11 +192,17 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         IndicatorCategory category = parameter.getCategory(key);
 
-        addChartIndicator(key, new EMAIndicator(closePriceIndicator.get(), timeFrame),
+        ChartBarSeries barSeries = series();
+        addChartIndicator(key, registry().ema(closePrice(), timeFrame),
                 String.format("%s [%s] (%s)",getIdentifier(key),getID(key),timeFrame),
                 createRenderer(color, stroke, shape),
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{ema(close(barSeries), timeFrame)},
+                () -> {
+                    Ema stream = new Ema(timeFrame);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, warmUp(timeFrame));
     }
 
     //CCI
@@ -182,11 +214,17 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         IndicatorCategory category = parameter.getCategory(key);
 
-        addChartIndicator(key, new CCIIndicator(series.get(), timeFrame),
+        ChartBarSeries barSeries = series();
+        addChartIndicator(key, new CCIIndicator(barSeries, timeFrame),
                 String.format("%s [%s] (%s)",getIdentifier(key),getID(key),timeFrame),
                 createRenderer(color, stroke, shape),
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{cci(typicalPrice(barSeries), timeFrame)},
+                () -> {
+                    Cci stream = new Cci(timeFrame);
+                    return i -> new double[]{stream.next(typicalPriceOf(barSeries, i))};
+                }, timeFrame);
     }
 
     //CMO
@@ -198,7 +236,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = ChartType.valueOf(parameter.getParameter(key, "Chart Type"));
         IndicatorCategory category = parameter.getCategory(key);
 
-        addChartIndicator(key, new CMOIndicator(closePriceIndicator.get(), timeFrame),
+        addChartIndicator(key, new CMOIndicator(closePrice(), timeFrame),
                 String.format("%s [%s] (%s)",getIdentifier(key), getID(key), timeFrame),
                 createRenderer(color, stroke, shape),
                 chartType.toBoolean(),
@@ -214,8 +252,8 @@ public class BaseIndicatorBox implements IndicatorBox {
 
         int timeFrame = Integer.parseInt(parameter.getParameter(key,"Time Frame"));
 
-        StandardDeviationIndicator sd = new StandardDeviationIndicator(closePriceIndicator.get(), timeFrame);
-        EMAIndicator bollingerEMA = new EMAIndicator(closePriceIndicator.get(),timeFrame);
+        Indicator<Num> sd = registry().standardDeviation(closePrice(), timeFrame);
+        Indicator<Num> bollingerEMA = registry().ema(closePrice(),timeFrame);
         Color color1 = ConverterUtils.ColorAWTConverter.fromString(parameter.getParameter(key, "Color Middle Band"));
         StrokeType stroke1 = StrokeType.valueOf(parameter.getParameter(key, "Stroke Middle Band"));
         ShapeType shape1 = ShapeType.valueOf(parameter.getParameter(key,"Shape Middle Band"));
@@ -249,12 +287,29 @@ public class BaseIndicatorBox implements IndicatorBox {
         bbRenderer.setSeriesPaint(2, color3);
         bbRenderer.setSeriesStroke(2, stroke3.stroke);
         bbRenderer.setSeriesShape(2, shape3.shape);
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
                 indicatorList,
                 namesList,
                 String.format("Bollinger Bands [%s] (%s)",id,timeFrame),
                 bbRenderer,chartType.toBoolean(),
-                category);
+                category,
+                () -> {
+                    double[] close = close(barSeries);
+                    double[] middle = ema(close, timeFrame);
+                    double[] deviation = standardDeviation(close, timeFrame);
+                    return new double[][]{middle, plus(middle, 2, deviation), plus(middle, -2, deviation)};
+                },
+                () -> {
+                    Ema middle = new Ema(timeFrame);
+                    StandardDeviation deviation = new StandardDeviation(timeFrame);
+                    return i -> {
+                        double close = closeOf(barSeries, i);
+                        double middleValue = middle.next(close);
+                        double deviationValue = deviation.next(close);
+                        return new double[]{middleValue, middleValue + 2 * deviationValue, middleValue + -2 * deviationValue};
+                    };
+                }, warmUp(timeFrame));
     }
 
     /* TODO: find solution to plot indicators on other indicators (BollingerBandsWidth for the Bolliger Bands
@@ -274,12 +329,18 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
         ChartType type = parameter.getChartType(key);
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new PercentBIndicator(closePriceIndicator.get(), timeFrame, k),
+                new PercentBIndicator(closePrice(), timeFrame, k),
                 String.format("%s [%s] (%s, %s)",getIdentifier(key),getID(key),timeFrame,k),
                 renderer,
                 type.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{percentB(close(barSeries), timeFrame, k)},
+                () -> {
+                    PercentB stream = new PercentB(timeFrame, k);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, timeFrame);
 
     }
 
@@ -289,7 +350,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
         addChartIndicator(key,
-                new AmountIndicator(series.get()),
+                new AmountIndicator(series()),
                 String.format("Amount [%s]", getID(key)),
                 renderer,
                 chartType.toBoolean(),
@@ -303,12 +364,18 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
 
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new RSIIndicator(closePriceIndicator.get(), timeFrame),
+                registry().rsi(closePrice(), timeFrame),
                 String.format("%s [%s] (%s)",getIdentifier(key), getID(key),timeFrame),
                 renderer,
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{rsi(close(barSeries), timeFrame)},
+                () -> {
+                    Rsi stream = new Rsi(timeFrame);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, warmUp(timeFrame));
     }
 
     // PVIIndicator
@@ -318,7 +385,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
 
         addChartIndicator(key,
-                new PVIIndicator(series.get()),
+                new PVIIndicator(series()),
                 String.format("%s [%s]",getIdentifier(key), getID(key)),
                 renderer,
                 chartType.toBoolean(),
@@ -331,7 +398,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         addChartIndicator(key,
-                new NVIIndicator(series.get()),
+                new NVIIndicator(series()),
                 String.format("%s [%s]",getIdentifier(key), getID(key)),
                 renderer,
                 chartType.toBoolean(),
@@ -344,12 +411,18 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
 
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new OnBalanceVolumeIndicator(series.get()),
+                new OnBalanceVolumeIndicator(barSeries),
                 String.format("%s [%s]",getIdentifier(key), getID(key)),
                 renderer,
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{onBalanceVolume(close(barSeries), volume(barSeries))},
+                () -> {
+                    OnBalanceVolume stream = new OnBalanceVolume();
+                    return i -> new double[]{stream.next(closeOf(barSeries, i), volumeOf(barSeries, i))};
+                }, Integer.MAX_VALUE);
     }
 
     // VWAPIndicator
@@ -359,12 +432,18 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
 
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new VWAPIndicator(series.get(), timeFrame),
+                registry().vwap(timeFrame),
                 String.format("%s [%s] (%s)",getIdentifier(key), getID(key), timeFrame),
                 renderer,
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{vwap(typicalPrice(barSeries), volume(barSeries), timeFrame)},
+                () -> {
+                    Vwap stream = new Vwap(timeFrame);
+                    return i -> new double[]{stream.next(typicalPriceOf(barSeries, i), volumeOf(barSeries, i))};
+                }, timeFrame);
     }
 
     // MACD Indicator
@@ -375,21 +454,34 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         boolean signalLine = Boolean.valueOf(parameter.getParameter(key, "Add Signal Line"));
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
-        MACDIndicator mcd = new MACDIndicator(closePriceIndicator.get(), timeFrameShort, timeFrameLong);
+        if(timeFrameShort > timeFrameLong){
+            throw new IllegalArgumentException("Long term period count must be greater than short term period count");
+        }
+        // MACD line: difference of the short and the long EMA, the EMAs are shared with other indicators
+        Indicator<Num> emaShort = registry().ema(closePrice(), timeFrameShort);
+        Indicator<Num> emaLong = registry().ema(closePrice(), timeFrameLong);
+        Indicator<Num> mcd = registry().get(DifferenceIndicator.class,
+                () -> new DifferenceIndicator(emaShort, emaLong), emaShort, emaLong);
+        ChartBarSeries barSeries = series();
         if(!signalLine){
             addChartIndicator(key,
                     mcd,
                     String.format("%s [%s] (%s, %s)",getIdentifier(key), getID(key), timeFrameShort,timeFrameLong),
                     renderer,
                     chartType.toBoolean(),
-                    category);
+                    category,
+                    () -> new double[][]{macd(close(barSeries), timeFrameShort, timeFrameLong)},
+                    () -> {
+                        Macd stream = new Macd(timeFrameShort, timeFrameLong);
+                        return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                    }, warmUp(timeFrameLong));
 
         } else{
             int timeFrameSignal = Integer.parseInt(parameter.getParameter(key, "Time Frame Signal Line"));
             List<String> names = new ArrayList<>();
             List<Indicator> indicators = new ArrayList<>();
             indicators.add(mcd);
-            indicators.add(new EMAIndicator(mcd, timeFrameSignal));
+            indicators.add(registry().ema(mcd, timeFrameSignal));
             names.add(String.format("%s [%s] (%s, %s)",getIdentifier(key), getID(key), timeFrameShort,timeFrameLong));
             names.add(String.format("Signal Line [%s] (%s)",getID(key),timeFrameSignal));
             Color color = ConverterUtils.ColorAWTConverter.fromString(parameter.getParameter(key, "Color Signal Line"));
@@ -404,7 +496,19 @@ public class BaseIndicatorBox implements IndicatorBox {
                     String.format("%s [%s] (%s, %s)",getIdentifier(key), getID(key), timeFrameShort,timeFrameLong),
                     renderer,
                     chartType.toBoolean(),
-                    category);
+                    category,
+                    () -> {
+                        double[] macd = macd(close(barSeries), timeFrameShort, timeFrameLong);
+                        return new double[][]{macd, ema(macd, timeFrameSignal)};
+                    },
+                    () -> {
+                        Macd macd = new Macd(timeFrameShort, timeFrameLong);
+                        Ema signal = new Ema(timeFrameSignal);
+                        return i -> {
+                            double macdValue = macd.next(closeOf(barSeries, i));
+                            return new double[]{macdValue, signal.next(macdValue)};
+                        };
+                    }, warmUp(timeFrameLong) + warmUp(timeFrameSignal));
         }
 
 
@@ -426,8 +530,8 @@ public class BaseIndicatorBox implements IndicatorBox {
         List<Indicator> ilAdx = new ArrayList<>();
         List<String> nlAdx = new ArrayList<>();
 
-        ilAdx.add(new ADXIndicator(series.get(), timeFrameDown));
-        ilAdx.add(new ADXIndicator(series.get(), timeFrameDown));
+        ilAdx.add(new ADXIndicator(series(), timeFrameDown));
+        ilAdx.add(new ADXIndicator(series(), timeFrameDown));
         nlAdx.add("ADX UP "+timeFrameUp);
         nlAdx.add("ADX Down "+timeFrameUp);
         XYLineAndShapeRenderer adxRenderer = new XYLineAndShapeRenderer();
@@ -452,12 +556,18 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         ChartType chartType = parameter.getChartType(key);
         IndicatorCategory category = parameter.getCategory(key);
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new TRIndicator(series.get()),
+                new TRIndicator(barSeries),
                 String.format("%s [%s]",getIdentifier(key), getID(key)),
                 renderer,
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{trueRange(high(barSeries), low(barSeries), close(barSeries))},
+                () -> {
+                    TrueRange stream = new TrueRange();
+                    return i -> new double[]{stream.next(highOf(barSeries, i), lowOf(barSeries, i), closeOf(barSeries, i))};
+                }, 1);
 
     }
 
@@ -484,9 +594,13 @@ public class BaseIndicatorBox implements IndicatorBox {
         renderer.setSeriesPaint(1, colorU);
         renderer.setSeriesPaint(2, colorL);
 
-        KeltnerChannelMiddleIndicator kcM = new KeltnerChannelMiddleIndicator(series.get(), timeFrame);
-        KeltnerChannelUpperIndicator kcU = new KeltnerChannelUpperIndicator(kcM,ratio,atr);
-        KeltnerChannelLowerIndicator kcL = new KeltnerChannelLowerIndicator(kcM,ratio,atr);
+        // same values as the ta4j keltner channel indicators, but the EMA and the ATR are shared
+        Indicator<Num> kcM = registry().ema(registry().typicalPrice(), timeFrame);
+        Indicator<Num> atrIndicator = registry().atr(atr);
+        Indicator<Num> kcAtr = registry().get(MultiplierIndicator.class,
+                () -> new MultiplierIndicator(atrIndicator, ratio), atrIndicator, ratio);
+        Indicator<Num> kcU = new SumIndicator(kcM, kcAtr);
+        Indicator<Num> kcL = new DifferenceIndicator(kcM, kcAtr);
 
         List<Indicator> ilKelt = new ArrayList<>();
         List<String> nlKelt = new ArrayList<>();
@@ -496,13 +610,28 @@ public class BaseIndicatorBox implements IndicatorBox {
         nlKelt.add("Keltner Middle");
         nlKelt.add("Keltner Upper");
         nlKelt.add("Keltner Lower");
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
                 ilKelt,
                 nlKelt,
                 String.format("%s [%s] (%s, %s, %S)", getIdentifier(key), getID(key), timeFrame, ratio, atr),
                 renderer,
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> {
+                    double[] middle = ema(typicalPrice(barSeries), timeFrame);
+                    double[] averageTrueRange = atr(high(barSeries), low(barSeries), close(barSeries), atr);
+                    return new double[][]{middle, plus(middle, ratio, averageTrueRange), plus(middle, -ratio, averageTrueRange)};
+                },
+                () -> {
+                    Ema middle = new Ema(timeFrame);
+                    Atr averageTrueRange = new Atr(atr);
+                    return i -> {
+                        double middleValue = middle.next(typicalPriceOf(barSeries, i));
+                        double atrValue = averageTrueRange.next(highOf(barSeries, i), lowOf(barSeries, i), closeOf(barSeries, i));
+                        return new double[]{middleValue, middleValue + ratio * atrValue, middleValue + -ratio * atrValue};
+                    };
+                }, Math.max(warmUp(timeFrame), warmUp(atr)));
     }
 
     // Arron Up/Down in one subplot
@@ -517,8 +646,8 @@ public class BaseIndicatorBox implements IndicatorBox {
 
         List<Indicator> ilAroon = new ArrayList<>();
         List<String> nlAroon = new ArrayList<>();
-        ilAroon.add(new AroonDownIndicator(series.get(), arronDown));
-        ilAroon.add(new AroonUpIndicator(series.get(), arronUp));
+        ilAroon.add(new AroonDownIndicator(series(), arronDown));
+        ilAroon.add(new AroonUpIndicator(series(), arronUp));
         nlAroon.add("Aroon Down "+arronDown);
         nlAroon.add("Aroon Up "+arronUp);
         XYLineAndShapeRenderer arronUpDownRenderer = createRenderer(key, "Color Up", "Shape Up", "Stroke Up");
@@ -539,21 +668,21 @@ public class BaseIndicatorBox implements IndicatorBox {
     public  void loadLowerShadowIndicator(String key) throws XPathExpressionException {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
-        addChartIndicator(key,new LowerShadowIndicator(series.get()),String.format("%s [%s]", getIdentifier(key), getID(key)),renderer, true, category);
+        addChartIndicator(key,new LowerShadowIndicator(series()),String.format("%s [%s]", getIdentifier(key), getID(key)),renderer, true, category);
     }
 
     // Upper Shadown Indicator
     public  void loadUpperShadowIndicator(String key) throws XPathExpressionException {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
-        addChartIndicator(key,new UpperShadowIndicator(series.get()),String.format("%s [%s]", getIdentifier(key), getID(key)),renderer, true, category);
+        addChartIndicator(key,new UpperShadowIndicator(series()),String.format("%s [%s]", getIdentifier(key), getID(key)),renderer, true, category);
     }
 
     // Upper Shadown Indicator
     public  void loadRealBodyIndicator(String key) throws XPathExpressionException {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
-        addChartIndicator(key, new RealBodyIndicator(series.get()),String.format("%s [%s]", getIdentifier(key), getID(key)),renderer, true, category);
+        addChartIndicator(key, new RealBodyIndicator(series()),String.format("%s [%s]", getIdentifier(key), getID(key)),renderer, true, category);
     }
 
     // MVWAP + VWAP
@@ -561,8 +690,9 @@ public class BaseIndicatorBox implements IndicatorBox {
         int timeFrameMVWAP = Integer.parseInt(parameter.getParameter(key, "Time Frame VWAP"));
         int timeFrameVWAP = Integer.parseInt(parameter.getParameter(key, "Time Frame MVWAP"));
 
-        VWAPIndicator vwap = new VWAPIndicator(series.get(),timeFrameVWAP);
-        MVWAPIndicator mvwap = new MVWAPIndicator(vwap,timeFrameMVWAP);
+        VWAPIndicator vwap = registry().vwap(timeFrameVWAP);
+        MVWAPIndicator mvwap = registry().get(MVWAPIndicator.class, () -> new MVWAPIndicator(vwap, timeFrameMVWAP),
+                vwap, timeFrameMVWAP);
 
         List<Indicator> ilVwap = new ArrayList<>();
         List<String> nlVwap = new ArrayList<>();
@@ -581,7 +711,18 @@ public class BaseIndicatorBox implements IndicatorBox {
         ilVwap.add(vwap);
         nlVwap.add(String.format("%s [%s] (%s)",getIdentifier(key), getID(key), timeFrameMVWAP));
         nlVwap.add(String.format("%s [%s] (%s)","VWAP", getID(key), timeFrameVWAP));
-        addChartIndicator(key, ilVwap, nlVwap,"MVWAP/VWAP ",wapRenderer, chartType.toBoolean(), category);
+        ChartBarSeries barSeries = series();
+        addChartIndicator(key, ilVwap, nlVwap,"MVWAP/VWAP ",wapRenderer, chartType.toBoolean(), category, () -> {
+            double[] vwapValues = vwap(typicalPrice(barSeries), volume(barSeries), timeFrameVWAP);
+            return new double[][]{sma(vwapValues, timeFrameMVWAP), vwapValues};
+        }, () -> {
+            Vwap vwapStream = new Vwap(timeFrameVWAP);
+            Sma mvwapStream = new Sma(timeFrameMVWAP);
+            return i -> {
+                double vwapValue = vwapStream.next(typicalPriceOf(barSeries, i), volumeOf(barSeries, i));
+                return new double[]{mvwapStream.next(vwapValue), vwapValue};
+            };
+        }, timeFrameVWAP + timeFrameMVWAP);
     }
 
     // Triple EMAIndicator
@@ -591,12 +732,18 @@ public class BaseIndicatorBox implements IndicatorBox {
         ChartType chartType = parameter.getChartType(key);
         IndicatorCategory category = parameter.getCategory(key);
         XYLineAndShapeRenderer xyLineAndShapeRenderer = createRenderer(key, "Color", "Shape", "Stroke");
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new TripleEMAIndicator(closePriceIndicator.get(), timeFrame),
+                new TripleEMAIndicator(closePrice(), timeFrame),
                 String.format("%s [%s] (%s)", getIdentifier(key), getID(key), timeFrame),
                 xyLineAndShapeRenderer,
                 chartType.toBoolean(),
-                category);
+                category,
+                () -> new double[][]{tripleEma(close(barSeries), timeFrame)},
+                () -> {
+                    TripleEma stream = new TripleEma(timeFrame);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, 3 * warmUp(timeFrame));
     }
 
     // UlcerIndexIndicator
@@ -605,7 +752,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         int timeFrame = Integer.parseInt(parameter.getParameter(key, "Time Frame"));
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
-        addChartIndicator(key, new UlcerIndexIndicator(closePriceIndicator.get(), timeFrame),
+        addChartIndicator(key, new UlcerIndexIndicator(closePrice(), timeFrame),
                 String.format("%s [%s]", getIdentifier(key), getID(key)),renderer, chartType.toBoolean(), category);
     }
 
@@ -616,8 +763,14 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
-        addChartIndicator(key, new WMAIndicator(closePriceIndicator.get(), timeFrame),String.format("%s [%s] (%s)",
-                getIdentifier(key), getID(key), timeFrame),renderer, chartType.toBoolean(), category);
+        ChartBarSeries barSeries = series();
+        addChartIndicator(key, new WMAIndicator(closePrice(), timeFrame),String.format("%s [%s] (%s)",
+                getIdentifier(key), getID(key), timeFrame),renderer, chartType.toBoolean(), category,
+                () -> new double[][]{wma(close(barSeries), timeFrame)},
+                () -> {
+                    Wma stream = new Wma(timeFrame);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, timeFrame);
     }
 
 
@@ -627,9 +780,15 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new ZLEMAIndicator(closePriceIndicator.get(), ZLEMAIndicator_1),String.format("%s [%s] (%s)",
-                        getIdentifier(key), getID(key),ZLEMAIndicator_1), renderer, chartType.toBoolean(), category);
+                new ZLEMAIndicator(closePrice(), ZLEMAIndicator_1),String.format("%s [%s] (%s)",
+                        getIdentifier(key), getID(key),ZLEMAIndicator_1), renderer, chartType.toBoolean(), category,
+                () -> new double[][]{zlema(close(barSeries), ZLEMAIndicator_1)},
+                () -> {
+                    Zlema stream = new Zlema(ZLEMAIndicator_1);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, warmUp(ZLEMAIndicator_1));
     }
 
 
@@ -643,7 +802,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
 
-        addChartIndicator(key,new RAVIIndicator(closePriceIndicator.get(), timeFrameShort, timeFrameLong),
+        addChartIndicator(key,new RAVIIndicator(closePrice(), timeFrameShort, timeFrameLong),
                 String.format("%s [%s] (%s, %s)", getIdentifier(key), getID(key),timeFrameShort,timeFrameLong),
                 renderer,chartType.toBoolean(), category);
     }
@@ -655,9 +814,15 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
+        ChartBarSeries barSeries = series();
         addChartIndicator(key,
-                new ROCIndicator(closePriceIndicator.get(), timeFrame),String.format("%s [%s] (%s)",
-                        getIdentifier(key), getID(key), timeFrame), renderer, chartType.toBoolean(), category);
+                new ROCIndicator(closePrice(), timeFrame),String.format("%s [%s] (%s)",
+                        getIdentifier(key), getID(key), timeFrame), renderer, chartType.toBoolean(), category,
+                () -> new double[][]{roc(close(barSeries), timeFrame)},
+                () -> {
+                    Roc stream = new Roc(timeFrame);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, timeFrame);
     }
 /*
     // Fisher Indicator
@@ -667,7 +832,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         double beta = Double.parseDouble(parameter.getParameter(key, "Beta"));
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
-        addChartIndicator(key, new FisherIndicator(closePriceIndicator.get(), timeFrame, Decimal.valueOf(alpha), Decimal.valueOf(beta)),
+        addChartIndicator(key, new FisherIndicator(closePrice(), timeFrame, Decimal.valueOf(alpha), Decimal.valueOf(beta)),
                 String.format("%s [%s] (%s, %s, %s)", getIdentifier(key), getID(key),timeFrame,alpha,beta),
                 chartType.toBoolean(), category);
     }
@@ -678,9 +843,14 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
-        addChartIndicator(key, new HMAIndicator(closePriceIndicator.get(), timeFrame),
+        ChartBarSeries barSeries = series();
+        addChartIndicator(key, new HMAIndicator(closePrice(), timeFrame),
                 String.format("%s [%s] (%s)",getIdentifier(key), getID(key), timeFrame), renderer, chartType.toBoolean(),
-                category);
+                category, () -> new double[][]{hma(close(barSeries), timeFrame)},
+                () -> {
+                    Hma stream = new Hma(timeFrame);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, timeFrame + (int) Math.sqrt(timeFrame));
     }
 
     // KAMA Indicator
@@ -692,7 +862,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         IndicatorCategory category = parameter.getCategory(key);
         ChartType chartType = parameter.getChartType(key);
 
-        addChartIndicator(key,new KAMAIndicator(closePriceIndicator.get(),timeFrameEffRatio,timeFrameFast,timeFrameSlow),
+        addChartIndicator(key,new KAMAIndicator(closePrice(),timeFrameEffRatio,timeFrameFast,timeFrameSlow),
                 String.format("%s [%s] (%s, %s, %s)",getIdentifier(key), getID(key), timeFrameEffRatio, timeFrameFast, timeFrameSlow),
                 renderer,chartType.toBoolean(), category);
     }
@@ -702,7 +872,7 @@ public class BaseIndicatorBox implements IndicatorBox {
         int timeFrame = Integer.parseInt(parameter.getParameter(key,"Time Frame"));
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
-        addChartIndicator(key, new PreviousValueIndicator(closePriceIndicator.get(), timeFrame),
+        addChartIndicator(key, new PreviousValueIndicator(closePrice(), timeFrame),
                 String.format("%s [%s](%s)",getIdentifier(key), getID(key),timeFrame), renderer,
                 false, category);
 
@@ -714,8 +884,14 @@ public class BaseIndicatorBox implements IndicatorBox {
         XYLineAndShapeRenderer renderer = createRenderer(key, "Color", "Shape", "Stroke");
         IndicatorCategory category = parameter.getCategory(key);
 
-        addChartIndicator(key, new StochasticRSIIndicator(closePriceIndicator.get(),timeFrame),
-                String.format("%s [%s](%s)",getIdentifier(key), getID(key),timeFrame), renderer,true,category);
+        ChartBarSeries barSeries = series();
+        addChartIndicator(key, new StochasticRSIIndicator(registry().rsi(closePrice(), timeFrame),timeFrame),
+                String.format("%s [%s](%s)",getIdentifier(key), getID(key),timeFrame), renderer,true,category,
+                () -> new double[][]{stochasticRsi(rsi(close(barSeries), timeFrame), timeFrame)},
+                () -> {
+                    StochasticRsi stream = new StochasticRsi(timeFrame);
+                    return i -> new double[]{stream.next(closeOf(barSeries, i))};
+                }, warmUp(timeFrame) + timeFrame);
     }
 
 
@@ -733,13 +909,25 @@ public class BaseIndicatorBox implements IndicatorBox {
         renderer.setSeriesPaint(1,parameter.getColorOf(key, "Color K"));
         IndicatorCategory category = parameter.getCategory(key);
 
-        StochasticOscillatorDIndicator stochD = new StochasticOscillatorDIndicator(closePriceIndicator.get());
+        StochasticOscillatorDIndicator stochD = new StochasticOscillatorDIndicator(closePrice());
 
         indicators.add(stochD);
-        indicators.add(new StochasticOscillatorKIndicator(stochD,timeFrame, new HighPriceIndicator(series.get()), new LowPriceIndicator(series.get())));
+        indicators.add(new StochasticOscillatorKIndicator(stochD,timeFrame, registry().highPrice(), registry().lowPrice()));
         names.add(String.format("%s [%s]", "Stoch. Oscillator D", getID(key)));
         names.add(String.format("%s [%s](Stoch. Oscillator D, %s","Stoch. Oscillator K",getID(key),timeFrame));
-        addChartIndicator(key, indicators,names,String.format("Stoch. Oscillator K(%s, %s)","Stoch. Oscillator D",timeFrame),renderer,true,category);
+        ChartBarSeries barSeries = series();
+        addChartIndicator(key, indicators,names,String.format("Stoch. Oscillator K(%s, %s)","Stoch. Oscillator D",timeFrame),renderer,true,category,
+                () -> {
+                    double[] stochDValues = close(barSeries); // the D indicator of an indicator returns its values
+                    return new double[][]{stochDValues, stochasticK(stochDValues, timeFrame, high(barSeries), low(barSeries))};
+                },
+                () -> {
+                    StochasticK stream = new StochasticK(timeFrame);
+                    return i -> {
+                        double close = closeOf(barSeries, i);
+                        return new double[]{close, stream.next(close, highOf(barSeries, i), lowOf(barSeries, i))};
+                    };
+                }, timeFrame);
     }
 
     /**
@@ -1057,7 +1245,19 @@ public class BaseIndicatorBox implements IndicatorBox {
     */
     
     private void addChartIndicator(String identifier, List<Indicator> indicators, List<String> names, String generalName,XYLineAndShapeRenderer renderer, boolean isSubchart, IndicatorCategory c){
-        indicartors.put(identifier, new ChartIndicator(indicators,names,generalName,renderer,isSubchart,c));
+        publish(identifier, new ChartIndicator(indicators,names,generalName,renderer,isSubchart,c));
+    }
+
+    /**
+     * Build and add an org.sjwimmer.tacharting.chart indicator whose values are computed by the <tt>kernel</tt>
+     * (see {@link IndicatorKernels}) and the values of appended bars and lazily computed chunks by the <tt>stream</tt>
+     * (see {@link IndicatorStreams}), which needs <tt>warmUp</tt> bars before its values are used
+     */
+    private void addChartIndicator(String identifier, List<Indicator> indicators, List<String> names, String generalName,XYLineAndShapeRenderer renderer, boolean isSubchart, IndicatorCategory c, ChartIndicator.Kernel kernel, Supplier<ChartIndicator.Stream> stream, int warmUp){
+        ChartIndicator chartIndicator = new ChartIndicator(indicators,names,generalName,renderer,isSubchart,c);
+        chartIndicator.setKernel(kernel);
+        chartIndicator.setStream(stream, warmUp);
+        publish(identifier, chartIndicator);
     }
 
     @Override
@@ -1073,7 +1273,7 @@ public class BaseIndicatorBox implements IndicatorBox {
      * @param isSubchart flag if indicator should be plotted on sub org.sjwimmer.tacharting.chart
      */
     private void addChartIndicator(Indicator indicator, boolean isSubchart){
-         indicartors.put(indicator.toString(),new ChartIndicator(indicator, indicator.toString(), isSubchart, IndicatorCategory.DEFAULT));
+         publish(indicator.toString(),new ChartIndicator(indicator, indicator.toString(), isSubchart, IndicatorCategory.DEFAULT));
     }
 
     /**
@@ -1094,7 +1294,7 @@ public class BaseIndicatorBox implements IndicatorBox {
      * @param c the category colorOf the org.sjwimmer.tacharting.chart
      */
     private void addChartIndicator(String identifier, Indicator indicator, boolean isSubchart, IndicatorCategory c){
-        indicartors.put(identifier, new ChartIndicator(indicator,indicator.toString(), isSubchart, c));
+        publish(identifier, new ChartIndicator(indicator,indicator.toString(), isSubchart, c));
     }
 
     /**
@@ -1117,7 +1317,7 @@ public class BaseIndicatorBox implements IndicatorBox {
      * @param c the category colorOf the org.sjwimmer.tacharting.chart
      */
     private void addChartIndicator(String identifier, Indicator indicator, String name, boolean isSubchart, IndicatorCategory c){
-        indicartors.put(identifier, new ChartIndicator(indicator, name, isSubchart, c));
+        publish(identifier, new ChartIndicator(indicator, name, isSubchart, c));
         //tempIndicators.put(identifier, new ChartIndicator(indicator, name, isSubchart, c));
     }
 
@@ -1128,16 +1328,28 @@ public class BaseIndicatorBox implements IndicatorBox {
     }
 
     private void addChartIndicator(String identifier, Indicator indicator, String name, XYLineAndShapeRenderer renderer, boolean isSubchart, IndicatorCategory c){
-        indicartors.put(identifier, new ChartIndicator(indicator, name, renderer, isSubchart, c));
+        publish(identifier, new ChartIndicator(indicator, name, renderer, isSubchart, c));
         //tempIndicators.put(identifier,new ChartIndicator(indicator,name,renderer,isSubchart,c));
     }
 
+    /**
+     * Build and add an org.sjwimmer.tacharting.chart indicator whose values are computed by the <tt>kernel</tt>
+     * (see {@link IndicatorKernels}) and the values of appended bars and lazily computed chunks by the <tt>stream</tt>
+     * (see {@link IndicatorStreams}), which needs <tt>warmUp</tt> bars before its values are used
+     */
+    private void addChartIndicator(String identifier, Indicator indicator, String name, XYLineAndShapeRenderer renderer, boolean isSubchart, IndicatorCategory c, ChartIndicator.Kernel kernel, Supplier<ChartIndicator.Stream> stream, int warmUp){
+        ChartIndicator chartIndicator = new ChartIndicator(indicator, name, renderer, isSubchart, c);
+        chartIndicator.setKernel(kernel);
+        chartIndicator.setStream(stream, warmUp);
+        publish(identifier, chartIndicator);
+    }
+
     /**
      * Adds an existing ChartIndicator to the box
      * @param chartIndicator an ChartIndicator
      */
     private void addChartIndicator(String identifier, ChartIndicator chartIndicator){
-        indicartors.put(identifier, chartIndicator);
+        publish(identifier, chartIndicator);
     }
 
     /**
@@ -1196,20 +1408,222 @@ public class BaseIndicatorBox implements IndicatorBox {
     }
 
     /**
-     * Reload all indicators in {@link #indicartors}.
+     * Reload all indicators in {@link #indicartors}. The indicators are rebuilt on the calling thread (the parameter
+     * manager is not thread safe) and their values are computed in parallel on the threads of the indicator pool
+     * (see {@link Parameter#INDICATOR_THREADS}). The reloaded indicators are put into {@link #indicartors} together
+     * on the JavaFX application thread. A reload that is still running when the next reload starts is cancelled.
+     * <p>
+     * All indicators of a reload share one {@link IndicatorRegistry}. The ta4j indicators that are used by several
+     * indicators are computed first by one thread, afterwards they are only read by the parallel computations.
+     * Indicators with a {@link ChartIndicator.Kernel kernel} are computed without their ta4j indicators.
+     * If the computation of an indicator (or of the shared ta4j indicators) fails, the failed indicators are computed
+     * again one after another and indicators that fail again are removed, so that no indicator keeps the old series.
      */
     @Override
     public void reloadAll(){
-        Iterator<Map.Entry<String, ChartIndicator>> it = this.indicartors.entrySet().iterator();
-        while(it.hasNext()){
-            String key = it.next().getKey();
-            try{
-                reloadIndicator(key);
-            } catch (XPathException xpe){
-                removeIndicator(key); // could not be loaded, remove indicator from internal list
-                //TODO: handle
+        long generation;
+        Reload reload = new Reload(series.get());
+        List<CompletableFuture<ChartIndicator>> jobs = new ArrayList<>();
+        List<String> keys = new ArrayList<>(indicartors.keySet());
+        List<ChartIndicator> rebuilt = new ArrayList<>();
+        synchronized (pendingReloads){
+            generation = reloadGeneration.incrementAndGet();
+            pendingReloads.forEach(job -> job.cancel(true));
+            pendingReloads.clear();
+            for(String key: keys){
+                rebuilt.add(rebuild(key, reload));
+            }
+            CompletableFuture<Void> shared = DataSourceTasks.supply(() -> {
+                reload.registry.precomputeShared();
+                return null;
+            }, getReloadExecutor());
+            for(ChartIndicator indicator: rebuilt){
+                jobs.add(indicator == null
+                        ? CompletableFuture.completedFuture(null)
+                        : shared.thenCompose(v -> DataSourceTasks.supply(() -> {
+                            indicator.precompute();
+                            return indicator;
+                        }, getReloadExecutor())));
+            }
+            pendingReloads.add(shared);
+            pendingReloads.addAll(jobs);
+        }
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0])).whenComplete((v, error) -> {
+            if(generation != reloadGeneration.get()){
+                return; // cancelled or outdated
+            }
+            Map<String, ChartIndicator> reloaded = new HashMap<>();
+            Map<String, ChartIndicator> failed = new LinkedHashMap<>();
+            for(int i = 0; i < keys.size(); i++){
+                try {
+                    reloaded.put(keys.get(i), jobs.get(i).getNow(null));
+                } catch (CancellationException | CompletionException e){
+                    if(!DataSourceTasks.isCancellation(e)){
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        log.warn("Could not compute the indicator {}: {}", keys.get(i), cause.toString());
+                        failed.put(keys.get(i), rebuilt.get(i));
+                    }
+                }
+            }
+            if(failed.isEmpty()){
+                publish(generation, reload, reloaded);
+                return;
+            }
+            // the shared ta4j indicators may not have been computed, so the failed indicators are not computed in parallel
+            CompletableFuture<Void> retry = DataSourceTasks.supply(() -> {
+                for(Map.Entry<String, ChartIndicator> entry: failed.entrySet()){
+                    try {
+                        entry.getValue().precompute();
+                        reloaded.put(entry.getKey(), entry.getValue());
+                    } catch (RuntimeException e){
+                        log.error("Could not compute the indicator {} again, removing it: {}", entry.getKey(), e.toString());
+                        reloaded.put(entry.getKey(), null);
+                    }
+                }
+                return null;
+            }, getReloadExecutor());
+            synchronized (pendingReloads){
+                pendingReloads.add(retry);
+            }
+            retry.thenRun(() -> publish(generation, reload, reloaded));
+        });
+    }
+
+    /**
+     * Puts the indicators of the reload into {@link #indicartors} on the JavaFX application thread, if no other reload
+     * has been started in the meantime. Indicators without a result (null) are removed
+     */
+    private void publish(long generation, Reload reload, Map<String, ChartIndicator> reloaded){
+        runOnFxThread(() -> {
+            if(generation != reloadGeneration.get()){
+                return;
+            }
+            registry = reload.registry;
+            log.debug("Reloaded {} indicators ({})", reloaded.size(), reload.registry);
+            for(Map.Entry<String, ChartIndicator> entry: reloaded.entrySet()){
+                if(!indicartors.containsKey(entry.getKey())){
+                    continue; // removed during the reload
+                }
+                if(entry.getValue() == null){
+                    removeIndicator(entry.getKey()); // could not be loaded, remove indicator from internal list
+                } else {
+                    indicartors.put(entry.getKey(), entry.getValue());
+                }
             }
+        });
+    }
+
+    /**
+     * Updates all indicators in {@link #indicartors} and {@link #tempIndicators} after bars have been appended to the
+     * series. Indicators with a {@link ChartIndicator.Stream stream} compute every new bar in constant time.
+     * Has to be called on the JavaFX application thread (the datasets of the chart are updated).
+     */
+    @Override
+    public void updateAll(){
+        int appended = 0;
+        for(ChartIndicator indicator: indicartors.values()){
+            appended = Math.max(appended, indicator.update());
+        }
+        for(ChartIndicator indicator: tempIndicators.values()){
+            appended = Math.max(appended, indicator.update());
+        }
+        log.debug("Updated {} indicators with {} new bars", indicartors.size() + tempIndicators.size(), appended);
+    }
+
+    /**
+     * Loads the indicator with the <tt>key</tt> for the <tt>reload</tt> without adding it to {@link #indicartors}
+     * @return the loaded indicator or null if it could not be loaded
+     */
+    private ChartIndicator rebuild(String key, Reload reload){
+        currentReload.set(reload);
+        reload.registry.setUser(key);
+        try {
+            reloadIndicator(key);
+        } catch (XPathException | IllegalArgumentException e){
+            log.error("Could not reload {}: {}", key, e.getMessage());
+            return null;
+        } finally {
+            reload.registry.setUser(null);
+            currentReload.remove();
+        }
+        ChartIndicator indicator = reload.loaded.get(key);
+        if(indicator != null && indicator.hasKernel() && !Parameter.INDICATOR_CROSS_CHECK){
+            reload.registry.removeUser(key); // the ta4j indicators are not computed
+        }
+        return indicator;
+    }
+
+    /**
+     * Adds a loaded indicator to {@link #indicartors} or to the result of the reload of the current thread
+     */
+    private void publish(String identifier, ChartIndicator indicator){
+        Reload reload = currentReload.get();
+        if(reload != null){
+            reload.loaded.put(identifier, indicator);
+        } else {
+            indicartors.put(identifier, indicator);
+        }
+    }
+
+    /**
+     * @return the series of the reload of the current thread or the series of this box
+     */
+    private ChartBarSeries series(){
+        Reload reload = currentReload.get();
+        return reload != null ? reload.series : series.get();
+    }
+
+    /**
+     * @return the indicator registry of the reload of the current thread or the registry of this box
+     */
+    private IndicatorRegistry registry(){
+        Reload reload = currentReload.get();
+        return reload != null ? reload.registry : registry;
+    }
+
+    /**
+     * @return the shared close price indicator of the {@link #registry()}
+     */
+    private Indicator<Num> closePrice(){
+        return registry().closePrice();
+    }
+
+    private static void runOnFxThread(Runnable runnable){
+        if(Platform.isFxApplicationThread()){
+            runnable.run();
+            return;
+        }
+        try {
+            Platform.runLater(runnable);
+        } catch (IllegalStateException ise){ // no JavaFX toolkit (e.g. headless use of the box)
+            runnable.run();
+        }
+    }
+
+    private static synchronized ExecutorService getReloadExecutor(){
+        if(reloadExecutor == null){
+            AtomicInteger threadCount = new AtomicInteger();
+            reloadExecutor = Executors.newFixedThreadPool(Math.max(1, Parameter.INDICATOR_THREADS), r -> {
+                Thread thread = new Thread(r, "indicator-reload-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return reloadExecutor;
+    }
+
+    /**
+     * The series, the shared ta4j indicators and the loaded indicators of one reload
+     */
+    private static class Reload {
+
+        final ChartBarSeries series;
+        final IndicatorRegistry registry;
+        final Map<String, ChartIndicator> loaded = new HashMap<>();
 
+        Reload(ChartBarSeries series){
+            this.series = series;
+            this.registry = new IndicatorRegistry(series);
         }
     }
 
@@ -1361,7 +1775,7 @@ public class BaseIndicatorBox implements IndicatorBox {
                 // indicator not in xml, maybe it was added at runtime dynamically?
                 ChartIndicator dynIndicator = tempIndicators.get(key);
                 if(dynIndicator != null){
-                    indicartors.put(key, dynIndicator.clone()); // fake "reload" to notify all observers
+                    publish(key, dynIndicator.clone()); // fake "reload" to notify all observers
                 }else{ // there is no indicator with that key
                     throw new IllegalArgumentException(key+ " could not be loaded!");
                 }
@@ -22,15 +22,23 @@ package org.sjwimmer.tacharting.implementation.model;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.data.time.Second;
 import org.jfree.data.time.TimeSeriesCollection;
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
 import org.sjwimmer.tacharting.chart.model.types.ChartType;
 import org.sjwimmer.tacharting.chart.model.types.IndicatorCategory;
-import org.ta4j.core.Bar;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.ta4j.core.BarSeries;
 import org.ta4j.core.Indicator;
 import org.ta4j.core.num.Num;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * A Wrapper for the indicators displaying on a jfreeCharts org.sjwimmer.tacharting.chart panel.
@@ -38,12 +46,38 @@ import java.util.List;
  */
 public class ChartIndicator<Type> {
 
+    private final static Logger log = LoggerFactory.getLogger(ChartIndicator.class);
+
     private final List<Indicator<Type>> indicators;
     private final List<String> indicatorsNames;
     private final XYLineAndShapeRenderer renderer;
     private final String generalName;
     private boolean isSubchart;
     private final IndicatorCategory category;
+    /** the precomputed values of the indicators (see {@link #precompute()} and {@link #update()}) */
+    private volatile Values values;
+    /** computes the values without ta4j (see {@link #setKernel(Kernel)}), null if the indicators have no kernel */
+    private Kernel kernel;
+    /** creates the streams for appended bars (see {@link #setStream(Supplier)}), null if the indicators have none */
+    private Supplier<Stream> streams;
+    /** the number of bars a new stream is computed before the first needed bar */
+    private int warmUp = Integer.MAX_VALUE;
+    private Stream stream;
+    /** the index of the next bar of the {@link #stream} */
+    private int streamIndex;
+    /** the values of the chunks that have been computed without {@link #precompute()}, by the index of the first bar */
+    private final Map<Integer, Values> chunks = new LinkedHashMap<Integer, Values>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Values> eldest){
+            return size() > Math.max(1, Parameter.INDICATOR_CHUNK_CACHE);
+        }
+    };
+    /** the dataset of the last {@link #getDataSet(int, int)} call, contains the bars from datasetFrom to datasetTo */
+    private TimeSeriesCollection dataset;
+    private int datasetFrom;
+    private int datasetTo;
+    /** true if the dataset contained the last bar of the series, appended bars are added by {@link #update()} */
+    private boolean datasetAtEnd;
 
     /**
      * Constuctor to create a ChartIndicator instance for just one {@link Indicator}
@@ -167,24 +201,357 @@ public class ChartIndicator<Type> {
     /**
      * Extracts a {@link org.jfree.data.time.TimeSeries Collection of jfreeCharts TimeSeries} for plotting this
      * ChartIndicator
-     * @return a TimeSeriesCollection
+     * @return a TimeSeriesCollection with the values of all bars
      * @throws ClassCastException if the generic type of {@link ChartIndicator} is not in bounds of {@link Num} interface
      */
     public TimeSeriesCollection getDataSet(){
+        return getDataSet(0, getIndicator().getBarSeries().getBarCount());
+    }
+
+    /**
+     * Extracts a dataset that only contains the values of the bars from <tt>from</tt> to <tt>to</tt>, extended to whole
+     * chunks (see {@link Parameter#INDICATOR_CHUNK_SIZE}). Further bars can be added with {@link #showBars(int, int)},
+     * e.g. if the visible range of the chart changes.
+     * @param from the index of the first bar
+     * @param to the index after the last bar
+     * @return a TimeSeriesCollection
+     */
+    public synchronized TimeSeriesCollection getDataSet(int from, int to){
         TimeSeriesCollection dataset = new TimeSeriesCollection();
-        for(int index = 0; index< this.getIndicatorsCount(); index++){
-            Indicator<Type> indicator = this.getIndicator(index);
-            org.jfree.data.time.TimeSeries chartTimeSeries = new org.jfree.data.time.TimeSeries(this.getName(index));
-            
-            for(int i = 0; i<indicator.getBarSeries().getBarCount(); i++){
-                Bar t = indicator.getBarSeries().getBar(i);
-                chartTimeSeries.add(new Second(new Date(t.getEndTime().toEpochSecond() * 1000)), ((Num)indicator.getValue(i)).doubleValue());
-            }
-            dataset.addSeries(chartTimeSeries);
+        for(int index = 0; index < getIndicatorsCount(); index++){
+            dataset.addSeries(new org.jfree.data.time.TimeSeries(getName(index)));
         }
+        this.dataset = dataset;
+        this.datasetFrom = 0;
+        this.datasetTo = 0;
+        showBars(from, to);
         return dataset;
     }
 
+    /**
+     * Adds the values of the bars from <tt>from</tt> to <tt>to</tt> (extended to whole chunks) to the dataset of the
+     * last {@link #getDataSet(int, int)} call. The dataset always contains a contiguous range of bars, values of the
+     * chunks that have already been computed are not computed again. Has to be called on the thread that uses the
+     * dataset (e.g. the javafx thread).
+     * @param from the index of the first bar
+     * @param to the index after the last bar
+     */
+    public synchronized void showBars(int from, int to){
+        TimeSeriesCollection dataset = this.dataset;
+        if(dataset == null){
+            return;
+        }
+        BarSeries series = getIndicator().getBarSeries();
+        int barCount = series.getBarCount();
+        int chunkSize = chunkSize();
+        int start = Math.max(0, Math.min(from, barCount - 1)) / chunkSize * chunkSize;
+        int end = (int) Math.min(barCount, ((long) Math.max(to, start) + chunkSize - 1) / chunkSize * chunkSize);
+        boolean empty = datasetTo <= datasetFrom;
+        if(!empty){
+            if(start >= datasetFrom && end <= datasetTo){
+                return; // already shown
+            }
+            start = Math.min(start, datasetFrom);
+            end = Math.max(end, datasetTo);
+        }
+        int first = empty || start < datasetFrom ? start : datasetTo; // bars before the dataset: add all bars again
+        double[][] shown = valuesOf(first, end);
+        for(int index = 0; index < shown.length; index++){
+            org.jfree.data.time.TimeSeries chartTimeSeries = dataset.getSeries(index);
+            if(first == start && chartTimeSeries.getItemCount() > 0){
+                chartTimeSeries.delete(0, chartTimeSeries.getItemCount() - 1, false);
+            }
+            for(int i = first; i < end; i++){
+                chartTimeSeries.add(periodOf(series, i), shown[index][i - first], false);
+            }
+        }
+        datasetFrom = start;
+        datasetTo = end;
+        datasetAtEnd = end == barCount;
+        fireSeriesChanged(dataset); // after the update of the range, the listeners may show further bars
+    }
+
+    /**
+     * Computes the values of the bars that have been appended to the series since the last computation and adds
+     * only these values to the dataset of the last {@link #getDataSet()} call, if it contains the last bars.
+     * With a {@link #setStream(Supplier) stream} every new bar is computed in constant time, otherwise the ta4j
+     * indicators compute the new bars. Has to be called on the thread that uses the dataset (e.g. the javafx thread).
+     * @return the number of new bars
+     */
+    public synchronized int update(){
+        BarSeries series = getIndicator().getBarSeries();
+        int barCount = series.getBarCount();
+        int appended = 0;
+        Values current = values;
+        if(current != null && current.count < barCount){
+            appended = barCount - current.count;
+            values = current.append(computeBars(current.count, barCount));
+        }
+        TimeSeriesCollection dataset = this.dataset;
+        if(dataset != null && datasetAtEnd && datasetTo < barCount){
+            appended = Math.max(appended, barCount - datasetTo);
+            double[][] shown = valuesOf(datasetTo, barCount);
+            for(int index = 0; index < shown.length; index++){
+                org.jfree.data.time.TimeSeries chartTimeSeries = dataset.getSeries(index);
+                for(int i = datasetTo; i < barCount; i++){
+                    chartTimeSeries.add(periodOf(series, i), shown[index][i - datasetTo], false);
+                }
+            }
+            datasetTo = barCount;
+            fireSeriesChanged(dataset);
+        }
+        return appended;
+    }
+
+    private static void fireSeriesChanged(TimeSeriesCollection dataset){
+        for(int index = 0; index < dataset.getSeriesCount(); index++){
+            dataset.getSeries(index).fireSeriesChanged();
+        }
+    }
+
+    // the values of all indicators for the bars from (inclusive) to (exclusive)
+    private double[][] valuesOf(int from, int to){
+        Values current = values;
+        if(current == null && hasKernel() && !Parameter.INDICATOR_LAZY){
+            try {
+                precompute();
+                current = values;
+            } catch (InterruptedException ie){
+                Thread.currentThread().interrupt();
+            }
+        }
+        double[][] result = new double[getIndicatorsCount()][to - from];
+        if(current != null){
+            if(current.count < to){
+                // bars have been appended after the computation
+                current = current.append(computeBars(current.count, to));
+                values = current;
+            }
+            for(int index = 0; index < result.length; index++){
+                System.arraycopy(current.columns[index], from, result[index], 0, to - from);
+            }
+            return result;
+        }
+        int chunkSize = chunkSize();
+        for(int start = from / chunkSize * chunkSize; start < to; start += chunkSize){
+            Values chunk = chunk(start, Math.min(start + chunkSize, to));
+            int first = Math.max(from, start);
+            for(int index = 0; index < result.length; index++){
+                System.arraycopy(chunk.columns[index], first - start, result[index], first - from,
+                        Math.min(to, start + chunkSize) - first);
+            }
+        }
+        return result;
+    }
+
+    // the cached values of the chunk that starts with the bar start, computed at least up to the bar end (exclusive)
+    private Values chunk(int start, int end){
+        Values chunk = chunks.get(start);
+        if(chunk == null){
+            chunk = new Values(computeBars(start, end));
+        } else if(start + chunk.count < end){
+            chunk = chunk.append(computeBars(start + chunk.count, end));
+        } else {
+            return chunk;
+        }
+        chunks.put(start, chunk);
+        return chunk;
+    }
+
+    private static int chunkSize(){
+        return Math.max(1, Parameter.INDICATOR_CHUNK_SIZE);
+    }
+
+    // the values of all indicators for the bars from (inclusive) to (exclusive)
+    private double[][] computeBars(int from, int to){
+        double[][] computed = new double[getIndicatorsCount()][to - from];
+        for(int i = from; i < to; i++){
+            double[] next = nextValues(i);
+            for(int index = 0; index < computed.length; index++){
+                computed[index][i - from] = next[index];
+            }
+        }
+        return computed;
+    }
+
+    // the values of all indicators for the bar, computed by the stream if possible
+    private double[] nextValues(int index){
+        if(streams != null && Parameter.INDICATOR_KERNELS){
+            if(stream == null || streamIndex != index){
+                stream = streams.get();
+                for(int i = Math.max(0, index - warmUp); i < index; i++){
+                    stream.next(i);
+                }
+            }
+            double[] next = stream.next(index);
+            streamIndex = index + 1;
+            if(!Parameter.INDICATOR_CROSS_CHECK || crossCheck(index, next)){
+                return next;
+            }
+        }
+        double[] next = new double[getIndicatorsCount()];
+        for(int i = 0; i < next.length; i++){
+            next[i] = ((Num) getIndicator(i).getValue(index)).doubleValue();
+        }
+        return next;
+    }
+
+    private static Second periodOf(BarSeries series, int index){
+        long endTime = series instanceof ColumnarBarSeries
+                ? ((ColumnarBarSeries) series).getEndEpochSecond(index)
+                : series.getBar(index).getEndTime().toEpochSecond();
+        return new Second(new Date(endTime * 1000));
+    }
+
+    /**
+     * Computes the values of all indicators for all bars, so that {@link #getDataSet()} does not compute them
+     * (e.g. on a background thread before the indicator is plotted). If the indicators are computed lazily and
+     * only the last bars are visible (see {@link Parameter#CHART_VISIBLE_BARS}), only the chunks of these bars are computed.
+     * @throws InterruptedException if the thread has been interrupted during the computation
+     */
+    public void precompute() throws InterruptedException {
+        if(Parameter.INDICATOR_LAZY && Parameter.CHART_VISIBLE_BARS > 0){
+            int barCount = getIndicator().getBarSeries().getBarCount();
+            precompute(barCount - Parameter.CHART_VISIBLE_BARS, barCount);
+            return;
+        }
+        Kernel kernel = this.kernel;
+        if(kernel != null && Parameter.INDICATOR_KERNELS){
+            double[][] computed = kernel.compute();
+            if(!Parameter.INDICATOR_CROSS_CHECK || crossCheck(computed)){
+                values = new Values(computed);
+                return;
+            }
+        }
+        values = new Values(computeIndicators());
+    }
+
+    /**
+     * Computes the chunks of the bars from <tt>from</tt> to <tt>to</tt> (see {@link #getDataSet(int, int)})
+     * @param from the index of the first bar
+     * @param to the index after the last bar
+     * @throws InterruptedException if the thread has been interrupted during the computation
+     */
+    public synchronized void precompute(int from, int to) throws InterruptedException {
+        int barCount = getIndicator().getBarSeries().getBarCount();
+        int chunkSize = chunkSize();
+        for(int start = Math.max(0, from) / chunkSize * chunkSize; start < Math.min(to, barCount); start += chunkSize){
+            if(Thread.currentThread().isInterrupted()){
+                throw new InterruptedException(String.format("Computation of %s has been cancelled", generalName));
+            }
+            chunk(start, Math.min(start + chunkSize, barCount));
+        }
+    }
+
+    /**
+     * Sets a kernel that computes the values of all indicators of this ChartIndicator with primitive arithmetic
+     * (see {@link IndicatorKernels}). If a kernel is set, {@link #precompute()} and {@link #getDataSet()} use it
+     * instead of the ta4j indicators (see {@link Parameter#INDICATOR_KERNELS}).
+     * @param kernel the kernel for the indicators of this ChartIndicator
+     */
+    public synchronized void setKernel(Kernel kernel){
+        this.kernel = kernel;
+        this.values = null;
+        this.chunks.clear();
+    }
+
+    /**
+     * Sets the streams that compute the values of appended bars in constant time (see {@link IndicatorStreams}
+     * and {@link #update()})
+     * @param streams creates a new stream that starts with the first bar of the series
+     */
+    public void setStream(Supplier<Stream> streams){
+        setStream(streams, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sets the streams that compute the values of appended bars and of lazily computed chunks
+     * @param streams creates a new stream
+     * @param warmUp the number of bars a new stream has to compute before its values are used
+     *               (e.g. the time frame of a moving average, see {@link IndicatorStreams#warmUp(int)})
+     */
+    public synchronized void setStream(Supplier<Stream> streams, int warmUp){
+        this.streams = streams;
+        this.warmUp = warmUp;
+        this.stream = null;
+        this.chunks.clear();
+    }
+
+    /**
+     * @return true if the values of this ChartIndicator are computed by a {@link Kernel kernel}
+     */
+    public boolean hasKernel(){
+        return kernel != null && Parameter.INDICATOR_KERNELS;
+    }
+
+    // computes the values of all indicators with ta4j
+    private double[][] computeIndicators() throws InterruptedException {
+        double[][] computed = new double[getIndicatorsCount()][];
+        for(int index = 0; index < getIndicatorsCount(); index++){
+            Indicator<Type> indicator = getIndicator(index);
+            int barCount = indicator.getBarSeries().getBarCount();
+            computed[index] = new double[barCount];
+            for(int i = 0; i < barCount; i++){
+                if((i & 1023) == 0 && Thread.currentThread().isInterrupted()){
+                    throw new InterruptedException(String.format("Computation of %s has been cancelled", generalName));
+                }
+                computed[index][i] = ((Num) indicator.getValue(i)).doubleValue();
+            }
+        }
+        return computed;
+    }
+
+    /**
+     * Compares the values of the kernel with the values of the ta4j indicators
+     * (see {@link Parameter#INDICATOR_CROSS_CHECK_TOLERANCE})
+     * @param computed the values of the kernel
+     * @return true if all values are equal within the tolerance
+     */
+    private boolean crossCheck(double[][] computed) throws InterruptedException {
+        double[][] expected = computeIndicators();
+        double tolerance = Parameter.INDICATOR_CROSS_CHECK_TOLERANCE;
+        for(int index = 0; index < expected.length; index++){
+            if(index >= computed.length || computed[index].length != expected[index].length){
+                log.warn("Kernel of {} does not compute the values of {}", generalName, getName(index));
+                return false;
+            }
+            for(int i = 0; i < expected[index].length; i++){
+                double value = computed[index][i];
+                double expectedValue = expected[index][i];
+                if(differs(value, expectedValue, tolerance)){
+                    log.warn("Kernel of {} differs from ta4j at bar {} of {}: {} instead of {}",
+                            generalName, i, getName(index), value, expectedValue);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the values of the stream for one bar with the values of the ta4j indicators
+     * @param bar the index of the bar
+     * @param computed the values of the stream
+     * @return true if all values are equal within the tolerance
+     */
+    private boolean crossCheck(int bar, double[] computed){
+        double tolerance = Parameter.INDICATOR_CROSS_CHECK_TOLERANCE;
+        for(int index = 0; index < getIndicatorsCount(); index++){
+            double expectedValue = ((Num) getIndicator(index).getValue(bar)).doubleValue();
+            if(index >= computed.length || differs(computed[index], expectedValue, tolerance)){
+                log.warn("Stream of {} differs from ta4j at bar {} of {}: {} instead of {}", generalName, bar,
+                        getName(index), index < computed.length ? computed[index] : null, expectedValue);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean differs(double value, double expected, double tolerance){
+        return Double.compare(value, expected) != 0
+                && !(Math.abs(value - expected) <= tolerance * Math.max(1, Math.abs(expected)));
+    }
+
     /**
      * @return the {@link XYLineAndShapeRenderer renderer} to plot this indicator
      */
@@ -194,7 +561,15 @@ public class ChartIndicator<Type> {
 
     // returns a new ChartIndicator instance of this indicator
     public ChartIndicator<Type> clone(){
-        return new ChartIndicator<Type>(indicators,indicatorsNames,generalName,renderer,isSubchart,category);
+        ChartIndicator<Type> clone = new ChartIndicator<Type>(indicators,indicatorsNames,generalName,renderer,isSubchart,category);
+        clone.values = values;
+        clone.kernel = kernel;
+        clone.streams = streams;
+        clone.warmUp = warmUp;
+        synchronized (this){
+            clone.chunks.putAll(chunks);
+        }
+        return clone;
     }
 
     /**
@@ -206,4 +581,64 @@ public class ChartIndicator<Type> {
             renderer.setSeriesVisible(i, visible);
         }
     }
+
+    /**
+     * Computes the values of the indicators of a ChartIndicator for all bars with primitive arithmetic
+     */
+    @FunctionalInterface
+    public interface Kernel {
+
+        /**
+         * @return the values of every indicator (in the order of {@link #getIndicatorList()}) for every bar
+         */
+        double[][] compute();
+    }
+
+    /**
+     * Computes the values of the indicators of a ChartIndicator bar by bar with constant time per bar
+     */
+    @FunctionalInterface
+    public interface Stream {
+
+        /**
+         * @param index the index of the bar, starts with 0 and is increased by one with every call
+         * @return the values of every indicator (in the order of {@link #getIndicatorList()}) for the bar
+         */
+        double[] next(int index);
+    }
+
+    /**
+     * The values of the indicators for the first <tt>count</tt> bars, the columns can be longer so that
+     * appended bars do not copy them
+     */
+    private static class Values {
+
+        final double[][] columns;
+        final int count;
+
+        Values(double[][] columns){
+            this(columns, columns.length > 0 ? columns[0].length : 0);
+        }
+
+        private Values(double[][] columns, int count){
+            this.columns = columns;
+            this.count = count;
+        }
+
+        Values append(double[][] appended){
+            int length = appended.length > 0 ? appended[0].length : 0;
+            double[][] grown = columns;
+            if(columns.length > 0 && count + length > columns[0].length){
+                int capacity = Math.max(count + length, columns[0].length + (columns[0].length >> 1));
+                grown = new double[columns.length][];
+                for(int index = 0; index < columns.length; index++){
+                    grown[index] = Arrays.copyOf(columns[index], capacity);
+                }
+            }
+            for(int index = 0; index < grown.length; index++){
+                System.arraycopy(appended[index], 0, grown[index], count, length);
+            }
+            return new Values(grown, count + length);
+        }
+    }
 }
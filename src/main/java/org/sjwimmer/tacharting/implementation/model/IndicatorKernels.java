@@ -0,0 +1,452 @@
+/*
+ GNU Lesser General Public License
+
+ Copyright (c) 2017 Wimmer, Simon-Justus
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sjwimmer.tacharting.implementation.model;
+
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+/**
+ * Computes the values of the core indicators for a whole series in loops over <tt>double</tt> arrays.
+ * The functions have the same definitions (including the values of the first bars) as the ta4j indicators
+ * of the same name, but do not create a {@link org.ta4j.core.num.Num} object per value.
+ * The index <tt>i</tt> of an array is the bar with index <tt>i</tt> of the series.
+ */
+public final class IndicatorKernels {
+
+    private IndicatorKernels(){}
+
+    /** Prices ********************************************************************************************************/
+
+    public static double[] close(BarSeries series){
+        return column(series, 3);
+    }
+
+    public static double[] high(BarSeries series){
+        return column(series, 1);
+    }
+
+    public static double[] low(BarSeries series){
+        return column(series, 2);
+    }
+
+    public static double[] volume(BarSeries series){
+        return column(series, 4);
+    }
+
+    /**
+     * @return (high + low + close) / 3 of every bar
+     */
+    public static double[] typicalPrice(BarSeries series){
+        double[] high = high(series);
+        double[] low = low(series);
+        double[] close = close(series);
+        double[] result = new double[close.length];
+        for(int i = 0; i < result.length; i++){
+            result[i] = (high[i] + low[i] + close[i]) / 3;
+        }
+        return result;
+    }
+
+    // 0: open, 1: high, 2: low, 3: close, 4: volume
+    private static double[] column(BarSeries series, int column){
+        double[] result = new double[series.getBarCount()];
+        if(series instanceof ColumnarBarSeries){
+            ColumnarBarSeries columnar = (ColumnarBarSeries) series;
+            for(int i = 0; i < result.length; i++){
+                switch (column){
+                    case 0: result[i] = columnar.getOpen(i); break;
+                    case 1: result[i] = columnar.getHigh(i); break;
+                    case 2: result[i] = columnar.getLow(i); break;
+                    case 3: result[i] = columnar.getClose(i); break;
+                    default: result[i] = columnar.getVolume(i);
+                }
+            }
+        } else {
+            for(int i = 0; i < result.length; i++){
+                Bar bar = series.getBar(i);
+                switch (column){
+                    case 0: result[i] = bar.getOpenPrice().doubleValue(); break;
+                    case 1: result[i] = bar.getHighPrice().doubleValue(); break;
+                    case 2: result[i] = bar.getLowPrice().doubleValue(); break;
+                    case 3: result[i] = bar.getClosePrice().doubleValue(); break;
+                    default: result[i] = bar.getVolume().doubleValue();
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Moving averages ***********************************************************************************************/
+
+    /**
+     * Simple moving average, the first <tt>barCount - 1</tt> values are the averages of all previous values
+     */
+    public static double[] sma(double[] values, int barCount){
+        double[] result = new double[values.length];
+        double sum = 0;
+        for(int i = 0; i < values.length; i++){
+            sum += values[i];
+            if(i >= barCount){
+                sum -= values[i - barCount];
+            }
+            result[i] = sum / Math.min(barCount, i + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Exponential moving average with the multiplier <tt>2 / (barCount + 1)</tt>, starts with the first value
+     */
+    public static double[] ema(double[] values, int barCount){
+        return ema(values, 2.0 / (barCount + 1));
+    }
+
+    /**
+     * Modified moving average (ema with the multiplier <tt>1 / barCount</tt>)
+     */
+    public static double[] mma(double[] values, int barCount){
+        return ema(values, 1.0 / barCount);
+    }
+
+    private static double[] ema(double[] values, double multiplier){
+        double[] result = new double[values.length];
+        if(values.length > 0){
+            result[0] = values[0];
+        }
+        for(int i = 1; i < values.length; i++){
+            result[i] = result[i - 1] + (values[i] - result[i - 1]) * multiplier;
+        }
+        return result;
+    }
+
+    /**
+     * Weighted moving average, the newest value has the weight <tt>barCount</tt>
+     */
+    public static double[] wma(double[] values, int barCount){
+        double[] result = new double[values.length];
+        double sum = 0; // sum of the values in the window
+        double weighted = 0; // sum of the weighted values in the window
+        for(int i = 0; i < values.length; i++){
+            int count = Math.min(barCount, i + 1);
+            if(i >= barCount){
+                weighted -= sum; // decrease the weight of all values by one, the oldest value gets weight 0
+                sum -= values[i - barCount];
+            }
+            weighted += count * values[i];
+            sum += values[i];
+            result[i] = i == 0 ? values[0] : weighted / (count * (count + 1) / 2);
+        }
+        return result;
+    }
+
+    /**
+     * Hull moving average: <tt>wma(2 * wma(n/2) - wma(n), sqrt(n))</tt>
+     */
+    public static double[] hma(double[] values, int barCount){
+        double[] half = wma(values, barCount / 2);
+        double[] full = wma(values, barCount);
+        double[] difference = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            difference[i] = 2 * half[i] - full[i];
+        }
+        return wma(difference, (int) Math.sqrt(barCount));
+    }
+
+    /**
+     * Zero lag exponential moving average, the first <tt>barCount - 1</tt> values are simple moving averages
+     */
+    public static double[] zlema(double[] values, int barCount){
+        double[] result = sma(values, barCount);
+        double k = 2.0 / (barCount + 1);
+        int lag = (barCount - 1) / 2;
+        for(int i = Math.max(1, barCount - 1); i < values.length; i++){
+            result[i] = k * (2 * values[i] - values[i - lag]) + (1 - k) * result[i - 1];
+        }
+        return result;
+    }
+
+    /**
+     * Triple exponential moving average: <tt>3 * ema - 3 * ema(ema) + ema(ema(ema))</tt>
+     */
+    public static double[] tripleEma(double[] values, int barCount){
+        double[] ema = ema(values, barCount);
+        double[] emaEma = ema(ema, barCount);
+        double[] emaEmaEma = ema(emaEma, barCount);
+        double[] result = new double[values.length];
+        for(int i = 0; i < result.length; i++){
+            result[i] = 3 * ema[i] - 3 * emaEma[i] + emaEmaEma[i];
+        }
+        return result;
+    }
+
+    /**
+     * MACD line: difference of the short and the long ema
+     */
+    public static double[] macd(double[] values, int shortBarCount, int longBarCount){
+        return minus(ema(values, shortBarCount), ema(values, longBarCount));
+    }
+
+    /** Statistics ****************************************************************************************************/
+
+    /**
+     * Population standard deviation of the last <tt>barCount</tt> values
+     */
+    public static double[] standardDeviation(double[] values, int barCount){
+        double[] mean = sma(values, barCount);
+        double[] result = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            int start = Math.max(0, i - barCount + 1);
+            double variance = 0;
+            for(int j = start; j <= i; j++){
+                double deviation = values[j] - mean[i];
+                variance += deviation * deviation;
+            }
+            result[i] = Math.sqrt(variance / (i - start + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Mean absolute deviation of the last <tt>barCount</tt> values from their average
+     */
+    public static double[] meanDeviation(double[] values, int barCount){
+        double[] mean = sma(values, barCount);
+        double[] result = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            int start = Math.max(0, i - barCount + 1);
+            double deviations = 0;
+            for(int j = start; j <= i; j++){
+                deviations += Math.abs(values[j] - mean[i]);
+            }
+            result[i] = deviations / (i - start + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Highest of the last <tt>barCount</tt> values (monotonic queue, O(n) for all bars)
+     */
+    public static double[] highest(double[] values, int barCount){
+        return extreme(values, barCount, true);
+    }
+
+    /**
+     * Lowest of the last <tt>barCount</tt> values (monotonic queue, O(n) for all bars)
+     */
+    public static double[] lowest(double[] values, int barCount){
+        return extreme(values, barCount, false);
+    }
+
+    private static double[] extreme(double[] values, int barCount, boolean highest){
+        double[] result = new double[values.length];
+        int[] queue = new int[values.length]; // indices of the candidates, their values are monotonic
+        int head = 0;
+        int tail = 0;
+        for(int i = 0; i < values.length; i++){
+            while(tail > head && (highest ? values[queue[tail - 1]] <= values[i] : values[queue[tail - 1]] >= values[i])){
+                tail--;
+            }
+            queue[tail++] = i;
+            if(queue[head] <= i - barCount){
+                head++;
+            }
+            result[i] = values[queue[head]];
+        }
+        return result;
+    }
+
+    /** Oscillators ***************************************************************************************************/
+
+    /**
+     * Relative strength index with modified moving averages of the gains and losses
+     */
+    public static double[] rsi(double[] values, int barCount){
+        double[] gains = new double[values.length];
+        double[] losses = new double[values.length];
+        for(int i = 1; i < values.length; i++){
+            double change = values[i] - values[i - 1];
+            gains[i] = Math.max(0, change);
+            losses[i] = Math.max(0, -change);
+        }
+        double[] averageGain = mma(gains, barCount);
+        double[] averageLoss = mma(losses, barCount);
+        double[] result = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            if(averageLoss[i] == 0){
+                result[i] = averageGain[i] == 0 ? 0 : 100;
+            } else {
+                result[i] = 100 - 100 / (1 + averageGain[i] / averageLoss[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stochastic oscillator K: position of the value in the range of the highest high and the lowest low
+     * of the last <tt>barCount</tt> bars in percent
+     */
+    public static double[] stochasticK(double[] values, int barCount, double[] high, double[] low){
+        double[] highestHigh = highest(high, barCount);
+        double[] lowestLow = lowest(low, barCount);
+        double[] result = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            result[i] = divide(values[i] - lowestLow[i], highestHigh[i] - lowestLow[i]) * 100;
+        }
+        return result;
+    }
+
+    /**
+     * Stochastic RSI: position of the rsi in the range of the last <tt>barCount</tt> rsi values
+     */
+    public static double[] stochasticRsi(double[] rsi, int barCount){
+        double[] highest = highest(rsi, barCount);
+        double[] lowest = lowest(rsi, barCount);
+        double[] result = new double[rsi.length];
+        for(int i = 0; i < rsi.length; i++){
+            result[i] = divide(rsi[i] - lowest[i], highest[i] - lowest[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Position of the value between the lower and upper bollinger band (sma -/+ k * standard deviation)
+     */
+    public static double[] percentB(double[] values, int barCount, double k){
+        double[] middle = sma(values, barCount);
+        double[] deviation = standardDeviation(values, barCount);
+        double[] result = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            double lower = middle[i] - k * deviation[i];
+            double upper = middle[i] + k * deviation[i];
+            result[i] = divide(values[i] - lower, upper - lower);
+        }
+        return result;
+    }
+
+    /**
+     * Commodity channel index of the typical price
+     */
+    public static double[] cci(double[] typicalPrice, int barCount){
+        double[] mean = sma(typicalPrice, barCount);
+        double[] meanDeviation = meanDeviation(typicalPrice, barCount);
+        double[] result = new double[typicalPrice.length];
+        for(int i = 0; i < result.length; i++){
+            result[i] = meanDeviation[i] == 0 ? 0 : (typicalPrice[i] - mean[i]) / (meanDeviation[i] * 0.015);
+        }
+        return result;
+    }
+
+    /**
+     * Rate of change in percent to the value <tt>barCount</tt> bars before (or the first value)
+     */
+    public static double[] roc(double[] values, int barCount){
+        double[] result = new double[values.length];
+        for(int i = 0; i < values.length; i++){
+            double previous = values[Math.max(0, i - barCount)];
+            result[i] = divide(values[i] - previous, previous) * 100;
+        }
+        return result;
+    }
+
+    /** Volatility ****************************************************************************************************/
+
+    /**
+     * True range: maximum of high - low and the distances of high and low to the previous close
+     */
+    public static double[] trueRange(double[] high, double[] low, double[] close){
+        double[] result = new double[close.length];
+        for(int i = 0; i < close.length; i++){
+            double range = Math.abs(high[i] - low[i]);
+            if(i > 0){
+                range = Math.max(range, Math.max(Math.abs(high[i] - close[i - 1]), Math.abs(close[i - 1] - low[i])));
+            }
+            result[i] = range;
+        }
+        return result;
+    }
+
+    /**
+     * Average true range (modified moving average of the true range)
+     */
+    public static double[] atr(double[] high, double[] low, double[] close, int barCount){
+        return mma(trueRange(high, low, close), barCount);
+    }
+
+    /** Volume ********************************************************************************************************/
+
+    /**
+     * On balance volume, starts with 0
+     */
+    public static double[] onBalanceVolume(double[] close, double[] volume){
+        double[] result = new double[close.length];
+        for(int i = 1; i < close.length; i++){
+            double sign = Math.signum(close[i] - close[i - 1]);
+            result[i] = result[i - 1] + sign * volume[i];
+        }
+        return result;
+    }
+
+    /**
+     * Volume weighted average of the typical price of the last <tt>barCount</tt> bars
+     */
+    public static double[] vwap(double[] typicalPrice, double[] volume, int barCount){
+        double[] result = new double[typicalPrice.length];
+        for(int i = 0; i < typicalPrice.length; i++){
+            if(i == 0){
+                result[i] = typicalPrice[0];
+                continue;
+            }
+            double priceVolume = 0;
+            double cumulatedVolume = 0;
+            for(int j = Math.max(0, i - barCount + 1); j <= i; j++){
+                priceVolume += typicalPrice[j] * volume[j];
+                cumulatedVolume += volume[j];
+            }
+            result[i] = divide(priceVolume, cumulatedVolume);
+        }
+        return result;
+    }
+
+    /** Arithmetic ****************************************************************************************************/
+
+    /**
+     * @return <tt>a + factor * b</tt> for every index
+     */
+    public static double[] plus(double[] a, double factor, double[] b){
+        double[] result = new double[a.length];
+        for(int i = 0; i < a.length; i++){
+            result[i] = a[i] + factor * b[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return <tt>a - b</tt> for every index
+     */
+    public static double[] minus(double[] a, double[] b){
+        return plus(a, -1, b);
+    }
+
+    // a division by zero is NaN like in ta4j
+    static double divide(double dividend, double divisor){
+        return divisor == 0 ? Double.NaN : dividend / divisor;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ GNU Lesser General Public License
+
+ Copyright (c) 2017 Wimmer, Simon-Justus
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sjwimmer.tacharting.implementation.model;
+
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.ATRIndicator;
+import org.ta4j.core.indicators.EMAIndicator;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.helpers.HighPriceIndicator;
+import org.ta4j.core.indicators.helpers.LowPriceIndicator;
+import org.ta4j.core.indicators.helpers.TypicalPriceIndicator;
+import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
+import org.ta4j.core.indicators.volume.VWAPIndicator;
+import org.ta4j.core.num.Num;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Canonicalizes the ta4j indicators of one {@link BarSeries series} by type and parameters, so that an indicator
+ * that is needed by several chart indicators (e.g. the EMA of an EMA line and of the Bollinger Bands with the same
+ * time frame) is created once and its values are cached once.
+ * <p>
+ * ta4j indicators are not thread safe. Indicators that are requested by more than one user (see
+ * {@link #setUser(Object)}) should be computed with {@link #precomputeShared()} before they are read by several threads.
+ */
+public class IndicatorRegistry {
+
+    private final BarSeries series;
+    /** the indicators in the order of creation, the inputs of an indicator are created before the indicator */
+    private final Map<List<Object>, Member> members = new LinkedHashMap<>();
+    private final Map<Indicator<?>, Member> byIndicator = new IdentityHashMap<>();
+    private Object user;
+
+    /**
+     * @param series the series of all indicators of this registry
+     */
+    public IndicatorRegistry(BarSeries series){
+        this.series = Objects.requireNonNull(series);
+    }
+
+    /**
+     * Returns the indicator of the <tt>type</tt> with the <tt>parameters</tt> or creates it with the <tt>factory</tt>
+     * @param type the type of the indicator
+     * @param factory creates the indicator for the series of this registry
+     * @param parameters the parameters of the indicator, indicators are compared by identity
+     * @return the registered indicator
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends Indicator<?>> T get(Class<?> type, Supplier<T> factory, Object... parameters){
+        List<Object> key = new ArrayList<>(parameters.length + 1);
+        key.add(type);
+        for(Object parameter: parameters){
+            key.add(parameter instanceof Indicator ? new Identity(parameter) : parameter);
+        }
+        Member member = members.get(key);
+        if(member == null){
+            T indicator = factory.get(); // may register its inputs
+            if(indicator.getBarSeries() != series){
+                throw new IllegalArgumentException(String.format("%s is not an indicator of %s", indicator, series.getName()));
+            }
+            member = new Member(indicator);
+            for(Object parameter: parameters){
+                Member input = parameter instanceof Indicator ? byIndicator.get(parameter) : null;
+                if(input != null){
+                    member.inputs.add(input);
+                }
+            }
+            members.put(key, member);
+            byIndicator.put(indicator, member);
+        }
+        member.requests++;
+        member.users.add(user != null ? user : new Object());
+        return (T) member.indicator;
+    }
+
+    /**
+     * Sets the user of the following requests, e.g. the key of the indicator that is loaded. Every request
+     * without a user counts as a request of a new user.
+     * @param user the user of the following requests or null
+     */
+    public synchronized void setUser(Object user){
+        this.user = user;
+    }
+
+    /**
+     * Removes the <tt>user</tt> from all indicators, e.g. because it does not compute the values with ta4j
+     * @param user a user of requests
+     */
+    public synchronized void removeUser(Object user){
+        for(Member member: members.values()){
+            member.users.remove(user);
+        }
+    }
+
+    public ClosePriceIndicator closePrice(){
+        return get(ClosePriceIndicator.class, () -> new ClosePriceIndicator(series));
+    }
+
+    public HighPriceIndicator highPrice(){
+        return get(HighPriceIndicator.class, () -> new HighPriceIndicator(series));
+    }
+
+    public LowPriceIndicator lowPrice(){
+        return get(LowPriceIndicator.class, () -> new LowPriceIndicator(series));
+    }
+
+    public TypicalPriceIndicator typicalPrice(){
+        return get(TypicalPriceIndicator.class, () -> new TypicalPriceIndicator(series));
+    }
+
+    public SMAIndicator sma(Indicator<Num> indicator, int barCount){
+        return get(SMAIndicator.class, () -> new SMAIndicator(indicator, barCount), indicator, barCount);
+    }
+
+    public EMAIndicator ema(Indicator<Num> indicator, int barCount){
+        return get(EMAIndicator.class, () -> new EMAIndicator(indicator, barCount), indicator, barCount);
+    }
+
+    public StandardDeviationIndicator standardDeviation(Indicator<Num> indicator, int barCount){
+        return get(StandardDeviationIndicator.class, () -> new StandardDeviationIndicator(indicator, barCount),
+                indicator, barCount);
+    }
+
+    public RSIIndicator rsi(Indicator<Num> indicator, int barCount){
+        return get(RSIIndicator.class, () -> new RSIIndicator(indicator, barCount), indicator, barCount);
+    }
+
+    public ATRIndicator atr(int barCount){
+        return get(ATRIndicator.class, () -> new ATRIndicator(series, barCount), barCount);
+    }
+
+    public VWAPIndicator vwap(int barCount){
+        return get(VWAPIndicator.class, () -> new VWAPIndicator(series, barCount), barCount);
+    }
+
+    /**
+     * Computes the values of all indicators that have been requested by more than one user and of their inputs for
+     * all bars. The indicators are computed in the order of creation, so that no deep recursion is needed.
+     * After this call the shared indicators are only read by ta4j.
+     * @throws InterruptedException if the thread has been interrupted during the computation
+     */
+    public void precomputeShared() throws InterruptedException {
+        List<Indicator<?>> shared = new ArrayList<>();
+        synchronized (this){
+            Set<Member> marked = Collections.newSetFromMap(new IdentityHashMap<>());
+            for(Member member: members.values()){
+                if(member.users.size() > 1){
+                    mark(member, marked);
+                }
+            }
+            for(Member member: members.values()){
+                if(marked.contains(member)){
+                    shared.add(member.indicator);
+                }
+            }
+        }
+        for(Indicator<?> indicator: shared){
+            for(int i = series.getBeginIndex(); i <= series.getEndIndex(); i++){
+                if((i & 1023) == 0 && Thread.currentThread().isInterrupted()){
+                    throw new InterruptedException(String.format("Computation of %s has been cancelled", indicator));
+                }
+                indicator.getValue(i);
+            }
+        }
+    }
+
+    private static void mark(Member member, Set<Member> marked){
+        if(marked.add(member)){
+            member.inputs.forEach(input -> mark(input, marked));
+        }
+    }
+
+    /**
+     * @return the series of all indicators of this registry
+     */
+    public BarSeries getBarSeries(){
+        return series;
+    }
+
+    /**
+     * @return the number of distinct indicators
+     */
+    public synchronized int size(){
+        return members.size();
+    }
+
+    /**
+     * @return the number of requests that returned an existing indicator
+     */
+    public synchronized int getSharedCount(){
+        int shared = 0;
+        for(Member member: members.values()){
+            shared += member.requests - 1;
+        }
+        return shared;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return String.format("%s: %s indicators, %s shared requests", getClass().getSimpleName(), size(),
+                getSharedCount());
+    }
+
+    private static class Member {
+
+        final Indicator<?> indicator;
+        final List<Member> inputs = new ArrayList<>();
+        final Set<Object> users = new HashSet<>();
+        int requests;
+
+        Member(Indicator<?> indicator){
+            this.indicator = indicator;
+        }
+    }
+
+    /**
+     * Compares an indicator parameter by identity (ta4j indicators do not implement equals)
+     */
+    private static class Identity {
+
+        final Object object;
+
+        Identity(Object object){
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            return o instanceof Identity && ((Identity) o).object == object;
+        }
+
+        @Override
+        public int hashCode(){
+            return System.identityHashCode(object);
+        }
+    }
+}
@@ -0,0 +1,612 @@
+/*
+ GNU Lesser General Public License
+
+ Copyright (c) 2017 Wimmer, Simon-Justus
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.sjwimmer.tacharting.implementation.model;
+
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+/**
+ * Streaming versions of the {@link IndicatorKernels}: every class keeps the state of an indicator (running sums,
+ * the last average, monotonic queues for the highest and lowest values) and computes the value of the next bar in
+ * constant time. The values are the values of the kernels (up to rounding).
+ * <p>
+ * A stream must receive every bar in ascending order. The values of a stream that does not start with the first bar
+ * of the series are exact after the time frame of the indicator (windows) or converge to the exact values
+ * (exponential averages, see {@link #warmUp(int)}).
+ */
+public final class IndicatorStreams {
+
+    private IndicatorStreams(){}
+
+    /**
+     * @param barCount the time frame of an exponential average
+     * @return the number of bars a stream of the average has to compute before its values are used,
+     * the start value has no significant influence afterwards (see {@link Parameter#INDICATOR_WARM_UP})
+     */
+    public static int warmUp(int barCount){
+        return (int) Math.min(Integer.MAX_VALUE, (long) barCount * Math.max(1, Parameter.INDICATOR_WARM_UP));
+    }
+
+    /** Prices ********************************************************************************************************/
+
+    public static double closeOf(BarSeries series, int index){
+        return series instanceof ColumnarBarSeries
+                ? ((ColumnarBarSeries) series).getClose(index)
+                : series.getBar(index).getClosePrice().doubleValue();
+    }
+
+    public static double highOf(BarSeries series, int index){
+        return series instanceof ColumnarBarSeries
+                ? ((ColumnarBarSeries) series).getHigh(index)
+                : series.getBar(index).getHighPrice().doubleValue();
+    }
+
+    public static double lowOf(BarSeries series, int index){
+        return series instanceof ColumnarBarSeries
+                ? ((ColumnarBarSeries) series).getLow(index)
+                : series.getBar(index).getLowPrice().doubleValue();
+    }
+
+    public static double volumeOf(BarSeries series, int index){
+        return series instanceof ColumnarBarSeries
+                ? ((ColumnarBarSeries) series).getVolume(index)
+                : series.getBar(index).getVolume().doubleValue();
+    }
+
+    /**
+     * @return (high + low + close) / 3 of the bar
+     */
+    public static double typicalPriceOf(BarSeries series, int index){
+        if(series instanceof ColumnarBarSeries){
+            ColumnarBarSeries columnar = (ColumnarBarSeries) series;
+            return (columnar.getHigh(index) + columnar.getLow(index) + columnar.getClose(index)) / 3;
+        }
+        Bar bar = series.getBar(index);
+        return (bar.getHighPrice().doubleValue() + bar.getLowPrice().doubleValue()
+                + bar.getClosePrice().doubleValue()) / 3;
+    }
+
+    /** Moving averages ***********************************************************************************************/
+
+    /**
+     * Simple moving average (see {@link IndicatorKernels#sma(double[], int)})
+     */
+    public static class Sma {
+
+        private final double[] window;
+        private int count;
+        private double sum;
+
+        public Sma(int barCount){
+            this.window = new double[barCount];
+        }
+
+        public double next(double value){
+            int position = count % window.length;
+            sum += value;
+            if(count >= window.length){
+                sum -= window[position];
+            }
+            window[position] = value;
+            count++;
+            return sum / Math.min(window.length, count);
+        }
+    }
+
+    /**
+     * Exponential moving average (see {@link IndicatorKernels#ema(double[], int)})
+     */
+    public static class Ema {
+
+        private final double multiplier;
+        private boolean first = true;
+        private double value;
+
+        public Ema(int barCount){
+            this(2.0 / (barCount + 1));
+        }
+
+        private Ema(double multiplier){
+            this.multiplier = multiplier;
+        }
+
+        /**
+         * @return a modified moving average (see {@link IndicatorKernels#mma(double[], int)})
+         */
+        public static Ema mma(int barCount){
+            return new Ema(1.0 / barCount);
+        }
+
+        public double next(double value){
+            if(first){
+                first = false;
+                this.value = value;
+            } else {
+                this.value = this.value + (value - this.value) * multiplier;
+            }
+            return this.value;
+        }
+    }
+
+    /**
+     * Weighted moving average (see {@link IndicatorKernels#wma(double[], int)})
+     */
+    public static class Wma {
+
+        private final double[] window;
+        private int count;
+        private double sum;
+        private double weighted;
+
+        public Wma(int barCount){
+            this.window = new double[barCount];
+        }
+
+        public double next(double value){
+            int barCount = window.length;
+            int position = count % barCount;
+            int weight = Math.min(barCount, count + 1);
+            if(count >= barCount){
+                weighted -= sum;
+                sum -= window[position];
+            }
+            weighted += weight * value;
+            sum += value;
+            window[position] = value;
+            count++;
+            return count == 1 ? value : weighted / (weight * (weight + 1) / 2);
+        }
+    }
+
+    /**
+     * Hull moving average (see {@link IndicatorKernels#hma(double[], int)})
+     */
+    public static class Hma {
+
+        private final Wma half;
+        private final Wma full;
+        private final Wma result;
+
+        public Hma(int barCount){
+            this.half = new Wma(barCount / 2);
+            this.full = new Wma(barCount);
+            this.result = new Wma((int) Math.sqrt(barCount));
+        }
+
+        public double next(double value){
+            return result.next(2 * half.next(value) - full.next(value));
+        }
+    }
+
+    /**
+     * Zero lag exponential moving average (see {@link IndicatorKernels#zlema(double[], int)})
+     */
+    public static class Zlema {
+
+        private final Sma sma;
+        private final double[] lagged; // the last lag + 1 values
+        private final int start;
+        private final double k;
+        private int count;
+        private double value;
+
+        public Zlema(int barCount){
+            this.sma = new Sma(barCount);
+            this.lagged = new double[(barCount - 1) / 2 + 1];
+            this.start = Math.max(1, barCount - 1);
+            this.k = 2.0 / (barCount + 1);
+        }
+
+        public double next(double value){
+            double average = sma.next(value);
+            int lag = lagged.length - 1;
+            lagged[count % lagged.length] = value;
+            if(count >= start){
+                this.value = k * (2 * value - lagged[(count - lag) % lagged.length]) + (1 - k) * this.value;
+            } else {
+                this.value = average;
+            }
+            count++;
+            return this.value;
+        }
+    }
+
+    /**
+     * Triple exponential moving average (see {@link IndicatorKernels#tripleEma(double[], int)})
+     */
+    public static class TripleEma {
+
+        private final Ema ema;
+        private final Ema emaEma;
+        private final Ema emaEmaEma;
+
+        public TripleEma(int barCount){
+            this.ema = new Ema(barCount);
+            this.emaEma = new Ema(barCount);
+            this.emaEmaEma = new Ema(barCount);
+        }
+
+        public double next(double value){
+            double e1 = ema.next(value);
+            double e2 = emaEma.next(e1);
+            double e3 = emaEmaEma.next(e2);
+            return 3 * e1 - 3 * e2 + e3;
+        }
+    }
+
+    /** Statistics ****************************************************************************************************/
+
+    /**
+     * Population standard deviation of the last values (see {@link IndicatorKernels#standardDeviation(double[], int)}),
+     * updated with the sliding window version of Welford's algorithm. The rounding errors of the updates do not cancel
+     * out, so the mean and the squared deviations are computed again from the window every {@link #RESYNC} windows.
+     */
+    public static class StandardDeviation {
+
+        /** number of windows between two computations from the window, costs 1/RESYNC of a full computation per bar */
+        static final int RESYNC = 64;
+
+        private final double[] window;
+        private int count;
+        private double mean;
+        private double squaredDeviations;
+
+        public StandardDeviation(int barCount){
+            this.window = new double[barCount];
+        }
+
+        public double next(double value){
+            int barCount = window.length;
+            int position = count % barCount;
+            if(count < barCount){
+                double delta = value - mean;
+                mean += delta / (count + 1);
+                squaredDeviations += delta * (value - mean);
+            } else {
+                double removed = window[position];
+                double previousMean = mean;
+                mean += (value - removed) / barCount;
+                squaredDeviations += (value - removed) * (value - mean + removed - previousMean);
+            }
+            window[position] = value;
+            count++;
+            if(count % ((long) barCount * RESYNC) == 0){
+                resync();
+            }
+            return Math.sqrt(Math.max(0, squaredDeviations) / Math.min(barCount, count));
+        }
+
+        /**
+         * Computes the mean and the squared deviations of the full window with two passes
+         */
+        private void resync(){
+            double sum = 0;
+            for(double value: window){
+                sum += value;
+            }
+            mean = sum / window.length;
+            squaredDeviations = 0;
+            for(double value: window){
+                double delta = value - mean;
+                squaredDeviations += delta * delta;
+            }
+        }
+    }
+
+    /**
+     * Highest or lowest of the last values (see {@link IndicatorKernels#highest(double[], int)}),
+     * with a monotonic queue of the candidates
+     */
+    public static class Extreme {
+
+        private final int barCount;
+        private final boolean highest;
+        private final int[] indices;
+        private final double[] values;
+        private int head;
+        private int size;
+        private int count;
+
+        public Extreme(int barCount, boolean highest){
+            this.barCount = barCount;
+            this.highest = highest;
+            this.indices = new int[barCount + 1];
+            this.values = new double[barCount + 1];
+        }
+
+        public double next(double value){
+            int capacity = values.length;
+            while(size > 0){
+                double last = values[(head + size - 1) % capacity];
+                if(highest ? last <= value : last >= value){
+                    size--;
+                } else {
+                    break;
+                }
+            }
+            indices[(head + size) % capacity] = count;
+            values[(head + size) % capacity] = value;
+            size++;
+            if(indices[head] <= count - barCount){
+                head = (head + 1) % capacity;
+                size--;
+            }
+            count++;
+            return values[head];
+        }
+    }
+
+    /** Oscillators ***************************************************************************************************/
+
+    /**
+     * Relative strength index (see {@link IndicatorKernels#rsi(double[], int)})
+     */
+    public static class Rsi {
+
+        private final Ema averageGain;
+        private final Ema averageLoss;
+        private boolean first = true;
+        private double previous;
+
+        public Rsi(int barCount){
+            this.averageGain = Ema.mma(barCount);
+            this.averageLoss = Ema.mma(barCount);
+        }
+
+        public double next(double value){
+            double change = first ? 0 : value - previous;
+            first = false;
+            previous = value;
+            double gain = averageGain.next(Math.max(0, change));
+            double loss = averageLoss.next(Math.max(0, -change));
+            if(loss == 0){
+                return gain == 0 ? 0 : 100;
+            }
+            return 100 - 100 / (1 + gain / loss);
+        }
+    }
+
+    /**
+     * MACD line (see {@link IndicatorKernels#macd(double[], int, int)})
+     */
+    public static class Macd {
+
+        private final Ema emaShort;
+        private final Ema emaLong;
+
+        public Macd(int shortBarCount, int longBarCount){
+            this.emaShort = new Ema(shortBarCount);
+            this.emaLong = new Ema(longBarCount);
+        }
+
+        public double next(double value){
+            return emaShort.next(value) - emaLong.next(value);
+        }
+    }
+
+    /**
+     * Stochastic oscillator K (see {@link IndicatorKernels#stochasticK(double[], int, double[], double[])})
+     */
+    public static class StochasticK {
+
+        private final Extreme highestHigh;
+        private final Extreme lowestLow;
+
+        public StochasticK(int barCount){
+            this.highestHigh = new Extreme(barCount, true);
+            this.lowestLow = new Extreme(barCount, false);
+        }
+
+        public double next(double value, double high, double low){
+            double highest = highestHigh.next(high);
+            double lowest = lowestLow.next(low);
+            return IndicatorKernels.divide(value - lowest, highest - lowest) * 100;
+        }
+    }
+
+    /**
+     * Stochastic RSI (see {@link IndicatorKernels#stochasticRsi(double[], int)})
+     */
+    public static class StochasticRsi {
+
+        private final Rsi rsi;
+        private final Extreme highest;
+        private final Extreme lowest;
+
+        public StochasticRsi(int barCount){
+            this.rsi = new Rsi(barCount);
+            this.highest = new Extreme(barCount, true);
+            this.lowest = new Extreme(barCount, false);
+        }
+
+        public double next(double value){
+            double current = rsi.next(value);
+            double low = lowest.next(current);
+            return IndicatorKernels.divide(current - low, highest.next(current) - low);
+        }
+    }
+
+    /**
+     * Position of the value between the bollinger bands of the sma (see
+     * {@link IndicatorKernels#percentB(double[], int, double)})
+     */
+    public static class PercentB {
+
+        private final Sma sma;
+        private final StandardDeviation deviation;
+        private final double k;
+
+        public PercentB(int barCount, double k){
+            this.sma = new Sma(barCount);
+            this.deviation = new StandardDeviation(barCount);
+            this.k = k;
+        }
+
+        public double next(double value){
+            double middle = sma.next(value);
+            double sd = deviation.next(value);
+            double lower = middle - k * sd;
+            double upper = middle + k * sd;
+            return IndicatorKernels.divide(value - lower, upper - lower);
+        }
+    }
+
+    /**
+     * Commodity channel index (see {@link IndicatorKernels#cci(double[], int)}). The mean deviation needs all
+     * values of the window, so this stream needs <tt>barCount</tt> operations per bar.
+     */
+    public static class Cci {
+
+        private final Sma sma;
+        private final double[] window;
+        private int count;
+
+        public Cci(int barCount){
+            this.sma = new Sma(barCount);
+            this.window = new double[barCount];
+        }
+
+        public double next(double typicalPrice){
+            double mean = sma.next(typicalPrice);
+            window[count % window.length] = typicalPrice;
+            count++;
+            int size = Math.min(window.length, count);
+            double deviations = 0;
+            for(int i = 0; i < size; i++){
+                deviations += Math.abs(window[i] - mean);
+            }
+            double meanDeviation = deviations / size;
+            return meanDeviation == 0 ? 0 : (typicalPrice - mean) / (meanDeviation * 0.015);
+        }
+    }
+
+    /**
+     * Rate of change (see {@link IndicatorKernels#roc(double[], int)})
+     */
+    public static class Roc {
+
+        private final double[] window;
+        private int count;
+
+        public Roc(int barCount){
+            this.window = new double[barCount + 1];
+        }
+
+        public double next(double value){
+            int barCount = window.length - 1;
+            window[count % window.length] = value;
+            double previous = window[Math.max(0, count - barCount) % window.length];
+            count++;
+            return IndicatorKernels.divide(value - previous, previous) * 100;
+        }
+    }
+
+    /** Volatility ****************************************************************************************************/
+
+    /**
+     * True range (see {@link IndicatorKernels#trueRange(double[], double[], double[])})
+     */
+    public static class TrueRange {
+
+        private boolean first = true;
+        private double previousClose;
+
+        public double next(double high, double low, double close){
+            double range = Math.abs(high - low);
+            if(!first){
+                range = Math.max(range, Math.max(Math.abs(high - previousClose), Math.abs(previousClose - low)));
+            }
+            first = false;
+            previousClose = close;
+            return range;
+        }
+    }
+
+    /**
+     * Average true range (see {@link IndicatorKernels#atr(double[], double[], double[], int)})
+     */
+    public static class Atr {
+
+        private final TrueRange trueRange = new TrueRange();
+        private final Ema average;
+
+        public Atr(int barCount){
+            this.average = Ema.mma(barCount);
+        }
+
+        public double next(double high, double low, double close){
+            return average.next(trueRange.next(high, low, close));
+        }
+    }
+
+    /** Volume ********************************************************************************************************/
+
+    /**
+     * On balance volume (see {@link IndicatorKernels#onBalanceVolume(double[], double[])})
+     */
+    public static class OnBalanceVolume {
+
+        private boolean first = true;
+        private double previousClose;
+        private double value;
+
+        public double next(double close, double volume){
+            if(!first){
+                value += Math.signum(close - previousClose) * volume;
+            }
+            first = false;
+            previousClose = close;
+            return value;
+        }
+    }
+
+    /**
+     * Volume weighted average price (see {@link IndicatorKernels#vwap(double[], double[], int)})
+     */
+    public static class Vwap {
+
+        private final double[] priceVolumes;
+        private final double[] volumes;
+        private int count;
+        private double priceVolume;
+        private double volume;
+
+        public Vwap(int barCount){
+            this.priceVolumes = new double[barCount];
+            this.volumes = new double[barCount];
+        }
+
+        public double next(double typicalPrice, double volume){
+            int position = count % volumes.length;
+            if(count >= volumes.length){
+                this.priceVolume -= priceVolumes[position];
+                this.volume -= volumes[position];
+            }
+            priceVolumes[position] = typicalPrice * volume;
+            volumes[position] = volume;
+            this.priceVolume += priceVolumes[position];
+            this.volume += volume;
+            count++;
+            return count == 1 ? typicalPrice : IndicatorKernels.divide(this.priceVolume, this.volume);
+        }
+    }
+}
@@ -5,25 +5,27 @@ import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import org.sjwimmer.tacharting.chart.api.OHLCVDataSource;
-import org.sjwimmer.tacharting.chart.model.TaBarSeries;
+import org.sjwimmer.tacharting.chart.model.BarColumns;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
 import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
 import org.sjwimmer.tacharting.chart.model.types.TimeFormatType;
 import org.sjwimmer.tacharting.chart.model.types.YahooTimePeriod;
 import org.sjwimmer.tacharting.chart.parameters.Parameter;
 import org.sjwimmer.tacharting.implementation.model.api.key.CSVKey;
 import org.sjwimmer.tacharting.implementation.util.FormatUtils;
+import org.sjwimmer.tacharting.implementation.util.RowDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.Bar;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBarSeries;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
@@ -35,39 +37,40 @@ public class CSVConnector implements OHLCVDataSource<CSVKey, File> {
 
     private final Properties properties;
     private final Logger log = LoggerFactory.getLogger(CSVConnector.class);
-    
-    private List<String[]> lines = new ArrayList<>();
+
+    private File file;
     private String name;
     private int id;
     private Currency currency;
-    private DateTimeFormatter dateTimeFormatter;
-    boolean isDateTwoColumn;
 
     public CSVConnector(){
         properties = CsvSettingsManager.getProperties();
     }
 
+    /**
+     * Reads only the info line of the <tt>resource</tt>. The bar data is read (streamed) by the getSymbolData functions
+     * @param resource the csv file
+     * @return true if the info line could be read
+     */
     @Override
     public boolean connect(File resource){
-        String separator = properties.getProperty(Parameter.PROPERTY_CSV_SEPARATOR, ",");
-        String quote = properties.getProperty(Parameter.PROPERTY_CSV_QUOTE, "\\\\");
-        CSVParser parser = new CSVParserBuilder().withSeparator(separator.charAt(0)).withQuoteChar(quote.charAt(0)).build();
-        try(CSVReader reader = new CSVReaderBuilder(new FileReader(resource)).withCSVParser(parser).build();)
+        try(CSVReader reader = createReader(resource))
         {
-        	lines = reader.readAll();
-        	String[] infoLine = lines.get(0);
+        	String[] infoLine = reader.readNext();
+        	if(infoLine == null){
+        	    log.error("File {} is empty", resource);
+        	    return false;
+            }
 			name = infoLine[0];
 	        id = FormatUtils.extractInteger(infoLine[1]);
-	        isDateTwoColumn = id == TimeFormatType.yyyy_MM_ddHmsz.id;
-	        dateTimeFormatter = FormatUtils.getDateTimeFormatter(id);
 	        String currencyString = null;
 	        if(infoLine.length>2) {
-	            currencyString = infoLine[2].replaceAll("\\s", "");
+	            currencyString = infoLine[2].replaceAll("\\s", "").toUpperCase();
 	        }
 	        if(currencyString == null || currencyString.length() != 3)
 	            currencyString = Parameter.DEFAULT_CURRENCY;
 	        currency = Currency.getInstance(currencyString);
-	        lines.remove(0); // remove InfoLine
+	        file = resource;
 		} catch (FileNotFoundException e) {
 			log.error(e.getMessage());
 			e.printStackTrace();
@@ -80,6 +83,13 @@ public class CSVConnector implements OHLCVDataSource<CSVKey, File> {
         return true;
     }
 
+    private CSVReader createReader(File resource) throws FileNotFoundException {
+        String separator = properties.getProperty(Parameter.PROPERTY_CSV_SEPARATOR, ",");
+        String quote = properties.getProperty(Parameter.PROPERTY_CSV_QUOTE, Parameter.DEFAULT_CSV_QUOTE);
+        CSVParser parser = new CSVParserBuilder().withSeparator(separator.charAt(0)).withQuoteChar(quote.charAt(0)).build();
+        return new CSVReaderBuilder(new BufferedReader(new FileReader(resource))).withCSVParser(parser).build();
+    }
+
     /**
      * Reads a csv file with structure of yahoo api: No info line with name and timeFormatId, just header line and
      * {@link TimeFormatType timeFormat YAHOO}
@@ -88,23 +98,48 @@ public class CSVConnector implements OHLCVDataSource<CSVKey, File> {
      * @return the corresponding TimeSeries object
      * @throws IOException IOException
      */
-    public TaBarSeries getSeriesFromYahooFile(String name, File file) throws IOException{
-        CSVReader reader = new CSVReaderBuilder(new FileReader(file)).withCSVParser(new CSVParser()).build();
-        String line[];
-        line = reader.readNext();
+    public ChartBarSeries getSeriesFromYahooFile(String name, File file) throws IOException{
+        try(Reader reader = new BufferedReader(new FileReader(file))){
+            return getSeriesFromYahoo(name, reader);
+        }
+    }
+
+    /**
+     * Streams a csv response of the yahoo api (header line and {@link TimeFormatType timeFormat YAHOO}) into a
+     * {@link ColumnarBarSeries} (see {@link RowDecoder}). Rows with missing values ("null") are skipped.
+     * @param name the name of this symbol
+     * @param response the reader of the response body
+     * @return the corresponding TimeSeries object
+     * @throws IOException IOException
+     */
+    public ChartBarSeries getSeriesFromYahoo(String name, Reader response) throws IOException{
+        CSVReader reader = new CSVReaderBuilder(response).withCSVParser(new CSVParser()).build();
+        String[] line = reader.readNext();
+        if(line == null){
+            throw new IOException(String.format("Empty yahoo response for %s", name));
+        }
         Map<Parameter.Columns, Integer> headers = FormatUtils.getHeaderMap(Arrays.asList(line));
-        List<Bar> Bars = new ArrayList<>();
+        RowDecoder decoder = RowDecoder.compile(headers, TimeFormatType.YAHOO.id);
+        BarColumns columns = new BarColumns();
+        int skipped = 0;
         while((line = reader.readNext()) != null) {
-            Bars.add(FormatUtils.extractOHLCData(
-                    headers, DateTimeFormatter.ofPattern(TimeFormatType.YAHOO.pattern),line,false));
+            if(line.length <= decoder.getMaxIndex()){
+                skipped++;
+                continue;
+            }
+            try {
+                decoder.decode(line, Long.MIN_VALUE, Long.MAX_VALUE, columns);
+            } catch (NumberFormatException | DateTimeException e){
+                skipped++;
+            }
         }
-        reader.close();
-        if(Bars.get(Bars.size()-1).getEndTime().isBefore(Bars.get(0).getEndTime())){
-            Collections.reverse(Bars);
+        if(skipped > 0){
+            log.debug("Skipped {} incomplete rows of {}", skipped, name);
         }
-        String yahooIntervall = YahooSettingsManager.getProperties().getProperty(Parameter.PROPERTY_YAHOO_INTERVAL);
+        columns.ensureAscending();
+        String yahooIntervall = YahooSettingsManager.getProperties().getProperty(Parameter.PROPERTY_YAHOO_INTERVAL, "1d");
         GeneralTimePeriod timePeriod = YahooTimePeriod.of(yahooIntervall).generalTimePeriod;
-        return new TaBarSeries(name==null?"unnamed":name.toUpperCase(),Bars,Currency.getInstance("USD"),timePeriod);
+        return columns.toSeries(name==null?"unnamed":name.toUpperCase(), Currency.getInstance("USD"), timePeriod);
     }
 
 	@Override
@@ -112,36 +147,48 @@ public class CSVConnector implements OHLCVDataSource<CSVKey, File> {
 		return Arrays.asList(name);
 	}
 
+	/**
+	 * Streams the rows of the connected file into a {@link ColumnarBarSeries}. Only the date of rows outside of
+	 * <tt>from</tt> and <tt>to</tt> is parsed (see {@link RowDecoder}), no Bar objects are created and no lines are
+	 * kept in memory
+	 */
 	@Override
-	public TaBarSeries getSymbolData(CSVKey symbol, ZonedDateTime from, ZonedDateTime to) throws Exception {
-		List<Bar> bars = new ArrayList<>();
-		Map<Parameter.Columns, Integer> headers = FormatUtils.getHeaderMap(Arrays.asList(lines.get(0)));
-		lines.remove(0); // remove line with header columns
-		for(String[] line: lines) {
-			Bar bar = FormatUtils.extractOHLCData(headers, dateTimeFormatter,line, isDateTwoColumn);
-			if(!bar.getEndTime().isAfter(to) && !bar.getEndTime().isBefore(from)) {
-				bars.add(bar);
+	public ChartBarSeries getSymbolData(CSVKey symbol, ZonedDateTime from, ZonedDateTime to) throws Exception {
+		if(!isReady()){
+			throw new IllegalStateException("CSVConnector is not connected to a file");
+		}
+		long fromSecond = from.toEpochSecond();
+		long toSecond = to.toEpochSecond();
+		BarColumns columns = new BarColumns();
+		try(CSVReader reader = createReader(file)){
+			reader.readNext(); // skip info line
+			String[] line = reader.readNext();
+			if(line == null){
+				throw new IOException(String.format("No header line in file %s", file));
+			}
+			Map<Parameter.Columns, Integer> headers = FormatUtils.getHeaderMap(Arrays.asList(line));
+			RowDecoder decoder = RowDecoder.compile(headers, id);
+			while((line = reader.readNext()) != null){
+				decoder.decode(line, fromSecond, toSecond, columns);
 			}
 		}
-        if(bars.get(bars.size()-1).getEndTime().isBefore(bars.get(0).getEndTime())){
-            Collections.reverse(bars);
-        }
-	    BarSeries series = new BaseBarSeries(name==null?"unnamed":name.toUpperCase(), bars);
-        GeneralTimePeriod period =  FormatUtils.extractPeriod(series);
-        log.debug("Extracted period: "+period);
-	    return new TaBarSeries(series, currency, period);
+		columns.ensureAscending();
+		String seriesName = name==null?"unnamed":name.toUpperCase();
+		GeneralTimePeriod period = FormatUtils.extractPeriod(seriesName, columns.endTimes(), columns.size());
+		log.debug("Extracted period: "+period);
+		return columns.toSeries(seriesName, currency, period);
 	}
 
 	@Override
-	public TaBarSeries getSymbolData(CSVKey symbol) throws Exception {
-		return getSymbolData(symbol, ZonedDateTime.now().plusYears(1000), ZonedDateTime.now().minusYears(1000));
+	public ChartBarSeries getSymbolData(CSVKey symbol) throws Exception {
+		return getSymbolData(symbol, ZonedDateTime.now().minusYears(1000), ZonedDateTime.now().plusYears(1000));
 	}
 
 	@Override
-	public List<TaBarSeries> getSymbolData(List<CSVKey> symbols, ZonedDateTime from, ZonedDateTime to) throws Exception {
-		List<TaBarSeries> series = new ArrayList<>();
+	public List<ChartBarSeries> getSymbolData(List<CSVKey> symbols, ZonedDateTime from, ZonedDateTime to) throws Exception {
+		List<ChartBarSeries> series = new ArrayList<>();
 		for(CSVKey key: symbols) {
-			series.add(getSymbolData(key, ZonedDateTime.now().plusYears(1000), ZonedDateTime.now().minusYears(1000)));
+			series.add(getSymbolData(key, from, to));
 		}
 		return series;
 	}
@@ -149,7 +196,7 @@ public class CSVConnector implements OHLCVDataSource<CSVKey, File> {
 
 	@Override
 	public void disconnect() {
-		lines = new ArrayList<>();
+		file = null;
 		name = null;
 		currency = null;
 		
@@ -157,7 +204,7 @@ public class CSVConnector implements OHLCVDataSource<CSVKey, File> {
 
 	@Override
 	public boolean isReady() {
-		return name != null;
+		return file != null;
 	}
 
 }
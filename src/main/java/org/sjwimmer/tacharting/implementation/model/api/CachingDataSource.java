@@ -0,0 +1,485 @@
+package org.sjwimmer.tacharting.implementation.model.api;
+
+import org.sjwimmer.tacharting.chart.api.OHLCVDataSource;
+import org.sjwimmer.tacharting.chart.api.SQLConnector;
+import org.sjwimmer.tacharting.chart.model.BarColumns;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
+import org.sjwimmer.tacharting.chart.model.key.Key;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for the series of an {@link OHLCVDataSource} (the origin). A series is looked up in three tiers:
+ * <ol>
+ *     <li>an in-memory LRU cache of {@link ColumnarBarSeries}, bounded by the allocated bytes of the series</li>
+ *     <li>an optional local {@link SQLConnector} (e.g. the {@link SqlLiteConnector}), that stores all series that
+ *     have been requested from the origin</li>
+ *     <li>the origin data source</li>
+ * </ol>
+ * The cache remembers the range (from/to) that has been requested for a key. A request for a sub-range of that
+ * range is answered from the cache. For other requests only the missing ranges before and after the cached range
+ * are requested from the origin and merged with the cached bars (newly requested bars replace cached bars with the
+ * same end time), so the cached range of a key is always one contiguous range.
+ * The local database records the ranges that have been stored from the origin (see
+ * {@link SQLConnector#getStoredRanges(SQLKey)}). Only the gaps between these ranges are requested from the origin,
+ * bars that have been stored in another way do not count as covered.
+ * <p>
+ * A range is only recorded up to the time of the request, never into the future. The bars after a recorded range that
+ * are younger than the ttl are not requested again, so that the latest bars are requested at most once per ttl.
+ * <p>
+ * The keys of a file resource (like the default key of the {@link CSVConnector}) are cached per file, size and last
+ * modified time.
+ * @param <K> the key type of the origin
+ * @param <R> the resource type of the origin
+ */
+public class CachingDataSource<K extends Key, R> implements OHLCVDataSource<K, R> {
+
+    /** the range of {@link #getSymbolData(Key)}, the cached range ends with the time of the request */
+    private static final ZonedDateTime FIRST = ZonedDateTime.of(1000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final ZonedDateTime LAST = ZonedDateTime.of(3000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final Logger log = LoggerFactory.getLogger(CachingDataSource.class);
+    private final OHLCVDataSource<K, R> origin;
+    private final long maxBytes;
+    private final long ttl;
+    private final SQLConnector store;
+    private final Function<K, SQLKey> storeKeys;
+    /** cached series in access order */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private volatile String resourceId = "";
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an in-memory cache with the size of {@link Parameter#DATA_CACHE_SIZE} and the ttl of
+     * {@link Parameter#DATA_CACHE_TTL}
+     * @param origin the data source
+     */
+    public CachingDataSource(OHLCVDataSource<K, R> origin){
+        this(origin, Parameter.DATA_CACHE_SIZE * 1024 * 1024, Parameter.DATA_CACHE_TTL, null, null);
+    }
+
+    /**
+     * @param origin the data source
+     * @param maxBytes the maximal size (bytes) of the cached series in memory
+     * @param ttl the time (s) the bars up to the time of a request are used before the newer bars are requested
+     * @param store the local database for the series of the origin or null
+     * @param storeKeys the function that maps a key of the origin to the key of its series in the <tt>store</tt>,
+     *                  returns null for keys that are not stored
+     */
+    public CachingDataSource(OHLCVDataSource<K, R> origin, long maxBytes, long ttl, SQLConnector store,
+                             Function<K, SQLKey> storeKeys){
+        this.origin = origin;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.store = store;
+        this.storeKeys = storeKeys;
+    }
+
+    @Override
+    public List<String> getAllAvailableSymbols() throws Exception {
+        return origin.getAllAvailableSymbols();
+    }
+
+    @Override
+    public ChartBarSeries getSymbolData(K symbol, ZonedDateTime from, ZonedDateTime to) throws Exception {
+        long fromSecond = from.toEpochSecond();
+        long toSecond = to.toEpochSecond();
+        long now = Instant.now().getEpochSecond();
+        if(fromSecond > now){ // there are no bars to cache yet
+            misses.incrementAndGet();
+            return origin.getSymbolData(symbol, from, to);
+        }
+        String id = idOf(symbol);
+        Entry entry = get(id);
+        if(entry != null && entry.from <= fromSecond
+                && (Math.min(toSecond, now) <= entry.to || entry.to >= now - ttl)){
+            memoryHits.incrementAndGet();
+            return entry.slice(fromSecond, toSecond);
+        }
+        long rangeFrom = entry == null ? fromSecond : Math.min(entry.from, fromSecond);
+        long rangeTo = Math.min(now, entry == null ? toSecond : Math.max(entry.to, toSecond));
+        List<long[]> stored = storedRanges(symbol);
+        List<long[]> covered = new ArrayList<>(stored);
+        if(entry != null){
+            covered.add(new long[]{entry.from, entry.to});
+        }
+        List<long[]> gaps = gaps(rangeFrom, rangeTo, covered);
+        long[] edge = freshEdge(gaps, rangeFrom, rangeTo, now);
+        if(edge != null){
+            gaps.remove(edge);
+            rangeTo = edge[0] - 1;
+        }
+        // the bars of the memory may not have been stored yet, they are merged with the stored bars
+        List<ChartBarSeries> bars = new ArrayList<>();
+        ChartBarSeries loaded = stored.isEmpty() ? null : load(symbol, rangeFrom, rangeTo);
+        if(loaded != null){
+            bars.add(loaded);
+        }
+        if(gaps.isEmpty()){
+            Entry merged = merge(entry, bars, rangeFrom, rangeTo);
+            if(merged != null){
+                storeHits.incrementAndGet();
+                put(id, merged);
+                return merged.slice(fromSecond, toSecond);
+            }
+            gaps = Collections.singletonList(new long[]{fromSecond, rangeTo}); // no bars at all, ask the origin
+        }
+        misses.incrementAndGet();
+        List<ChartBarSeries> requested = new ArrayList<>(gaps.size());
+        for(long[] gap: gaps){
+            requested.add(origin.getSymbolData(symbol, toTime(gap[0]), toTime(gap[1])));
+        }
+        List<ChartBarSeries> all = new ArrayList<>(requested);
+        all.addAll(bars);
+        Entry merged = merge(entry, all, rangeFrom, rangeTo);
+        if(merged == null){ // nothing to cache
+            return requested.get(0);
+        }
+        put(id, merged);
+        save(symbol, requested, gaps);
+        return merged.slice(fromSecond, toSecond);
+    }
+
+    @Override
+    public ChartBarSeries getSymbolData(K symbol) throws Exception {
+        return getSymbolData(symbol, FIRST, LAST);
+    }
+
+    /**
+     * Answers the <tt>symbols</tt> from the cache. The symbols that are not cached at all are requested with one
+     * call of the origin (see {@link OHLCVDataSource#getSymbolData(List, ZonedDateTime, ZonedDateTime)})
+     */
+    @Override
+    public List<ChartBarSeries> getSymbolData(List<K> symbols, ZonedDateTime from, ZonedDateTime to) throws Exception {
+        long fromSecond = from.toEpochSecond();
+        long now = Instant.now().getEpochSecond();
+        long toSecond = Math.min(to.toEpochSecond(), now);
+        List<K> missing = new ArrayList<>();
+        for(K symbol: symbols){
+            String id = idOf(symbol);
+            if(fromSecond > now || get(id) != null || containsKey(missing, id)){
+                continue;
+            }
+            List<long[]> gaps = gaps(fromSecond, toSecond, storedRanges(symbol));
+            if(gaps.size() > 1 || (gaps.size() == 1 && freshEdge(gaps, fromSecond, toSecond, now) == null)){
+                missing.add(symbol);
+            }
+        }
+        Map<String, ChartBarSeries> requested = new HashMap<>();
+        if(!missing.isEmpty()){
+            misses.addAndGet(missing.size());
+            List<ChartBarSeries> series = origin.getSymbolData(missing, from, to);
+            for(int i = 0; i < missing.size(); i++){
+                K symbol = missing.get(i);
+                String id = idOf(symbol);
+                Entry entry = merge(null, Collections.singletonList(series.get(i)), fromSecond, toSecond);
+                if(entry != null){
+                    put(id, entry);
+                    save(symbol, Collections.singletonList(series.get(i)),
+                            Collections.singletonList(new long[]{fromSecond, toSecond}));
+                }
+                requested.put(id, series.get(i));
+            }
+        }
+        List<ChartBarSeries> result = new ArrayList<>(symbols.size());
+        for(K symbol: symbols){
+            ChartBarSeries series = requested.get(idOf(symbol));
+            result.add(series != null ? series : getSymbolData(symbol, from, to));
+        }
+        return result;
+    }
+
+    /**
+     * Connects the origin. The cached series of other resources are kept
+     */
+    @Override
+    public boolean connect(R resource) {
+        boolean connected = origin.connect(resource);
+        resourceId = resource instanceof File
+                ? String.format("%s:%d:%d", ((File) resource).getAbsolutePath(), ((File) resource).length(),
+                        ((File) resource).lastModified())
+                : String.valueOf(resource);
+        return connected;
+    }
+
+    @Override
+    public void disconnect() {
+        origin.disconnect();
+    }
+
+    @Override
+    public boolean isReady() {
+        return origin.isReady();
+    }
+
+    /**
+     * Removes all series from the memory (not from the local database)
+     */
+    public synchronized void clear(){
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return the number of requests that have been answered from the memory
+     */
+    public long getMemoryHits(){
+        return memoryHits.get();
+    }
+
+    /**
+     * @return the number of requests that have been answered from the local database
+     */
+    public long getStoreHits(){
+        return storeHits.get();
+    }
+
+    /**
+     * @return the number of requests that needed (a part of) the series from the origin
+     */
+    public long getMisses(){
+        return misses.get();
+    }
+
+    /**
+     * @return the size (bytes) of the cached series in memory
+     */
+    public synchronized long getSize(){
+        return bytes;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%d memory hits, %d store hits, %d misses, %d kB cached", memoryHits.get(), storeHits.get(),
+                misses.get(), getSize() / 1024);
+    }
+
+    private String idOf(K symbol){
+        SQLKey key = storeKeys != null ? storeKeys.apply(symbol) : null;
+        return resourceId + "|" + symbol.getClass().getSimpleName() + "|"
+                + (key != null ? String.format("%s|%s|%s", key.period, key.symbol, key.currency) : symbol.toString());
+    }
+
+    private boolean containsKey(List<K> symbols, String id){
+        for(K symbol: symbols){
+            if(idOf(symbol).equals(id)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Entry get(String id){
+        return entries.get(id);
+    }
+
+    private synchronized void put(String id, Entry entry){
+        Entry old = entries.put(id, entry);
+        if(old != null){
+            bytes -= old.bytes;
+        }
+        bytes += entry.bytes;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while(bytes > maxBytes && iterator.hasNext()){
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.getValue().bytes;
+            log.debug("Evicted {} from the cache", eldest.getKey());
+        }
+    }
+
+    /**
+     * @return the ranges of the <tt>symbol</tt> that have been stored completely in the local database
+     */
+    private List<long[]> storedRanges(K symbol){
+        SQLKey key = store != null && storeKeys != null ? storeKeys.apply(symbol) : null;
+        if(key == null){
+            return Collections.emptyList();
+        }
+        try {
+            return store.getStoredRanges(key);
+        } catch (Exception e){
+            log.error("Could not read the stored ranges of {}: {}", key, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return the parts of [<tt>fromSecond</tt>, <tt>toSecond</tt>] that are not contained in one of the
+     * <tt>covered</tt> ranges, in ascending order
+     */
+    static List<long[]> gaps(long fromSecond, long toSecond, List<long[]> covered){
+        List<long[]> ranges = new ArrayList<>(covered);
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> gaps = new ArrayList<>();
+        long next = fromSecond;
+        for(long[] range: ranges){
+            if(range[0] > next){
+                gaps.add(new long[]{next, Math.min(range[0] - 1, toSecond)});
+                if(range[0] > toSecond){
+                    return gaps;
+                }
+            }
+            if(range[1] >= toSecond){
+                return gaps;
+            }
+            next = Math.max(next, range[1] + 1);
+        }
+        gaps.add(new long[]{next, toSecond});
+        return gaps;
+    }
+
+    /**
+     * @return the last of the <tt>gaps</tt> of [<tt>fromSecond</tt>, <tt>toSecond</tt>] if it follows a covered range
+     * that ends within the ttl before <tt>now</tt>, or null
+     */
+    private long[] freshEdge(List<long[]> gaps, long fromSecond, long toSecond, long now){
+        if(gaps.isEmpty()){
+            return null;
+        }
+        long[] last = gaps.get(gaps.size() - 1);
+        return last[1] == toSecond && last[0] > fromSecond && last[0] - 1 >= now - ttl ? last : null;
+    }
+
+    /**
+     * Reads the bars of the range from the local database
+     * @return the stored bars or null if there is no stored bar in the range
+     */
+    private ChartBarSeries load(K symbol, long fromSecond, long toSecond){
+        SQLKey key = storeKeys.apply(symbol);
+        try {
+            ChartBarSeries series = store.getSymbolData(key, toTime(fromSecond), toTime(toSecond));
+            return series.isEmpty() ? null : series;
+        } catch (Exception e){
+            log.error("Could not read {} from the local database: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the series that have been requested from the origin for the <tt>ranges</tt> in the local database (in
+     * the background)
+     */
+    private void save(K symbol, List<ChartBarSeries> requested, List<long[]> ranges){
+        if(store == null || storeKeys == null || storeKeys.apply(symbol) == null){
+            return;
+        }
+        for(int i = 0; i < requested.size(); i++){
+            ChartBarSeries series = requested.get(i);
+            if(series == null){
+                continue;
+            }
+            try {
+                store.insertDataAsync(series, true, ranges.get(i)[0], ranges.get(i)[1]).exceptionally(t -> {
+                    log.error("Could not store {} in the local database: {}", series.getName(), t.getMessage());
+                    return null;
+                });
+            } catch (Exception e){
+                log.error("Could not store {} in the local database: {}", series.getName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Merges the cached bars with the requested bars, the requested bars replace cached bars with the same end time
+     * @return the merged entry with the union of the ranges or null if there are no bars at all
+     */
+    private static Entry merge(Entry cached, List<ChartBarSeries> requested, long fromSecond, long toSecond){
+        ChartBarSeries template = null;
+        BarColumns columns = new BarColumns();
+        for(ChartBarSeries series: requested){
+            if(series == null || series.isEmpty()){
+                continue;
+            }
+            template = series;
+            addAll(columns, toColumnar(series));
+        }
+        if(cached != null){
+            template = template == null ? cached.series : template;
+            addAll(columns, cached.series);
+        }
+        if(template == null){
+            return null;
+        }
+        ColumnarBarSeries series = columns.toSeries(template.getName(), template.getCurrency(),
+                template.getTimeFormatType());
+        return new Entry(series, cached == null ? fromSecond : Math.min(cached.from, fromSecond),
+                cached == null ? toSecond : Math.max(cached.to, toSecond));
+    }
+
+    private static void addAll(BarColumns columns, ColumnarBarSeries series){
+        for(int i = series.getBeginIndex(); i <= series.getEndIndex() && i >= 0; i++){
+            columns.add(series.getEndEpochSecond(i), series.getOpen(i), series.getHigh(i), series.getLow(i),
+                    series.getClose(i), series.getVolume(i));
+        }
+    }
+
+    private static ColumnarBarSeries toColumnar(ChartBarSeries series){
+        return series instanceof ColumnarBarSeries
+                ? (ColumnarBarSeries) series
+                : new ColumnarBarSeries(series, series.getCurrency(), series.getTimeFormatType());
+    }
+
+    private static ZonedDateTime toTime(long epochSecond){
+        return Instant.ofEpochSecond(epochSecond).atZone(ZoneOffset.UTC);
+    }
+
+    /**
+     * The cached bars of one key and the range that has been requested for them
+     */
+    private static class Entry {
+
+        final ColumnarBarSeries series;
+        final long from;
+        final long to;
+        final long bytes;
+
+        Entry(ColumnarBarSeries series, long from, long to){
+            this.series = series;
+            this.from = from;
+            this.to = to;
+            this.bytes = series.getAllocatedBytes();
+        }
+
+        /**
+         * @return a copy of the bars with an end time between <tt>fromSecond</tt> and <tt>toSecond</tt> (inclusive)
+         */
+        ChartBarSeries slice(long fromSecond, long toSecond){
+            BarColumns columns = new BarColumns();
+            int low = series.getBeginIndex();
+            int high = series.getEndIndex();
+            while(low <= high){ // first bar with endTime >= fromSecond
+                int middle = (low + high) >>> 1;
+                if(series.getEndEpochSecond(middle) < fromSecond){
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            for(int i = low; i <= series.getEndIndex() && i >= 0; i++){
+                long endTime = series.getEndEpochSecond(i);
+                if(endTime > toSecond){
+                    break;
+                }
+                columns.add(endTime, series.getOpen(i), series.getHigh(i), series.getLow(i), series.getClose(i),
+                        series.getVolume(i));
+            }
+            return columns.toSeries(series.getName(), series.getCurrency(), series.getTimeFormatType());
+        }
+    }
+}
@@ -178,7 +178,7 @@ public class CsvSettingsManager {
             separator = new SimpleStringProperty(getProperties()
                     .getProperty(Parameter.PROPERTY_CSV_SEPARATOR, String.valueOf(CSVParser.DEFAULT_SEPARATOR)));
             quote = new SimpleStringProperty(getProperties()
-                    .getProperty(Parameter.PROPERTY_CSV_QUOTE, String.valueOf(CSVParser.DEFAULT_ESCAPE_CHARACTER)));
+                    .getProperty(Parameter.PROPERTY_CSV_QUOTE, Parameter.DEFAULT_CSV_QUOTE));
         }
 
         public void save(){
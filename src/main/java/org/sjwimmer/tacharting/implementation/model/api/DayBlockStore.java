@@ -0,0 +1,375 @@
+package org.sjwimmer.tacharting.implementation.model.api;
+
+import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
+import org.sjwimmer.tacharting.implementation.model.api.SqlLiteConnectionManager.PooledConnection;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Compact layout for dense intraday tables: all bars of one symbol and (UTC) day are stored in one row as a
+ * delta-encoded blob instead of one row per bar.
+ * <pre>
+ *     Table &lt;period&gt;_BLOCKS:
+ *         (Symbol VARCHAR (50),
+ *         Currency VARCHAR (3),
+ *         Day INTEGER,    -- epoch day
+ *         Count INTEGER,  -- number of bars in the block
+ *         Data BLOB,
+ *         PRIMARY KEY (Symbol, Currency, Day))
+ * </pre>
+ * A block starts with the format version, the number of bars and the volume encoding followed by the bars. For each
+ * bar the date (delta to the previous date of the block), the open price (delta to the previous close), the high,
+ * low and close price (delta to the open price) and the volume (delta to the previous volume, or the raw double
+ * value if not all volumes are integers) are stored as zig-zag encoded variable length integers. Minute bars need
+ * about 8 to 12 bytes instead of a table row and an index entry.
+ */
+public class DayBlockStore {
+
+    private static final long SECONDS_PER_DAY = 86400;
+    private static final byte VERSION = 1;
+    private static final byte VOLUME_DELTA = 0;
+    private static final byte VOLUME_RAW = 1;
+
+    /**
+     * @param period the period of the time series
+     * @return the name of the block table for the <tt>period</tt>
+     */
+    public static String tableOf(GeneralTimePeriod period){
+        return period + "_BLOCKS";
+    }
+
+    static String createTableStatement(GeneralTimePeriod period){
+        return String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                "Symbol VARCHAR (50), " +
+                "Currency VARCHAR (3), " +
+                "Day INTEGER, " +
+                "Count INTEGER, " +
+                "Data BLOB, " +
+                "PRIMARY KEY (Symbol, Currency, Day));", tableOf(period));
+    }
+
+    /**
+     * Reads the bars of the blocks between <tt>from</tt> and <tt>to</tt> (inclusive) in ascending order
+     */
+    public void read(PooledConnection con, String symbol, String currency, GeneralTimePeriod period,
+                     long from, long to, ScaledRowHandler handler) throws SQLException {
+        if(from > to){
+            return;
+        }
+        PreparedStatement statement = con.prepare(String.format("SELECT Data FROM %s " +
+                "WHERE Symbol = ? AND Currency = ? AND Day >= ? AND Day <= ? ORDER BY Day ASC", tableOf(period)));
+        statement.setString(1, symbol);
+        statement.setString(2, currency);
+        statement.setLong(3, Math.floorDiv(from, SECONDS_PER_DAY));
+        statement.setLong(4, Math.floorDiv(to, SECONDS_PER_DAY));
+        try(ResultSet rset = statement.executeQuery()){
+            while(rset.next()){
+                decode(rset.getBytes(1), (date, open, high, low, close, volume) -> {
+                    if(date >= from && date <= to){
+                        handler.row(date, open, high, low, close, volume);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Reads the first or last bar of the first or last block
+     * @param last true for the last bar, false for the first bar
+     * @return true if there is a stored bar
+     */
+    public boolean readBoundary(PooledConnection con, String symbol, String currency, GeneralTimePeriod period,
+                                boolean last, ScaledRowHandler handler) throws SQLException {
+        String table = tableOf(period);
+        PreparedStatement statement = con.prepare(String.format("SELECT Data FROM %1$s " +
+                "WHERE Symbol = ? AND Currency = ? AND Day = (SELECT %2$s(Day) FROM %1$s WHERE Symbol = ? AND Currency = ?)",
+                table, last ? "MAX" : "MIN"));
+        statement.setString(1, symbol);
+        statement.setString(2, currency);
+        statement.setString(3, symbol);
+        statement.setString(4, currency);
+        try(ResultSet rset = statement.executeQuery()){
+            if(!rset.next()){
+                return false;
+            }
+            Rows rows = new Rows(16);
+            decode(rset.getBytes(1), rows::add);
+            if(rows.size == 0){
+                return false;
+            }
+            int i = last ? rows.size - 1 : 0;
+            handler.row(rows.dates[i], rows.open[i], rows.high[i], rows.low[i], rows.close[i], rows.volume[i]);
+            return true;
+        }
+    }
+
+    /**
+     * Merges the <tt>rows</tt> into the stored blocks. Must be called with the write connection.
+     * @param rows bars in ascending order of their dates
+     * @param replace if true stored bars with the same date are replaced, otherwise the stored bars are kept
+     * @return the number of written blocks
+     */
+    public int write(PooledConnection con, String symbol, String currency, GeneralTimePeriod period,
+                     Rows rows, boolean replace) throws SQLException {
+        String table = tableOf(period);
+        PreparedStatement select = con.prepare(String.format(
+                "SELECT Data FROM %s WHERE Symbol = ? AND Currency = ? AND Day = ?", table));
+        PreparedStatement insert = con.prepare(String.format(
+                "INSERT OR REPLACE INTO %s (Symbol, Currency, Day, Count, Data) VALUES(?, ?, ?, ?, ?)", table));
+        select.setString(1, symbol);
+        select.setString(2, currency);
+        insert.setString(1, symbol);
+        insert.setString(2, currency);
+        int blocks = 0;
+        for(int start = 0; start < rows.size;){
+            long day = Math.floorDiv(rows.dates[start], SECONDS_PER_DAY);
+            int end = start;
+            while(end < rows.size && Math.floorDiv(rows.dates[end], SECONDS_PER_DAY) == day){
+                end++;
+            }
+            Rows stored = new Rows(end - start);
+            select.setLong(3, day);
+            try(ResultSet rset = select.executeQuery()){
+                if(rset.next()){
+                    decode(rset.getBytes(1), stored::add);
+                }
+            }
+            Rows merged = Rows.merge(stored, rows, start, end, replace);
+            insert.setLong(3, day);
+            insert.setInt(4, merged.size);
+            insert.setBytes(5, encode(merged));
+            insert.executeUpdate();
+            blocks++;
+            start = end;
+        }
+        return blocks;
+    }
+
+    /**
+     * Removes all blocks of the symbol
+     * @return true if a block has been removed
+     */
+    public boolean remove(PooledConnection con, String symbol, String currency, GeneralTimePeriod period) throws SQLException {
+        PreparedStatement statement = con.prepare(String.format(
+                "DELETE FROM %s WHERE Symbol = ? AND Currency = ?", tableOf(period)));
+        statement.setString(1, symbol);
+        statement.setString(2, currency);
+        return statement.executeUpdate() > 0;
+    }
+
+    static byte[] encode(Rows rows){
+        boolean integralVolume = true;
+        for(int i = 0; i < rows.size && integralVolume; i++){
+            double v = rows.volume[i];
+            integralVolume = v == Math.rint(v) && Math.abs(v) < 0x1p53;
+        }
+        Encoder out = new Encoder(rows.size * 12 + 16);
+        out.put(VERSION);
+        out.putVarLong(rows.size);
+        out.put(integralVolume ? VOLUME_DELTA : VOLUME_RAW);
+        long previousDate = 0;
+        long previousClose = 0;
+        long previousVolume = 0;
+        for(int i = 0; i < rows.size; i++){
+            long open = rows.open[i];
+            out.putZigZag(rows.dates[i] - previousDate);
+            out.putZigZag(open - previousClose);
+            out.putZigZag(rows.high[i] - open);
+            out.putZigZag(rows.low[i] - open);
+            out.putZigZag(rows.close[i] - open);
+            if(integralVolume){
+                long volume = (long) rows.volume[i];
+                out.putZigZag(volume - previousVolume);
+                previousVolume = volume;
+            } else {
+                out.putLong(Double.doubleToRawLongBits(rows.volume[i]));
+            }
+            previousDate = rows.dates[i];
+            previousClose = rows.close[i];
+        }
+        return out.toByteArray();
+    }
+
+    static void decode(byte[] data, ScaledRowHandler handler) throws SQLException {
+        Decoder in = new Decoder(data);
+        if(in.get() != VERSION){
+            throw new SQLException("Unknown block format version " + data[0]);
+        }
+        int count = (int) in.getVarLong();
+        boolean integralVolume = in.get() == VOLUME_DELTA;
+        long date = 0;
+        long previousClose = 0;
+        long previousVolume = 0;
+        for(int i = 0; i < count; i++){
+            date += in.getZigZag();
+            long open = previousClose + in.getZigZag();
+            long high = open + in.getZigZag();
+            long low = open + in.getZigZag();
+            long close = open + in.getZigZag();
+            double volume;
+            if(integralVolume){
+                previousVolume += in.getZigZag();
+                volume = previousVolume;
+            } else {
+                volume = Double.longBitsToDouble(in.getLong());
+            }
+            handler.row(date, open, high, low, close, volume);
+            previousClose = close;
+        }
+    }
+
+    /**
+     * Growable columns of bars with scaled prices
+     */
+    public static class Rows {
+
+        long[] dates;
+        long[] open;
+        long[] high;
+        long[] low;
+        long[] close;
+        double[] volume;
+        int size;
+
+        public Rows(int capacity){
+            int c = Math.max(capacity, 16);
+            dates = new long[c];
+            open = new long[c];
+            high = new long[c];
+            low = new long[c];
+            close = new long[c];
+            volume = new double[c];
+        }
+
+        public void add(long date, long o, long h, long l, long c, double v){
+            if(size == dates.length){
+                int capacity = size + (size >> 1) + 1;
+                dates = Arrays.copyOf(dates, capacity);
+                open = Arrays.copyOf(open, capacity);
+                high = Arrays.copyOf(high, capacity);
+                low = Arrays.copyOf(low, capacity);
+                close = Arrays.copyOf(close, capacity);
+                volume = Arrays.copyOf(volume, capacity);
+            }
+            dates[size] = date;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            size++;
+        }
+
+        public int size(){
+            return size;
+        }
+
+        /**
+         * Merges the sorted <tt>stored</tt> rows with the sorted rows [start, end) of <tt>added</tt>
+         */
+        static Rows merge(Rows stored, Rows added, int start, int end, boolean replace){
+            Rows merged = new Rows(stored.size + end - start);
+            int i = 0;
+            int j = start;
+            while(i < stored.size || j < end){
+                if(j == end || (i < stored.size && stored.dates[i] < added.dates[j])){
+                    merged.copy(stored, i++);
+                } else if(i == stored.size || added.dates[j] < stored.dates[i]){
+                    merged.copy(added, j++);
+                } else {
+                    merged.copy(replace ? added : stored, replace ? j : i);
+                    i++;
+                    j++;
+                }
+            }
+            return merged;
+        }
+
+        private void copy(Rows other, int i){
+            if(size > 0 && dates[size - 1] == other.dates[i]){
+                return; // duplicate date in the added rows
+            }
+            add(other.dates[i], other.open[i], other.high[i], other.low[i], other.close[i], other.volume[i]);
+        }
+    }
+
+    private static class Encoder {
+
+        private byte[] buffer;
+        private int position;
+
+        Encoder(int capacity){
+            buffer = new byte[capacity];
+        }
+
+        void put(byte b){
+            if(position == buffer.length){
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[position++] = b;
+        }
+
+        void putVarLong(long value){
+            while((value & ~0x7FL) != 0){
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        void putZigZag(long value){
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void putLong(long value){
+            for(int shift = 56; shift >= 0; shift -= 8){
+                put((byte) (value >>> shift));
+            }
+        }
+
+        byte[] toByteArray(){
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static class Decoder {
+
+        private final byte[] buffer;
+        private int position;
+
+        Decoder(byte[] buffer){
+            this.buffer = buffer;
+        }
+
+        byte get(){
+            return buffer[position++];
+        }
+
+        long getVarLong(){
+            long value = 0;
+            for(int shift = 0; ; shift += 7){
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if(b >= 0){
+                    return value;
+                }
+            }
+        }
+
+        long getZigZag(){
+            long value = getVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long getLong(){
+            long value = 0;
+            for(int i = 0; i < 8; i++){
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+    }
+}
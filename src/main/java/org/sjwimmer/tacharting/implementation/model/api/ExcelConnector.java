@@ -1,132 +1,305 @@
 package org.sjwimmer.tacharting.implementation.model.api;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.sjwimmer.tacharting.chart.api.OHLCVDataSource;
-import org.sjwimmer.tacharting.chart.model.TaBarSeries;
+import org.sjwimmer.tacharting.chart.model.BarColumns;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
 import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
 import org.sjwimmer.tacharting.chart.model.types.TimeFormatType;
 import org.sjwimmer.tacharting.chart.parameters.Parameter;
 import org.sjwimmer.tacharting.implementation.model.api.key.ExcelKey;
 import org.sjwimmer.tacharting.implementation.util.FormatUtils;
+import org.sjwimmer.tacharting.implementation.util.RowDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.Bar;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBarSeries;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
- * Connector class for reading financial data from excel files
+ * Connector class for reading financial data from excel files (.xlsx). The first sheet of the workbook is read
+ * with the event (SAX) api of POI row by row, so the memory usage does not depend on the number of rows.
+ * @apiNote the first row must contain the name, the {@link TimeFormatType} id and the currency, the second row
+ * the header descriptions. Cells can be numeric (dates as excel date values) or string cells.
  */
 public class ExcelConnector implements OHLCVDataSource<ExcelKey, File> {
 
 	private final static Logger log = LoggerFactory.getLogger(ExcelConnector.class);
-	Iterator<Row> rowIterator;
+	private final static DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+	private final static DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("H:m:s");
+
+	private File file;
     private String name;
     private int id;
     private Currency currency;
-    private DateTimeFormatter dateTimeFormatter;
-    boolean isDateTwoColumn;
-    
+
+    /**
+     * Reads only the info row of the first sheet. The bar data is read by the getSymbolData functions
+     * @param resource the .xlsx file
+     * @return true if the info row could be read
+     */
     @Override
     public boolean connect(File resource) {
-        
-		try 
-		(	FileInputStream inputStream = new FileInputStream(resource);
-			Workbook wb = new XSSFWorkbook(inputStream);
-		){
-	        Sheet sheet = wb.getSheetAt(0);
-	        sheet.rowIterator();
-	        // first row with name and time ofFormat
-	        Row infoRow = rowIterator.next();
-	        name = infoRow.getCell(0).getStringCellValue();
-	        String timeFormat = infoRow.getCell(1).getStringCellValue();
-	        id =FormatUtils.extractInteger(timeFormat);
-	        isDateTwoColumn = id== TimeFormatType.yyyy_MM_ddHmsz.id;
-	        dateTimeFormatter = FormatUtils.getDateTimeFormatter(id);
-	        String currencyString = infoRow.getCell(2).getStringCellValue().replaceAll("\\s","").toUpperCase();
-	        if(currencyString==null){
-	            currencyString = Parameter.DEFAULT_CURRENCY;
-	        }
-		        currency = Currency.getInstance(currencyString);
-			} catch (IOException e) {
-				log.error("Error connecting with .xls file: " + e.getMessage());
-				e.printStackTrace();
+		try{
+			InfoRowHandler handler = new InfoRowHandler();
+			readFirstSheet(resource, handler);
+			if(handler.infoRow.size() < 2){
+				log.error("Excel file {} has no valid info row", resource);
 				return false;
 			}
-			return true;
+	        name = handler.infoRow.get(0);
+	        id = FormatUtils.extractInteger(handler.infoRow.get(1));
+	        String currencyString = null;
+	        if(handler.infoRow.size() > 2) {
+	            currencyString = handler.infoRow.get(2).replaceAll("\\s", "").toUpperCase();
+	        }
+	        if(currencyString == null || currencyString.length() != 3){
+	            currencyString = Parameter.DEFAULT_CURRENCY;
+	        }
+	        currency = Currency.getInstance(currencyString);
+	        file = resource;
+		} catch (Exception e) {
+			log.error("Error connecting with excel file: " + e.getMessage());
+			e.printStackTrace();
+			return false;
+		}
+		return true;
     }
 
 	@Override
 	public List<String> getAllAvailableSymbols() throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+		return Arrays.asList(name);
 	}
 
 	@Override
-	public TaBarSeries getSymbolData(ExcelKey symbol, ZonedDateTime from, ZonedDateTime to) throws Exception {
-		 // second row with header description
-        Row infoRow = rowIterator.next();
-        Iterator<Cell> cellIterator = infoRow.cellIterator();
-        ArrayList<String> headerLine = new ArrayList<>();
-        while (cellIterator.hasNext()){
-            Cell cell = cellIterator.next();
-            headerLine.add(cell.getStringCellValue());
-        }
-
-        Map<Parameter.Columns, Integer> headerMap = FormatUtils.getHeaderMap(headerLine);
-        List<Bar> ticks = new ArrayList<>();
-        while (rowIterator.hasNext()){
-            Row row = rowIterator.next();
-            cellIterator = row.cellIterator();
-            ArrayList<String> list = new ArrayList<>();
-            while(cellIterator.hasNext()){
-                list.add(cellIterator.next().getStringCellValue());
-            }
-            
-            Bar tick = FormatUtils.extractOHLCData(headerMap,dateTimeFormatter,list.toArray(new String[list.size()]),isDateTwoColumn);
-            ticks.add(tick);
-        }
-        if(ticks.get(ticks.size()-1).getEndTime().isBefore(ticks.get(0).getEndTime())){
-            Collections.reverse(ticks);
-        }
-        BarSeries series = new BaseBarSeries(name==null?"unnamed":name,ticks);
-        GeneralTimePeriod period = FormatUtils.extractPeriod(series);
-        return new TaBarSeries(series,currency,period);
+	public ChartBarSeries getSymbolData(ExcelKey symbol, ZonedDateTime from, ZonedDateTime to) throws Exception {
+		if(!isReady()){
+			throw new IllegalStateException("ExcelConnector is not connected to a file");
+		}
+		DataRowHandler handler = new DataRowHandler(from.toEpochSecond(), to.toEpochSecond());
+		readFirstSheet(file, handler);
+		BarColumns columns = handler.columns;
+		columns.ensureAscending();
+		String seriesName = name==null?"unnamed":name;
+		GeneralTimePeriod period = FormatUtils.extractPeriod(seriesName, columns.endTimes(), columns.size());
+		return columns.toSeries(seriesName, currency, period);
 	}
 
 	@Override
-	public TaBarSeries getSymbolData(ExcelKey symbol) throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+	public ChartBarSeries getSymbolData(ExcelKey symbol) throws Exception {
+		return getSymbolData(symbol, ZonedDateTime.now().minusYears(1000), ZonedDateTime.now().plusYears(1000));
 	}
 
 	@Override
-	public List<TaBarSeries> getSymbolData(List<ExcelKey> symbols, ZonedDateTime from, ZonedDateTime to)
+	public List<ChartBarSeries> getSymbolData(List<ExcelKey> symbols, ZonedDateTime from, ZonedDateTime to)
 			throws Exception {
-		// TODO Auto-generated method stub
-		return null;
+		List<ChartBarSeries> series = new ArrayList<>();
+		for(ExcelKey key: symbols) {
+			series.add(getSymbolData(key, from, to));
+		}
+		return series;
 	}
 
 	@Override
 	public void disconnect() {
-		// TODO Auto-generated method stub
-		
+		file = null;
+		name = null;
+		currency = null;
 	}
 
 	@Override
 	public boolean isReady() {
-		// TODO Auto-generated method stub
-		return false;
+		return file != null;
+	}
+
+	/**
+	 * Parses the first sheet of the workbook with the <tt>handler</tt> until the end of the sheet or until the
+	 * handler throws a {@link StopReading}
+	 */
+	private static void readFirstSheet(File resource, SheetHandler handler) throws Exception {
+		try(OPCPackage pkg = OPCPackage.open(resource, PackageAccess.READ)){
+			XSSFReader reader = new XSSFReader(pkg);
+			XMLReader parser = XMLHelper.newXMLReader();
+			parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), reader.getSharedStringsTable(),
+					handler, handler.formatter, false));
+			Iterator<InputStream> sheets = reader.getSheetsData();
+			if(!sheets.hasNext()){
+				throw new IllegalArgumentException(String.format("Excel file %s has no sheet", resource));
+			}
+			try(InputStream sheet = sheets.next()){
+				parser.parse(new InputSource(sheet));
+			} catch (StopReading stop){
+				// all needed rows have been read
+			}
+		}
+	}
+
+	/**
+	 * Thrown by a handler to stop reading the sheet
+	 */
+	private static class StopReading extends RuntimeException {
+		StopReading(){
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Formats numeric cells with their raw value instead of the cell format of the workbook. The last date value
+	 * is stored, so that the handler can format it for the column it belongs to.
+	 */
+	private static class RawValueFormatter extends DataFormatter {
+
+		private LocalDateTime lastDate;
+
+		@Override
+		public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+			if(DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)){
+				lastDate = DateUtil.getLocalDateTime(value, use1904Windowing);
+				return lastDate.toString();
+			}
+			lastDate = null;
+			if(value == Math.rint(value) && Math.abs(value) < 1e15){
+				return Long.toString((long) value);
+			}
+			return Double.toString(value);
+		}
+
+		/**
+		 * @return the date of the last formatted cell or null if it was no date cell
+		 */
+		LocalDateTime pollDate(){
+			LocalDateTime date = lastDate;
+			lastDate = null;
+			return date;
+		}
+	}
+
+	private static abstract class SheetHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+		final RawValueFormatter formatter = new RawValueFormatter();
+
+		@Override
+		public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+			LocalDateTime date = formatter.pollDate();
+			cell(columnOf(cellReference), formattedValue == null ? "" : formattedValue, date);
+		}
+
+		/**
+		 * @param column the column index of the cell
+		 * @param value the formatted value of the cell
+		 * @param date the value of a date cell or null
+		 */
+		abstract void cell(int column, String value, LocalDateTime date);
+
+		private static int columnOf(String cellReference){
+			int column = 0;
+			for(int i = 0; i < cellReference.length(); i++){
+				char c = cellReference.charAt(i);
+				if(c < 'A' || c > 'Z'){
+					break;
+				}
+				column = column * 26 + (c - 'A' + 1);
+			}
+			return column - 1;
+		}
+	}
+
+	/**
+	 * Reads only the first row
+	 */
+	private static class InfoRowHandler extends SheetHandler {
+
+		final List<String> infoRow = new ArrayList<>();
+
+		@Override
+		public void startRow(int rowNum) {}
+
+		@Override
+		public void endRow(int rowNum) {
+			throw new StopReading();
+		}
+
+		@Override
+		void cell(int column, String value, LocalDateTime date) {
+			while(infoRow.size() < column){
+				infoRow.add("");
+			}
+			infoRow.add(value);
+		}
+	}
+
+	/**
+	 * Reads the header row and decodes all following rows with a {@link RowDecoder}
+	 */
+	private class DataRowHandler extends SheetHandler {
+
+		private final long fromSecond;
+		private final long toSecond;
+		final BarColumns columns = new BarColumns();
+		private final List<String> headerRow = new ArrayList<>();
+		private RowDecoder decoder;
+		private DateTimeFormatter dateFormatter;
+		private String[] fields;
+		private int row;
+
+		DataRowHandler(long fromSecond, long toSecond){
+			this.fromSecond = fromSecond;
+			this.toSecond = toSecond;
+		}
+
+		@Override
+		public void startRow(int rowNum) {
+			row = rowNum;
+			if(fields != null){
+				Arrays.fill(fields, "");
+			}
+		}
+
+		@Override
+		public void endRow(int rowNum) {
+			if(rowNum == 1){
+				Map<Parameter.Columns, Integer> headerMap = FormatUtils.getHeaderMap(headerRow);
+				decoder = RowDecoder.compile(headerMap, id);
+				dateFormatter = FormatUtils.getDateTimeFormatter(id);
+				fields = new String[decoder.getMaxIndex() + 1];
+			} else if(rowNum > 1 && decoder != null){
+				decoder.decode(fields, fromSecond, toSecond, columns);
+			}
+		}
+
+		@Override
+		void cell(int column, String value, LocalDateTime date) {
+			if(row == 1){
+				while(headerRow.size() < column){
+					headerRow.add("");
+				}
+				headerRow.add(value);
+			} else if(row > 1 && fields != null && column < fields.length){
+				fields[column] = date == null ? value : format(column, date);
+			}
+		}
+
+		/**
+		 * Formats the value of a date cell in the {@link TimeFormatType} of the file
+		 */
+		private String format(int column, LocalDateTime date){
+			if(id == TimeFormatType.yyyy_MM_ddHmsz.id){
+				return column == decoder.date2Index ? TIME_FORMATTER.format(date) : DATE_FORMATTER.format(date);
+			}
+			return dateFormatter.format(date);
+		}
 	}
 }
@@ -0,0 +1,390 @@
+package org.sjwimmer.tacharting.implementation.model.api;
+
+import com.opencsv.CSVParser;
+import com.opencsv.CSVParserBuilder;
+import org.sjwimmer.tacharting.chart.api.OHLCVDataSource;
+import org.sjwimmer.tacharting.chart.model.BarColumns;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
+import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.sjwimmer.tacharting.implementation.model.api.key.CSVKey;
+import org.sjwimmer.tacharting.implementation.util.FormatUtils;
+import org.sjwimmer.tacharting.implementation.util.RowDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Connector class to read very large csv files with financial data. The file is memory-mapped and split into
+ * line-aligned chunks that are parsed in parallel on a {@link ForkJoinPool} directly from bytes into primitive
+ * columns.
+ * @apiNote the csv file must have the same structure as for the {@link CSVConnector} (info line with name,
+ * time format id and currency followed by the header line). Quoted fields must not contain line breaks.
+ */
+public class MappedCSVConnector implements OHLCVDataSource<CSVKey, File> {
+
+    /** minimum size of a chunk that is parsed by one task */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    /** maximum size of a chunk, a mapping must not exceed 2GB */
+    private static final int MAX_CHUNK_SIZE = 1 << 28;
+
+    private final Logger log = LoggerFactory.getLogger(MappedCSVConnector.class);
+    private final Properties properties;
+    private final ForkJoinPool pool;
+
+    private File file;
+    private long dataStart;
+    private String name;
+    private int id;
+    private Currency currency;
+    private Map<Parameter.Columns, Integer> headers;
+
+    public MappedCSVConnector(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool to parse the chunks of a file
+     */
+    public MappedCSVConnector(ForkJoinPool pool){
+        this.properties = CsvSettingsManager.getProperties();
+        this.pool = pool;
+    }
+
+    /**
+     * Reads the info line and the header line of the <tt>resource</tt>. The bar data is read by the getSymbolData
+     * functions
+     * @param resource the csv file
+     * @return true if the info and header line could be read
+     */
+    @Override
+    public boolean connect(File resource) {
+        CSVParser parser = new CSVParserBuilder().withSeparator(separator()).withQuoteChar(quote()).build();
+        try(FileChannel channel = FileChannel.open(resource.toPath(), StandardOpenOption.READ)){
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = readLine(channel, 0, line);
+            String[] infoLine = parser.parseLine(line.toString(StandardCharsets.UTF_8.name()));
+            line.reset();
+            position = readLine(channel, position, line);
+            String[] headerLine = parser.parseLine(line.toString(StandardCharsets.UTF_8.name()));
+            if(infoLine.length < 2 || headerLine.length < 5){
+                log.error("File {} has no valid info or header line", resource);
+                return false;
+            }
+            name = infoLine[0];
+            id = FormatUtils.extractInteger(infoLine[1]);
+            String currencyString = null;
+            if(infoLine.length>2) {
+                currencyString = infoLine[2].replaceAll("\\s", "").toUpperCase();
+            }
+            if(currencyString == null || currencyString.length() != 3)
+                currencyString = Parameter.DEFAULT_CURRENCY;
+            currency = Currency.getInstance(currencyString);
+            headers = FormatUtils.getHeaderMap(Arrays.asList(headerLine));
+            dataStart = position;
+            file = resource;
+        } catch (IOException ioe){
+            log.error(ioe.getMessage());
+            ioe.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> getAllAvailableSymbols() throws Exception {
+        return Arrays.asList(name);
+    }
+
+    @Override
+    public ChartBarSeries getSymbolData(CSVKey symbol, ZonedDateTime from, ZonedDateTime to) throws Exception {
+        if(!isReady()){
+            throw new IllegalStateException("MappedCSVConnector is not connected to a file");
+        }
+        BarColumns columns;
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            long[] bounds = chunkBounds(channel);
+            log.debug("Parse {} with {} chunks", file, bounds.length - 1);
+            ChunkTask task = new ChunkTask(channel, bounds, 0, bounds.length - 1,
+                    from.toEpochSecond(), to.toEpochSecond());
+            columns = pool.invoke(task);
+        }
+        columns.ensureAscending();
+        String seriesName = name==null?"unnamed":name.toUpperCase();
+        GeneralTimePeriod period = FormatUtils.extractPeriod(seriesName, columns.endTimes(), columns.size());
+        log.debug("Extracted period: "+period);
+        return columns.toSeries(seriesName, currency, period);
+    }
+
+    @Override
+    public ChartBarSeries getSymbolData(CSVKey symbol) throws Exception {
+        return getSymbolData(symbol, ZonedDateTime.now().minusYears(1000), ZonedDateTime.now().plusYears(1000));
+    }
+
+    @Override
+    public List<ChartBarSeries> getSymbolData(List<CSVKey> symbols, ZonedDateTime from, ZonedDateTime to) throws Exception {
+        List<ChartBarSeries> series = new ArrayList<>();
+        for(CSVKey key: symbols) {
+            series.add(getSymbolData(key, from, to));
+        }
+        return series;
+    }
+
+    @Override
+    public void disconnect() {
+        file = null;
+        name = null;
+        currency = null;
+        headers = null;
+    }
+
+    @Override
+    public boolean isReady() {
+        return file != null;
+    }
+
+    private char separator(){
+        return properties.getProperty(Parameter.PROPERTY_CSV_SEPARATOR, ",").charAt(0);
+    }
+
+    private char quote(){
+        return properties.getProperty(Parameter.PROPERTY_CSV_QUOTE, Parameter.DEFAULT_CSV_QUOTE).charAt(0);
+    }
+
+    /**
+     * Splits the data part of the file into chunks that start and end at line boundaries
+     * @return the start positions of the chunks and the file size as last entry
+     */
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long length = size - dataStart;
+        long chunkSize = length / (pool.getParallelism() * 4L);
+        chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, chunkSize));
+        List<Long> bounds = new ArrayList<>();
+        long position = dataStart;
+        while(position < size){
+            bounds.add(position);
+            position = position + chunkSize >= size ? size : nextLine(channel, position + chunkSize);
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for(int i = 0; i < result.length; i++){
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the position after the next line break at or after <tt>position</tt> or the file size
+     */
+    private static long nextLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long size = channel.size();
+        while(position < size){
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if(read <= 0){
+                break;
+            }
+            for(int i = 0; i < read; i++){
+                if(buffer.get(i) == '\n'){
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the bytes of the line that starts at <tt>position</tt> (without line break) into <tt>line</tt>
+     * @return the position of the next line
+     */
+    private static long readLine(FileChannel channel, long position, ByteArrayOutputStream line) throws IOException {
+        long next = nextLine(channel, position);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (next - position));
+        channel.read(buffer, position);
+        int length = buffer.position();
+        while(length > 0 && (buffer.get(length - 1) == '\n' || buffer.get(length - 1) == '\r')){
+            length--;
+        }
+        line.write(buffer.array(), 0, length);
+        return next;
+    }
+
+    /**
+     * Parses the chunks <tt>from</tt> (inclusive) to <tt>to</tt> (exclusive) by splitting the range until one task
+     * parses exactly one chunk. The results are merged in file order.
+     */
+    private class ChunkTask extends RecursiveTask<BarColumns> {
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+        private final long fromSecond;
+        private final long toSecond;
+
+        ChunkTask(FileChannel channel, long[] bounds, int from, int to, long fromSecond, long toSecond){
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+        }
+
+        @Override
+        protected BarColumns compute() {
+            if(to - from > 1){
+                int middle = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(channel, bounds, from, middle, fromSecond, toSecond);
+                ChunkTask right = new ChunkTask(channel, bounds, middle, to, fromSecond, toSecond);
+                right.fork();
+                BarColumns result = left.compute();
+                result.addAll(right.join());
+                return result;
+            }
+            if(from == to){
+                return new BarColumns();
+            }
+            try {
+                long start = bounds[from];
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, bounds[to] - start);
+                return new ChunkParser(buffer, fromSecond, toSecond).parse();
+            } catch (IOException ioe){
+                throw new UncheckedIOException(ioe);
+            }
+        }
+    }
+
+    /**
+     * Parses the lines of one chunk. Only the needed fields of a line are located and decoded by a {@link RowDecoder}
+     * directly from the mapped bytes.
+     */
+    private class ChunkParser {
+
+        private final ByteBuffer buffer;
+        private final long fromSecond;
+        private final long toSecond;
+        private final byte separator = (byte) separator();
+        private final byte quote = (byte) quote();
+        private final RowDecoder decoder = RowDecoder.compile(headers, id);
+        private final ByteSequence[] fields;
+
+        ChunkParser(ByteBuffer buffer, long fromSecond, long toSecond){
+            this.buffer = buffer;
+            this.fromSecond = fromSecond;
+            this.toSecond = toSecond;
+            fields = new ByteSequence[decoder.getMaxIndex() + 1];
+            for(int i = 0; i < fields.length; i++){
+                fields[i] = new ByteSequence(buffer);
+            }
+        }
+
+        BarColumns parse(){
+            BarColumns columns = new BarColumns(buffer.limit() / 48);
+            int limit = buffer.limit();
+            int lineStart = 0;
+            while(lineStart < limit){
+                int lineEnd = lineStart;
+                while(lineEnd < limit && buffer.get(lineEnd) != '\n'){
+                    lineEnd++;
+                }
+                int next = lineEnd + 1;
+                if(lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r'){
+                    lineEnd--;
+                }
+                if(lineEnd > lineStart){
+                    parseLine(lineStart, lineEnd, columns);
+                }
+                lineStart = next;
+            }
+            return columns;
+        }
+
+        private void parseLine(int start, int end, BarColumns columns){
+            int field = 0;
+            int fieldStart = start;
+            for(int i = start; i < end && field < fields.length; i++){
+                if(buffer.get(i) == separator){
+                    setField(field++, fieldStart, i);
+                    fieldStart = i + 1;
+                }
+            }
+            if(field < fields.length){
+                setField(field++, fieldStart, end);
+            }
+            if(field < fields.length){
+                throw new IllegalArgumentException(
+                        String.format("Line '%s' has not enough columns", new ByteSequence(buffer).set(start, end)));
+            }
+            decoder.decode(fields, fromSecond, toSecond, columns);
+        }
+
+        private void setField(int field, int start, int end){
+            if(end - start > 1 && buffer.get(start) == quote && buffer.get(end - 1) == quote){
+                start++;
+                end--;
+            }
+            fields[field].set(start, end);
+        }
+    }
+
+    /**
+     * Reusable view of a range of the mapped bytes (single byte characters) as CharSequence
+     */
+    private static class ByteSequence implements CharSequence {
+
+        private final ByteBuffer buffer;
+        private int start;
+        private int end;
+
+        ByteSequence(ByteBuffer buffer){
+            this.buffer = buffer;
+        }
+
+        ByteSequence set(int start, int end){
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteSequence(buffer).set(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            for(int i = 0; i < bytes.length; i++){
+                bytes[i] = buffer.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package org.sjwimmer.tacharting.implementation.model.api;
+
+import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.sjwimmer.tacharting.implementation.model.api.SqlLiteConnectionManager.PooledConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Derives the bars of the coarser tables of a SQLite database (see {@link SqlLiteConnector}) from the finer tables:
+ * <pre>
+ *     MINUTE -&gt; FIVE_MINUTE -&gt; HOUR -&gt; DAY -&gt; FIVE_DAY (week)
+ *                                      DAY -&gt; MONTH -&gt; QUARTER -&gt; YEAR
+ * </pre>
+ * After bars have been inserted into a table, all periods of the coarser tables that contain one of the new bars
+ * are aggregated again from the finer table (open of the first bar, highest high, lowest low, close of the last bar
+ * and sum of the volumes) and the update is passed on to the next coarser table. Like the bars of the data sources,
+ * an aggregated bar is stored with the start of its period in the local time zone (weeks start on monday).
+ * The dates of the aggregated bars are recorded in the DERIVED table (Period, Symbol, Currency, Date). Aggregated
+ * bars are replaced by new aggregates, but bars that have been inserted directly (e.g. daily bars of Yahoo) are kept
+ * and their periods are skipped (see {@link #unmark}). The finer tables are read with a {@link RowReader}, so that
+ * they can use the row or the block layout (see {@link DayBlockStore}).
+ */
+public class RollupEngine {
+
+    static final String DERIVED = "DERIVED";
+    private static final String MARK = String.format(
+            "INSERT OR IGNORE INTO %s (Period, Symbol, Currency, Date) VALUES(?, ?, ?, ?)", DERIVED);
+    private static final String UNMARK = String.format(
+            "DELETE FROM %s WHERE Period = ? AND Symbol = ? AND Currency = ? AND Date = ?", DERIVED);
+
+    private static final Map<GeneralTimePeriod, List<GeneralTimePeriod>> TARGETS = new EnumMap<>(GeneralTimePeriod.class);
+
+    static {
+        TARGETS.put(GeneralTimePeriod.MINUTE, Collections.singletonList(GeneralTimePeriod.FIVE_MINUTE));
+        TARGETS.put(GeneralTimePeriod.FIVE_MINUTE, Collections.singletonList(GeneralTimePeriod.HOUR));
+        TARGETS.put(GeneralTimePeriod.HOUR, Collections.singletonList(GeneralTimePeriod.DAY));
+        TARGETS.put(GeneralTimePeriod.DAY, Arrays.asList(GeneralTimePeriod.FIVE_DAY, GeneralTimePeriod.MONTH));
+        TARGETS.put(GeneralTimePeriod.MONTH, Collections.singletonList(GeneralTimePeriod.QUARTER));
+        TARGETS.put(GeneralTimePeriod.QUARTER, Collections.singletonList(GeneralTimePeriod.YEAR));
+    }
+
+    private final Logger log = LoggerFactory.getLogger(RollupEngine.class);
+    private final ZoneId zoneId;
+    private final RowReader reader;
+
+    /**
+     * Reads the stored rows of a table (whatever its layout is)
+     */
+    @FunctionalInterface
+    public interface RowReader {
+
+        /**
+         * Reads the rows of the symbol between <tt>from</tt> and <tt>to</tt> (inclusive) in ascending order
+         */
+        void read(PooledConnection con, String symbol, String currency, GeneralTimePeriod table,
+                  long from, long to, ScaledRowHandler handler) throws SQLException;
+    }
+
+    /**
+     * @param reader the reader for the rows of the finer tables
+     */
+    public RollupEngine(RowReader reader){
+        this(ZoneId.systemDefault(), reader);
+    }
+
+    /**
+     * @param zoneId the time zone for the boundaries of hours, days, weeks, months, quarters and years
+     * @param reader the reader for the rows of the finer tables
+     */
+    public RollupEngine(ZoneId zoneId, RowReader reader){
+        this.zoneId = zoneId;
+        this.reader = reader;
+    }
+
+    static String createTableStatement(){
+        return String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                "Period VARCHAR (20), " +
+                "Symbol VARCHAR (50), " +
+                "Currency VARCHAR (3), " +
+                "Date INTEGER, " +
+                "PRIMARY KEY (Period, Symbol, Currency, Date));", DERIVED);
+    }
+
+    /**
+     * @param period a period table
+     * @return true if bars of the <tt>period</tt> are aggregated from a finer table
+     */
+    public static boolean isTarget(GeneralTimePeriod period){
+        for(List<GeneralTimePeriod> targets: TARGETS.values()){
+            if(targets.contains(period)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param source the table with the finer bars
+     * @return the tables that are directly aggregated from the <tt>source</tt> table
+     */
+    public static List<GeneralTimePeriod> targetsOf(GeneralTimePeriod source){
+        return TARGETS.getOrDefault(source, Collections.emptyList());
+    }
+
+    /**
+     * Aggregates all periods of the coarser tables that contain a bar of the <tt>source</tt> table between
+     * <tt>fromSecond</tt> and <tt>toSecond</tt>. Must be called on the connection (and in the transaction) that
+     * has inserted the bars.
+     * @param con the connection to the database
+     * @param symbol the symbol of the inserted bars
+     * @param currency the currency code of the inserted bars
+     * @param source the table the bars have been inserted into
+     * @param fromSecond the first inserted date (epoch second)
+     * @param toSecond the last inserted date (epoch second)
+     * @return the number of aggregated bars that have been written to all coarser tables
+     * @throws SQLException SQLException
+     */
+    public int update(PooledConnection con, String symbol, String currency, GeneralTimePeriod source,
+                      long fromSecond, long toSecond) throws SQLException {
+        int written = 0;
+        for(GeneralTimePeriod target: targetsOf(source)){
+            long rangeStart = periodStart(target, fromSecond);
+            long rangeEnd = nextPeriodStart(target, periodStart(target, toSecond));
+            int bars = aggregate(con, symbol, currency, source, target, rangeStart, rangeEnd);
+            log.debug("Aggregated {} {} bars of {} from {}", bars, target, symbol, source);
+            written += bars;
+            if(bars > 0){
+                written += update(con, symbol, currency, target, rangeStart, rangeEnd - 1);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Marks the bar of the <tt>period</tt> table at <tt>date</tt> as directly inserted, so that it is not replaced by
+     * aggregated bars. Must be called for each bar that replaces a stored bar of an aggregated table, the statement
+     * is executed by {@link #flushUnmarked(PooledConnection)}.
+     * @param con the connection that inserts the bar
+     * @param symbol the symbol of the bar
+     * @param currency the currency code of the bar
+     * @param period the table of the bar
+     * @param date the date (epoch second) of the bar
+     * @throws SQLException SQLException
+     */
+    public void unmark(PooledConnection con, String symbol, String currency, GeneralTimePeriod period, long date)
+            throws SQLException {
+        PreparedStatement statement = con.prepare(UNMARK);
+        statement.setString(1, period.toString());
+        statement.setString(2, symbol);
+        statement.setString(3, currency);
+        statement.setLong(4, date);
+        statement.addBatch();
+    }
+
+    /**
+     * Executes the batched calls of {@link #unmark}
+     * @param con the connection that inserts the bars
+     * @throws SQLException SQLException
+     */
+    public void flushUnmarked(PooledConnection con) throws SQLException {
+        con.prepare(UNMARK).executeBatch();
+    }
+
+    /**
+     * Removes the marks of all aggregated bars of the <tt>period</tt> table of the symbol
+     * @param con the connection that removes the bars
+     * @param symbol the symbol of the removed bars
+     * @param currency the currency code of the removed bars
+     * @param period the table of the removed bars
+     * @throws SQLException SQLException
+     */
+    public void remove(PooledConnection con, String symbol, String currency, GeneralTimePeriod period)
+            throws SQLException {
+        PreparedStatement statement = con.prepare(String.format(
+                "DELETE FROM %s WHERE Period = ? AND Symbol = ? AND Currency = ?", DERIVED));
+        statement.setString(1, period.toString());
+        statement.setString(2, symbol);
+        statement.setString(3, currency);
+        statement.executeUpdate();
+    }
+
+    /**
+     * Aggregates the bars of <tt>source</tt> in [rangeStart, rangeEnd) into the <tt>target</tt> table. Periods with a
+     * directly inserted bar are skipped.
+     */
+    private int aggregate(PooledConnection con, String symbol, String currency, GeneralTimePeriod source,
+                          GeneralTimePeriod target, long rangeStart, long rangeEnd) throws SQLException {
+        Set<Long> direct = directDates(con, symbol, currency, target, rangeStart, rangeEnd);
+        PreparedStatement write = con.prepare(String.format("INSERT OR REPLACE INTO %s " +
+                "(Symbol, Currency, Date, Open, High, Low, Close, Volume) VALUES(?, ?, ?, ?, ?, ?, ?, ?)", target));
+        PreparedStatement mark = con.prepare(MARK);
+        int batchSize = Math.max(1, Parameter.DATABASE_BATCH_SIZE);
+        int[] written = {0};
+        Aggregate[] current = {null};
+        reader.read(con, symbol, currency, source, rangeStart, rangeEnd - 1, (date, open, high, low, close, volume) -> {
+            Aggregate aggregate = current[0];
+            if(aggregate == null || date >= aggregate.end){
+                if(aggregate != null && !direct.contains(aggregate.start)){
+                    aggregate.write(write, symbol, currency);
+                    aggregate.mark(mark, target, symbol, currency);
+                    if(++written[0] % batchSize == 0){
+                        write.executeBatch();
+                        mark.executeBatch();
+                    }
+                }
+                long start = periodStart(target, date);
+                aggregate = current[0] = new Aggregate(start, nextPeriodStart(target, start));
+            }
+            aggregate.add(open, high, low, close, volume);
+        });
+        if(current[0] != null && !direct.contains(current[0].start)){
+            current[0].write(write, symbol, currency);
+            current[0].mark(mark, target, symbol, currency);
+            written[0]++;
+        }
+        write.executeBatch();
+        mark.executeBatch();
+        if(!direct.isEmpty()){
+            log.debug("Kept {} directly inserted {} bars of {}", direct.size(), target, symbol);
+        }
+        return written[0];
+    }
+
+    /**
+     * @return the dates of the bars of the <tt>table</tt> in [rangeStart, rangeEnd) that have not been aggregated
+     */
+    private Set<Long> directDates(PooledConnection con, String symbol, String currency, GeneralTimePeriod table,
+                                  long rangeStart, long rangeEnd) throws SQLException {
+        PreparedStatement statement = con.prepare(String.format("SELECT Date FROM %1$s " +
+                "WHERE Symbol = ? AND Currency = ? AND Date >= ? AND Date < ? AND Date NOT IN " +
+                "(SELECT Date FROM %2$s WHERE Period = ? AND Symbol = ? AND Currency = ? AND Date >= ? AND Date < ?)",
+                table, DERIVED));
+        statement.setString(1, symbol);
+        statement.setString(2, currency);
+        statement.setLong(3, rangeStart);
+        statement.setLong(4, rangeEnd);
+        statement.setString(5, table.toString());
+        statement.setString(6, symbol);
+        statement.setString(7, currency);
+        statement.setLong(8, rangeStart);
+        statement.setLong(9, rangeEnd);
+        Set<Long> dates = new HashSet<>();
+        try(ResultSet rset = statement.executeQuery()){
+            while(rset.next()){
+                dates.add(rset.getLong(1));
+            }
+        }
+        return dates;
+    }
+
+    /**
+     * @param period the period of the coarser table
+     * @param epochSecond a date
+     * @return the start (epoch second) of the period that contains the <tt>epochSecond</tt>
+     */
+    long periodStart(GeneralTimePeriod period, long epochSecond){
+        if(period == GeneralTimePeriod.FIVE_MINUTE){
+            return epochSecond - Math.floorMod(epochSecond, 300);
+        }
+        ZonedDateTime time = Instant.ofEpochSecond(epochSecond).atZone(zoneId);
+        switch (period){
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS).toEpochSecond();
+            case DAY:
+                return time.toLocalDate().atStartOfDay(zoneId).toEpochSecond();
+            case FIVE_DAY:
+                return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                        .atStartOfDay(zoneId).toEpochSecond();
+            case MONTH:
+                return time.toLocalDate().withDayOfMonth(1).atStartOfDay(zoneId).toEpochSecond();
+            case QUARTER:
+                return time.toLocalDate().with(IsoFields.DAY_OF_QUARTER, 1).atStartOfDay(zoneId).toEpochSecond();
+            case YEAR:
+                return time.toLocalDate().withDayOfYear(1).atStartOfDay(zoneId).toEpochSecond();
+            default:
+                throw new IllegalArgumentException(String.format("%s is not an aggregated period", period));
+        }
+    }
+
+    /**
+     * @param period the period of the coarser table
+     * @param periodStart the start of a period
+     * @return the start (epoch second) of the following period
+     */
+    long nextPeriodStart(GeneralTimePeriod period, long periodStart){
+        if(period == GeneralTimePeriod.FIVE_MINUTE){
+            return periodStart + 300;
+        }
+        ZonedDateTime start = Instant.ofEpochSecond(periodStart).atZone(zoneId);
+        switch (period){
+            case HOUR:
+                return start.plusHours(1).toEpochSecond();
+            case DAY:
+                return start.toLocalDate().plusDays(1).atStartOfDay(zoneId).toEpochSecond();
+            case FIVE_DAY:
+                return start.toLocalDate().plusWeeks(1).atStartOfDay(zoneId).toEpochSecond();
+            case MONTH:
+                return start.toLocalDate().plusMonths(1).atStartOfDay(zoneId).toEpochSecond();
+            case QUARTER:
+                return start.toLocalDate().plusMonths(3).atStartOfDay(zoneId).toEpochSecond();
+            case YEAR:
+                return start.toLocalDate().plusYears(1).atStartOfDay(zoneId).toEpochSecond();
+            default:
+                throw new IllegalArgumentException(String.format("%s is not an aggregated period", period));
+        }
+    }
+
+    /**
+     * OHLCV aggregate of the (scaled) prices and volumes of one period
+     */
+    private static class Aggregate {
+
+        final long start;
+        final long end;
+        private long open;
+        private long high = Long.MIN_VALUE;
+        private long low = Long.MAX_VALUE;
+        private long close;
+        private double volume;
+        private boolean hasVolume;
+        private boolean empty = true;
+
+        Aggregate(long start, long end){
+            this.start = start;
+            this.end = end;
+        }
+
+        void add(long o, long h, long l, long c, double v){
+            if(empty){
+                open = o;
+                empty = false;
+            }
+            high = Math.max(high, h);
+            low = Math.min(low, l);
+            close = c;
+            if(!Double.isNaN(v)){
+                volume += v;
+                hasVolume = true;
+            }
+        }
+
+        void write(PreparedStatement statement, String symbol, String currency) throws SQLException {
+            statement.setString(1, symbol);
+            statement.setString(2, currency);
+            statement.setLong(3, start);
+            statement.setLong(4, open);
+            statement.setLong(5, high);
+            statement.setLong(6, low);
+            statement.setLong(7, close);
+            if(hasVolume){
+                statement.setDouble(8, volume);
+            } else {
+                statement.setNull(8, Types.DOUBLE);
+            }
+            statement.addBatch();
+        }
+
+        void mark(PreparedStatement statement, GeneralTimePeriod period, String symbol, String currency)
+                throws SQLException {
+            statement.setString(1, period.toString());
+            statement.setString(2, symbol);
+            statement.setString(3, currency);
+            statement.setLong(4, start);
+            statement.addBatch();
+        }
+    }
+}
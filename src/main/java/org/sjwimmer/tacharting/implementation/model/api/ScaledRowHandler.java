@@ -0,0 +1,24 @@
+package org.sjwimmer.tacharting.implementation.model.api;
+
+import org.sjwimmer.tacharting.implementation.util.CalculationUtils;
+
+import java.sql.SQLException;
+
+/**
+ * Receives the stored rows of a time series with the prices as scaled integers
+ * (see {@link CalculationUtils#currencyValueToLong(double, java.util.Currency)})
+ */
+@FunctionalInterface
+public interface ScaledRowHandler {
+
+    /**
+     * @param date the date as epoch second
+     * @param open the scaled open price
+     * @param high the scaled high price
+     * @param low the scaled low price
+     * @param close the scaled close price
+     * @param volume the volume or NaN if no volume is stored
+     * @throws SQLException if the row could not be processed
+     */
+    void row(long date, long open, long high, long low, long close, double volume) throws SQLException;
+}
@@ -0,0 +1,212 @@
+package org.sjwimmer.tacharting.implementation.model.api;
+
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
+import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.ta4j.core.Bar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Currency;
+
+/**
+ * Binary cache for series that have been parsed from a csv or excel file. A cache file consists of a header (source
+ * path, size and last modified time of the source file, name, currency, time period and number of bars) followed by
+ * the end time, open, high, low, close and volume columns. The cache file of a source is only used as long as the
+ * size and the last modified time of the source have not changed.
+ * <p>
+ * Cache files are stored under {@link Parameter#CACHE_PATH} and are memory-mapped to load them.
+ */
+public class SeriesFileCache {
+
+    private static final int MAGIC = 0x54414331; // TAC1
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".tacache";
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Logger log = LoggerFactory.getLogger(SeriesFileCache.class);
+    private final Path directory;
+
+    public SeriesFileCache(){
+        this(Paths.get(Parameter.CACHE_PATH));
+    }
+
+    /**
+     * @param directory the directory for the cache files
+     */
+    public SeriesFileCache(Path directory){
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the cached series of a source file
+     * @param source the csv or excel file
+     * @return the cached series or null if there is no valid cache file for the current version of the source
+     */
+    public ColumnarBarSeries load(File source){
+        Path cacheFile = cacheFileOf(source);
+        if(!Files.isRegularFile(cacheFile)){
+            return null;
+        }
+        try(FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+                log.debug("Cache file {} has an unknown format", cacheFile);
+                return null;
+            }
+            long sourceSize = buffer.getLong();
+            long sourceModified = buffer.getLong();
+            String sourcePath = getString(buffer);
+            if(sourceSize != source.length() || sourceModified != source.lastModified()
+                    || !sourcePath.equals(source.getAbsolutePath())){
+                log.debug("Cache file {} is outdated", cacheFile);
+                return null;
+            }
+            String name = getString(buffer);
+            Currency currency = Currency.getInstance(getString(buffer));
+            GeneralTimePeriod period = GeneralTimePeriod.valueOf(getString(buffer));
+            int size = buffer.getInt();
+            buffer.position(align(buffer.position()));
+            long[] endTimes = new long[size];
+            double[] open = new double[size];
+            double[] high = new double[size];
+            double[] low = new double[size];
+            double[] close = new double[size];
+            double[] volume = new double[size];
+            buffer.asLongBuffer().get(endTimes);
+            buffer.position(buffer.position() + size * Long.BYTES);
+            for(double[] column: new double[][]{open, high, low, close, volume}){
+                buffer.asDoubleBuffer().get(column);
+                buffer.position(buffer.position() + size * Double.BYTES);
+            }
+            log.debug("Loaded {} bars of {} from cache file {}", size, source, cacheFile);
+            return new ColumnarBarSeries(name, currency, period, endTimes, open, high, low, close, volume, size);
+        } catch (RuntimeException | IOException e){
+            log.error("Could not read cache file {}: {}", cacheFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the series of a source file. The cache file is written to a temporary file first and then moved to its
+     * final location, so that a partially written cache file is never loaded.
+     * @param source the csv or excel file
+     * @param series the series that has been parsed from the <tt>source</tt>
+     * @throws IOException if the cache file could not be written
+     */
+    public void store(File source, ChartBarSeries series) throws IOException {
+        Files.createDirectories(directory);
+        int size = series.getBarCount();
+        int begin = series.getBeginIndex();
+        byte[][] strings = {
+                source.getAbsolutePath().getBytes(StandardCharsets.UTF_8),
+                series.getName().getBytes(StandardCharsets.UTF_8),
+                series.getCurrency().getCurrencyCode().getBytes(StandardCharsets.UTF_8),
+                series.getTimeFormatType().name().getBytes(StandardCharsets.UTF_8)};
+        int headerSize = 4 + 4 + 8 + 8 + 4;
+        for(byte[] string: strings){
+            headerSize += 4 + string.length;
+        }
+        headerSize = align(headerSize);
+        Path cacheFile = cacheFileOf(source);
+        Path tmpFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+        ColumnarBarSeries columnar = series instanceof ColumnarBarSeries ? (ColumnarBarSeries) series : null;
+        boolean moved = false;
+        try {
+            try(FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)){
+                ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(headerSize, WRITE_BUFFER_SIZE));
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(source.length()).putLong(source.lastModified());
+                for(byte[] string: strings){
+                    buffer.putInt(string.length).put(string);
+                }
+                buffer.putInt(size);
+                buffer.position(headerSize);
+                for(int i = begin; i < begin + size; i++){
+                    flushIfFull(channel, buffer, Long.BYTES);
+                    buffer.putLong(columnar != null ? columnar.getEndEpochSecond(i) : series.getBar(i).getEndTime().toEpochSecond());
+                }
+                for(int column = 0; column < 5; column++){
+                    for(int i = begin; i < begin + size; i++){
+                        flushIfFull(channel, buffer, Double.BYTES);
+                        buffer.putDouble(columnar != null ? valueOf(columnar, column, i) : valueOf(series.getBar(i), column));
+                    }
+                }
+                flushIfFull(channel, buffer, buffer.capacity());
+            }
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if(!moved){ // also after runtime exceptions and failed moves
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ioe){
+                    log.warn("Could not delete {}: {}", tmpFile, ioe.getMessage());
+                }
+            }
+        }
+        log.debug("Stored {} bars of {} in cache file {}", size, source, cacheFile);
+    }
+
+    /**
+     * Removes the cache file of a source file
+     * @param source the csv or excel file
+     * @throws IOException if the cache file could not be deleted
+     */
+    public void remove(File source) throws IOException {
+        Files.deleteIfExists(cacheFileOf(source));
+    }
+
+    private Path cacheFileOf(File source){
+        String path = source.getAbsolutePath();
+        return directory.resolve(source.getName() + "-" + Integer.toHexString(path.hashCode()) + EXTENSION);
+    }
+
+    private static double valueOf(ColumnarBarSeries series, int column, int index){
+        switch (column){
+            case 0: return series.getOpen(index);
+            case 1: return series.getHigh(index);
+            case 2: return series.getLow(index);
+            case 3: return series.getClose(index);
+            default: return series.getVolume(index);
+        }
+    }
+
+    private static double valueOf(Bar bar, int column){
+        switch (column){
+            case 0: return bar.getOpenPrice().doubleValue();
+            case 1: return bar.getHighPrice().doubleValue();
+            case 2: return bar.getLowPrice().doubleValue();
+            case 3: return bar.getClosePrice().doubleValue();
+            default: return bar.getVolume().doubleValue();
+        }
+    }
+
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if(buffer.remaining() >= needed){
+            return;
+        }
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static String getString(ByteBuffer buffer){
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int align(int position){
+        return (position + 7) & ~7;
+    }
+}
@@ -0,0 +1,276 @@
+package org.sjwimmer.tacharting.implementation.model.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages the connections to a SQLite database in WAL mode. Reads are executed on a small pool of read-only
+ * connections and can run in parallel. All writes are executed by one writer thread that drains a bounded queue of
+ * write jobs, so that writes never interleave and do not block readers. If the queue is full, the submitting thread
+ * waits until the writer has taken a job from the queue.
+ */
+public class SqlLiteConnectionManager implements AutoCloseable {
+
+    private final Logger log = LoggerFactory.getLogger(SqlLiteConnectionManager.class);
+
+    private final String url;
+    private final SQLiteConfig readConfig;
+    private final int maxReaders;
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final AtomicInteger readers = new AtomicInteger();
+    private final BlockingQueue<WriteJob<?>> writeQueue;
+    private final int writeQueueCapacity;
+    private final PooledConnection writer;
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    /**
+     * A job that is executed with a connection of this manager
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface SQLJob<T> {
+        T run(PooledConnection connection) throws SQLException;
+    }
+
+    /**
+     * @param url the jdbc url of the database
+     * @param config the configuration of the connections (the journal mode is always WAL)
+     * @param maxReaders the maximal number of read-only connections
+     * @param writeQueueCapacity the number of write jobs that can wait for the writer thread
+     * @throws SQLException if the write connection could not be opened
+     */
+    public SqlLiteConnectionManager(String url, SQLiteConfig config, int maxReaders, int writeQueueCapacity) throws SQLException {
+        this.url = url;
+        this.maxReaders = Math.max(1, maxReaders);
+        this.writeQueueCapacity = Math.max(1, writeQueueCapacity);
+        this.idleReaders = new ArrayBlockingQueue<>(this.maxReaders);
+        this.writeQueue = new ArrayBlockingQueue<>(this.writeQueueCapacity);
+
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        this.writer = new PooledConnection(DriverManager.getConnection(url, config.toProperties()));
+        this.readConfig = new SQLiteConfig(config.toProperties());
+        this.readConfig.setReadOnly(true);
+        this.writerThread = new Thread(this::drainWriteQueue, "sqlite-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        log.debug("Connected to Database {}", url);
+    }
+
+    /**
+     * Executes the <tt>job</tt> with a read-only connection of the pool. Waits for a free connection if all
+     * connections are in use.
+     * @param job the read job
+     * @return the result of the job
+     * @throws SQLException if the job failed
+     */
+    public <T> T read(SQLJob<T> job) throws SQLException {
+        PooledConnection connection = borrowReader();
+        try {
+            return job.run(connection);
+        } finally {
+            if(closed || !idleReaders.offer(connection)){
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Adds the <tt>job</tt> to the write queue. Blocks while the queue is full.
+     * @param job the write job, executed on the writer thread
+     * @return a future with the result of the job
+     * @throws SQLException if this manager is closed or the thread has been interrupted while waiting
+     */
+    public <T> CompletableFuture<T> submitWrite(SQLJob<T> job) throws SQLException {
+        if(closed){
+            throw new SQLException("Connection manager is closed");
+        }
+        WriteJob<T> writeJob = new WriteJob<>(job);
+        try {
+            writeQueue.put(writeJob);
+        } catch (InterruptedException ie){
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write queue", ie);
+        }
+        return writeJob.result;
+    }
+
+    /**
+     * Adds the <tt>job</tt> to the write queue and waits for its result
+     * @param job the write job, executed on the writer thread
+     * @return the result of the job
+     * @throws SQLException if the job failed
+     */
+    public <T> T write(SQLJob<T> job) throws SQLException {
+        CompletableFuture<T> result = submitWrite(job);
+        try {
+            return result.get();
+        } catch (InterruptedException ie){
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write job", ie);
+        } catch (ExecutionException ee){
+            if(ee.getCause() instanceof SQLException){
+                throw (SQLException) ee.getCause();
+            }
+            throw new SQLException(ee.getCause());
+        }
+    }
+
+    /**
+     * @return the number of write jobs that are waiting for the writer thread
+     */
+    public int getWriteQueueDepth(){
+        return writeQueue.size();
+    }
+
+    /**
+     * @return the maximal number of write jobs that can wait for the writer thread
+     */
+    public int getWriteQueueCapacity(){
+        return writeQueueCapacity;
+    }
+
+    /**
+     * @return the number of opened read-only connections
+     */
+    public int getReadConnections(){
+        return readers.get();
+    }
+
+    public boolean isClosed(){
+        return closed;
+    }
+
+    /**
+     * Executes the queued write jobs and closes all connections
+     */
+    @Override
+    public void close() {
+        if(closed){
+            return;
+        }
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join();
+        } catch (InterruptedException ie){
+            Thread.currentThread().interrupt();
+        }
+        for(WriteJob<?> job; (job = writeQueue.poll()) != null;){
+            job.result.completeExceptionally(new SQLException("Connection manager is closed"));
+        }
+        writer.close();
+        for(PooledConnection reader; (reader = idleReaders.poll()) != null;){
+            reader.close();
+        }
+        log.debug("Closed connections to Database {}", url);
+    }
+
+    private PooledConnection borrowReader() throws SQLException {
+        if(closed){
+            throw new SQLException("Connection manager is closed");
+        }
+        PooledConnection connection = idleReaders.poll();
+        if(connection != null){
+            return connection;
+        }
+        if(readers.incrementAndGet() <= maxReaders){
+            try {
+                return new PooledConnection(DriverManager.getConnection(url, readConfig.toProperties()));
+            } catch (SQLException sqle){
+                readers.decrementAndGet();
+                throw sqle;
+            }
+        }
+        readers.decrementAndGet();
+        try {
+            return idleReaders.take();
+        } catch (InterruptedException ie){
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", ie);
+        }
+    }
+
+    private void drainWriteQueue(){
+        while(!closed || !writeQueue.isEmpty()){
+            WriteJob<?> job;
+            try {
+                job = writeQueue.take();
+            } catch (InterruptedException ie){
+                continue; // closed, execute the remaining jobs
+            }
+            job.run(writer);
+        }
+    }
+
+    private static class WriteJob<T> {
+
+        private final SQLJob<T> job;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        WriteJob(SQLJob<T> job){
+            this.job = job;
+        }
+
+        void run(PooledConnection connection){
+            try {
+                result.complete(job.run(connection));
+            } catch (SQLException | RuntimeException e){
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * A connection of the manager with a cache for its prepared statements. A pooled connection is only used by one
+     * thread at a time and must not be used after the job returned.
+     */
+    public static class PooledConnection {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        PooledConnection(Connection connection){
+            this.connection = connection;
+        }
+
+        public Connection getConnection(){
+            return connection;
+        }
+
+        /**
+         * @param sql the sql statement
+         * @return the cached prepared statement for the <tt>sql</tt> of this connection
+         * @throws SQLException SQLException
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if(statement == null){
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        void close(){
+            try {
+                for(PreparedStatement statement: statements.values()){
+                    statement.close();
+                }
+                connection.close();
+            } catch (SQLException sqle){
+                LoggerFactory.getLogger(SqlLiteConnectionManager.class).error("Could not close connection: {}", sqle.getMessage());
+            }
+        }
+    }
+}
@@ -1,27 +1,26 @@
 package org.sjwimmer.tacharting.implementation.model.api;
 
 import org.sjwimmer.tacharting.chart.api.SQLConnector;
-import org.sjwimmer.tacharting.chart.model.TaBarSeries;
+import org.sjwimmer.tacharting.chart.model.BarColumns;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
+import org.sjwimmer.tacharting.chart.model.SeriesInfo;
 import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
 import org.sjwimmer.tacharting.chart.model.types.TimeFormatType;
 import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.sjwimmer.tacharting.implementation.model.api.SqlLiteConnectionManager.PooledConnection;
 import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
 import org.sjwimmer.tacharting.implementation.util.CalculationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
 import org.ta4j.core.Bar;
-import org.ta4j.core.BaseBar;
-import org.ta4j.core.num.Num;
 
 import java.sql.*;
-import java.time.Duration;
-import java.time.Instant;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.Currency;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Connection Manager for a SQLLite database
@@ -37,17 +36,39 @@ import java.util.List;
  *         Close INTEGER,
  *         Volume INTEGER,
  *         Currency VARCHAR (3))
- * TODO: work with PreparedStatements instead of simple Statements. Currently this is not possible because
- * TODO: prepared statements wrap the data in the wrong format
- * TODO:   -must be possible because date is stored as long value now
- *
- * TODO: create unique index on key (symbol, date, currency)
+ *     Index on (Symbol, Currency, Date) for range queries
+ *     Prices are stored as 64 bit integers in the smallest unit of the currency (see {@link CalculationUtils})
+ * Minute bars can be stored delta-encoded with one row per symbol and day instead (see {@link DayBlockStore} and
+ * {@link Parameter#DATABASE_MINUTE_BLOCKS}). Existing data is migrated to the configured layout when connecting.
+ * Inserted bars are aggregated into the coarser tables (see {@link RollupEngine}), bars that replace aggregated bars
+ * are kept by later aggregations
+ * The CATALOG table has one row per stored time series (Period, Symbol, Currency, FirstDate, LastDate, Bars), that
+ * is updated in the transactions of inserts and deletes, so that the keys can be listed without reading the bars
+ * The STORED_RANGES table has the disjoint ranges (Period, Symbol, Currency, FromDate, ToDate) that have been stored
+ * completely (see {@link #insertDataAsync(ChartBarSeries, boolean, long, long)})
+ * The database is used in WAL mode with a pool of read-only connections and one writer thread (see
+ * {@link SqlLiteConnectionManager}), so that reads can run in parallel to writes. The synchronous mode, batch size
+ * of inserts, number of read connections and size of the write queue can be configured with {@link Parameter}
  */
 
 public class SqlLiteConnector implements SQLConnector {
 
+    /** version 1: 64 bit integer prices and dates, block tables, version 2: catalog */
+    private static final int SCHEMA_VERSION = 2;
+    private static final String CATALOG = "CATALOG";
+    private static final String STORED_RANGES = "STORED_RANGES";
+    private static final EnumSet<GeneralTimePeriod> BLOCK_PERIODS = EnumSet.of(GeneralTimePeriod.MINUTE);
+    /** keys of one batched query, a power of two that keeps the three parameters per key below 999 */
+    private static final int MAX_KEYS_PER_QUERY = 256;
+
     private final Logger log = LoggerFactory.getLogger(SqlLiteConnector.class);
-    private Connection con = null;
+    private SqlLiteConnectionManager connections = null;
+    private final DayBlockStore blockStore = new DayBlockStore();
+    private final RollupEngine rollupEngine = new RollupEngine(this::readRows);
+
+    private long insertedRows;
+    private long insertNanos;
+    private volatile double lastInsertRate;
 
     static {
         try {
@@ -61,11 +82,28 @@ public class SqlLiteConnector implements SQLConnector {
     public SqlLiteConnector() {
         try {
             getConnection();
-            Statement statement = con.createStatement();
-            for(GeneralTimePeriod table: GeneralTimePeriod.values()){
-               if(statement.execute(createTableStatement(table.toString()))){
-                   log.debug("Created new table for {}",table);
-               }
+            int moved = connections.write(connection -> {
+                try(Statement statement = connection.getConnection().createStatement()){
+                    for(GeneralTimePeriod table: GeneralTimePeriod.values()){
+                        statement.execute(createTableStatement(table.toString()));
+                        statement.execute(createIndexStatement(table.toString()));
+                    }
+                    for(GeneralTimePeriod table: BLOCK_PERIODS){
+                        statement.execute(DayBlockStore.createTableStatement(table));
+                    }
+                    statement.execute(createCatalogStatement());
+                    statement.execute(RollupEngine.createTableStatement());
+                    statement.execute(createStoredRangesStatement());
+                }
+                return migrate(connection);
+            });
+            if(moved > 0){
+                connections.write(connection -> {
+                    try(Statement statement = connection.getConnection().createStatement()){
+                        statement.execute("VACUUM");
+                    }
+                    return null;
+                });
             }
         } catch (SQLException s){
             log.error("Failed to connect to sql-lite database: {} ", s.getMessage());
@@ -76,119 +114,753 @@ public class SqlLiteConnector implements SQLConnector {
      * Tries to establish a valid connection if none existis
      * @throws SQLException SQLException
      */
-    private void getConnection() throws SQLException{
-        if (con == null){
+    private synchronized void getConnection() throws SQLException{
+        if (connections == null || connections.isClosed()){
             String connectionString = String.format("jdbc:sqlite:%s",Parameter.DATABASE_PATH+Parameter.S+Parameter.DATABASE_NAME);
-            con = DriverManager.getConnection(connectionString);
-            log.debug("Connected to Database {}", connectionString);
+            connections = new SqlLiteConnectionManager(connectionString, createConfig(),
+                    Parameter.DATABASE_READ_CONNECTIONS, Parameter.DATABASE_WRITE_QUEUE_SIZE);
         }
     }
 
-    public synchronized List<SQLKey> getKeyList(GeneralTimePeriod table) throws SQLException{
-        getConnection();
-        String procedure = String.format("SELECT DISTINCT Symbol, Currency FROM %s", table);
-        Statement stmt = con.createStatement();
-        ResultSet res = stmt.executeQuery(procedure);
-        ArrayList<SQLKey> keys = new ArrayList<>();
-        while(res.next()){
-            String symbol = res.getString("Symbol").replaceAll("\\s","");
-            Currency currency = Currency.getInstance(res.getString("Currency"));
-            keys.add(new SQLKey(symbol,table,currency));
+    /**
+     * @return the configuration with the synchronous mode of {@link Parameter}
+     */
+    private SQLiteConfig createConfig(){
+        SQLiteConfig config = new SQLiteConfig();
+        try {
+            config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(Parameter.DATABASE_SYNCHRONOUS.trim().toUpperCase()));
+        } catch (IllegalArgumentException iae){
+            log.error("Unknown synchronous mode {}, using default", Parameter.DATABASE_SYNCHRONOUS);
         }
-        return keys;
+        return config;
+    }
+
+    /**
+     * @return true if the bars of the <tt>period</tt> are stored in the block layout
+     */
+    private static boolean isBlockLayout(GeneralTimePeriod period){
+        return Parameter.DATABASE_MINUTE_BLOCKS && BLOCK_PERIODS.contains(period);
+    }
+
+    /**
+     * Reads the keys of the <tt>table</tt> from the catalog
+     */
+    @Override
+    public List<SQLKey> getKeyList(GeneralTimePeriod table) throws SQLException{
+        getConnection();
+        return connections.read(connection -> {
+            ArrayList<SQLKey> keys = new ArrayList<>();
+            PreparedStatement statement = connection.prepare(
+                    String.format("SELECT Symbol, Currency FROM %s WHERE Period = ? ORDER BY Symbol, Currency", CATALOG));
+            statement.setString(1, table.toString());
+            try(ResultSet res = statement.executeQuery()){
+                while(res.next()){
+                    String symbol = res.getString("Symbol").replaceAll("\\s","");
+                    Currency currency = Currency.getInstance(res.getString("Currency"));
+                    keys.add(new SQLKey(symbol,table,currency));
+                }
+            }
+            return keys;
+        });
     }
 
     @Override
-    public boolean removeData(TaBarSeries series) throws SQLException {
+    public List<SeriesInfo> getSeriesInfos() throws SQLException {
+        getConnection();
+        return connections.read(connection -> {
+            List<SeriesInfo> infos = new ArrayList<>();
+            PreparedStatement statement = connection.prepare(String.format(
+                    "SELECT Period, Symbol, Currency, FirstDate, LastDate, Bars FROM %s ORDER BY Period, Symbol, Currency",
+                    CATALOG));
+            try(ResultSet res = statement.executeQuery()){
+                while(res.next()){
+                    GeneralTimePeriod period;
+                    try {
+                        period = GeneralTimePeriod.valueOf(res.getString("Period"));
+                    } catch (IllegalArgumentException iae){
+                        log.warn("Unknown period in catalog: {}", res.getString("Period"));
+                        continue;
+                    }
+                    SQLKey key = new SQLKey(res.getString("Symbol").replaceAll("\\s",""), period,
+                            Currency.getInstance(res.getString("Currency")));
+                    infos.add(new SeriesInfo(key, res.getLong("FirstDate"), res.getLong("LastDate"), res.getLong("Bars")));
+                }
+            }
+            return infos;
+        });
+    }
+
+    @Override
+    public boolean removeData(ChartBarSeries series) throws SQLException {
         return removeData(series.getKey());
     }
 
-    //TODO test
     @Override
     public boolean removeData(SQLKey key) throws SQLException {
         getConnection();
-        PreparedStatement pstmt = con.prepareStatement("DELETE FROM ? WHERE SYMBOL = ? AND Currency = ?");
-        pstmt.setString(1, key.period.toString());
-        pstmt.setString(2, key.currency.toString());
-        return pstmt.execute();
+        String procedure = String.format("DELETE FROM %s WHERE Symbol = ? AND Currency = ?", key.period);
+        return connections.write(connection -> {
+            PreparedStatement statement = connection.prepare(procedure);
+            statement.setString(1, key.symbol);
+            statement.setString(2, key.currency.getCurrencyCode());
+            boolean removed = statement.executeUpdate() > 0;
+            if(BLOCK_PERIODS.contains(key.period)){
+                removed |= blockStore.remove(connection, key.symbol, key.currency.getCurrencyCode(), key.period);
+            }
+            rollupEngine.remove(connection, key.symbol, key.currency.getCurrencyCode(), key.period);
+            PreparedStatement ranges = connection.prepare(String.format(
+                    "DELETE FROM %s WHERE Period = ? AND Symbol = ? AND Currency = ?", STORED_RANGES));
+            ranges.setString(1, key.period.toString());
+            ranges.setString(2, key.symbol);
+            ranges.setString(3, key.currency.getCurrencyCode());
+            ranges.executeUpdate();
+            removeFromCatalog(connection, key.symbol, key.currency.getCurrencyCode(), key.period);
+            return removed;
+        });
+    }
+
+    /**
+     * Inserts the bars of the <tt>series</tt> with a reused {@link PreparedStatement} in batches. Each batch of
+     * {@link Parameter#DATABASE_BATCH_SIZE} rows is written in one transaction. Waits until the writer thread has
+     * executed the insert.
+     */
+    @Override
+    public void insertData(ChartBarSeries series, boolean shouldReplace) throws SQLException{
+        getConnection();
+        connections.write(connection -> {
+            insertData(connection, series, shouldReplace);
+            return null;
+        });
     }
 
+    /**
+     * Adds the insert of the <tt>series</tt> to the queue of the writer thread. Blocks only while the write queue
+     * is full.
+     */
+    @Override
+    public CompletableFuture<Void> insertDataAsync(ChartBarSeries series, boolean shouldReplace) throws SQLException {
+        getConnection();
+        CompletableFuture<Void> result = connections.submitWrite(connection -> {
+            insertData(connection, series, shouldReplace);
+            return null;
+        });
+        log.debug("Write queue depth: {}/{}", connections.getWriteQueueDepth(), connections.getWriteQueueCapacity());
+        return result;
+    }
+
+    /**
+     * Adds the insert of the <tt>series</tt> and the range to the queue of the writer thread. The bars are committed
+     * in batches like {@link #insertData(ChartBarSeries, boolean)}, the range is recorded in its own transaction after
+     * the last batch, so that a range is never recorded for bars that have not been committed. If the insert fails
+     * the batches that have been committed before are kept, but the range is not recorded.
+     */
     @Override
-    public synchronized void insertData(TaBarSeries series, boolean shouldReplace) throws SQLException{
+    public CompletableFuture<Void> insertDataAsync(ChartBarSeries series, boolean shouldReplace, long from, long to)
+            throws SQLException {
+        getConnection();
+        return connections.submitWrite(connection -> {
+            Connection con = connection.getConnection();
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try {
+                insertData(connection, series, shouldReplace); // commits the bars
+                addStoredRange(connection, series.getKey(), from, to);
+                con.commit();
+            } catch (SQLException sqle){
+                con.rollback();
+                throw sqle;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
 
-        Statement statement = con.createStatement();
+    @Override
+    public List<long[]> getStoredRanges(SQLKey key) throws SQLException {
         getConnection();
-        String table = series.getTimeFormatType().toString();
+        return connections.read(connection -> {
+            PreparedStatement statement = connection.prepare(String.format("SELECT FromDate, ToDate FROM %s " +
+                    "WHERE Period = ? AND Symbol = ? AND Currency = ? ORDER BY FromDate", STORED_RANGES));
+            statement.setString(1, key.period.toString());
+            statement.setString(2, key.symbol);
+            statement.setString(3, key.currency.getCurrencyCode());
+            List<long[]> ranges = new ArrayList<>();
+            try(ResultSet rset = statement.executeQuery()){
+                while(rset.next()){
+                    ranges.add(new long[]{rset.getLong(1), rset.getLong(2)});
+                }
+            }
+            return ranges;
+        });
+    }
+
+    /**
+     * Adds the range to the stored ranges of the <tt>key</tt>, overlapping or adjacent ranges are merged
+     */
+    private void addStoredRange(PooledConnection connection, SQLKey key, long from, long to) throws SQLException {
+        PreparedStatement overlapping = connection.prepare(String.format("SELECT MIN(FromDate), MAX(ToDate) FROM %s " +
+                "WHERE Period = ? AND Symbol = ? AND Currency = ? AND FromDate <= ? AND ToDate >= ?", STORED_RANGES));
+        overlapping.setString(1, key.period.toString());
+        overlapping.setString(2, key.symbol);
+        overlapping.setString(3, key.currency.getCurrencyCode());
+        overlapping.setLong(4, to == Long.MAX_VALUE ? to : to + 1);
+        overlapping.setLong(5, from == Long.MIN_VALUE ? from : from - 1);
+        try(ResultSet rset = overlapping.executeQuery()){
+            if(rset.next()){
+                long first = rset.getLong(1);
+                if(!rset.wasNull()){
+                    from = Math.min(from, first);
+                    to = Math.max(to, rset.getLong(2));
+                }
+            }
+        }
+        PreparedStatement delete = connection.prepare(String.format("DELETE FROM %s " +
+                "WHERE Period = ? AND Symbol = ? AND Currency = ? AND FromDate >= ? AND ToDate <= ?", STORED_RANGES));
+        delete.setString(1, key.period.toString());
+        delete.setString(2, key.symbol);
+        delete.setString(3, key.currency.getCurrencyCode());
+        delete.setLong(4, from);
+        delete.setLong(5, to);
+        delete.executeUpdate();
+        PreparedStatement insert = connection.prepare(String.format("INSERT OR REPLACE INTO %s " +
+                "(Period, Symbol, Currency, FromDate, ToDate) VALUES(?, ?, ?, ?, ?)", STORED_RANGES));
+        insert.setString(1, key.period.toString());
+        insert.setString(2, key.symbol);
+        insert.setString(3, key.currency.getCurrencyCode());
+        insert.setLong(4, from);
+        insert.setLong(5, to);
+        insert.executeUpdate();
+    }
+
+    /**
+     * @return the number of write jobs that are waiting for the writer thread
+     */
+    public int getWriteQueueDepth(){
+        return connections == null ? 0 : connections.getWriteQueueDepth();
+    }
+
+    private void insertData(PooledConnection connection, ChartBarSeries series, boolean shouldReplace) throws SQLException{
+        Connection con = connection.getConnection();
+        GeneralTimePeriod period = series.getTimeFormatType();
+        String symbol = series.getName();
+        Currency currency = series.getCurrency();
         String insert = "INSERT OR IGNORE INTO";
         if(shouldReplace) {
             insert = "INSERT OR REPLACE INTO";
         }
+        String procedure = String.format("%s %s (Symbol, Currency, Date, Open, High, Low, Close, Volume) " +
+                "VALUES(?, ?, ?, ?, ?, ?, ?, ?)", insert, period);
+
+        boolean blocks = isBlockLayout(period);
+        boolean unmark = shouldReplace && !blocks && RollupEngine.isTarget(period);
+        int batchSize = Math.max(1, Parameter.DATABASE_BATCH_SIZE);
+        ColumnarBarSeries columnar = series instanceof ColumnarBarSeries ? (ColumnarBarSeries) series : null;
+        long start = System.nanoTime();
+        int rows = 0;
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        DayBlockStore.Rows batch = new DayBlockStore.Rows(blocks ? Math.min(batchSize, series.getBarCount()) : 0);
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try{
+            PreparedStatement statement = connection.prepare(procedure);
+            for(int i = series.getBeginIndex(); i <= series.getEndIndex() && i >= 0; i++){
+                long date;
+                double open, high, low, close, volume;
+                if(columnar != null){
+                    date = columnar.getEndEpochSecond(i);
+                    open = columnar.getOpen(i);
+                    high = columnar.getHigh(i);
+                    low = columnar.getLow(i);
+                    close = columnar.getClose(i);
+                    volume = columnar.getVolume(i);
+                } else {
+                    Bar bar = series.getBar(i);
+                    date = bar.getEndTime().toEpochSecond();
+                    open = bar.getOpenPrice().doubleValue();
+                    high = bar.getHighPrice().doubleValue();
+                    low = bar.getLowPrice().doubleValue();
+                    close = bar.getClosePrice().doubleValue();
+                    volume = bar.getVolume().doubleValue();
+                }
+                first = Math.min(first, date);
+                last = Math.max(last, date);
+                if(blocks){
+                    batch.add(date, CalculationUtils.currencyValueToLong(open, currency),
+                            CalculationUtils.currencyValueToLong(high, currency),
+                            CalculationUtils.currencyValueToLong(low, currency),
+                            CalculationUtils.currencyValueToLong(close, currency), volume);
+                } else {
+                    statement.setString(1, symbol);
+                    statement.setString(2, currency.getCurrencyCode());
+                    statement.setLong(3, date);
+                    statement.setLong(4, CalculationUtils.currencyValueToLong(open, currency));
+                    statement.setLong(5, CalculationUtils.currencyValueToLong(high, currency));
+                    statement.setLong(6, CalculationUtils.currencyValueToLong(low, currency));
+                    statement.setLong(7, CalculationUtils.currencyValueToLong(close, currency));
+                    statement.setDouble(8, volume);
+                    statement.addBatch();
+                    if(unmark){
+                        rollupEngine.unmark(connection, symbol, currency.getCurrencyCode(), period, date);
+                    }
+                }
+                if(++rows % batchSize == 0){
+                    flush(connection, statement, batch, symbol, currency, period, shouldReplace);
+                    con.commit();
+                }
+            }
+            flush(connection, statement, batch, symbol, currency, period, shouldReplace);
+            if(rows > 0){
+                updateCatalog(connection, symbol, currency.getCurrencyCode(), period);
+            }
+            con.commit();
+            if(Parameter.DATABASE_ROLLUP && rows > 0){
+                rollup(connection, symbol, currency.getCurrencyCode(), period, first, last);
+            }
+        } catch (SQLException | ArithmeticException e){
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+        long nanos = System.nanoTime() - start;
+        synchronized (this){
+            insertedRows += rows;
+            insertNanos += nanos;
+        }
+        lastInsertRate = rows / Math.max(nanos / 1e9, 1e-9);
+        log.info("Inserted {} rows of {} into {} in {} ms ({} rows/s)",
+                rows, symbol, period, nanos / 1000000, Math.round(lastInsertRate));
+    }
+
+    /**
+     * Writes the batched rows or blocks of an insert
+     */
+    private void flush(PooledConnection connection, PreparedStatement statement, DayBlockStore.Rows batch,
+                       String symbol, Currency currency, GeneralTimePeriod period, boolean replace) throws SQLException {
+        if(batch.size() > 0){
+            blockStore.write(connection, symbol, currency.getCurrencyCode(), period, sorted(batch), replace);
+            batch.size = 0;
+        } else {
+            statement.executeBatch();
+            if(replace && RollupEngine.isTarget(period)){
+                rollupEngine.flushUnmarked(connection);
+            }
+        }
+    }
+
+    /**
+     * @return the <tt>rows</tt> if they are in ascending order of their date, otherwise a sorted copy
+     */
+    private static DayBlockStore.Rows sorted(DayBlockStore.Rows rows){
+        boolean ascending = true;
+        for(int i = 1; i < rows.size && ascending; i++){
+            ascending = rows.dates[i - 1] <= rows.dates[i];
+        }
+        if(ascending){
+            return rows;
+        }
+        Integer[] order = new Integer[rows.size];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(rows.dates[a], rows.dates[b]));
+        DayBlockStore.Rows sorted = new DayBlockStore.Rows(rows.size);
+        for(int i: order){
+            sorted.add(rows.dates[i], rows.open[i], rows.high[i], rows.low[i], rows.close[i], rows.volume[i]);
+        }
+        return sorted;
+    }
+
+    /**
+     * Reads the stored rows of the <tt>table</tt> between <tt>from</tt> and <tt>to</tt> (inclusive) in ascending
+     * order from the row or block layout
+     */
+    private void readRows(PooledConnection connection, String symbol, String currency, GeneralTimePeriod table,
+                          long from, long to, ScaledRowHandler handler) throws SQLException {
+        if(isBlockLayout(table)){
+            blockStore.read(connection, symbol, currency, table, from, to, handler);
+            return;
+        }
+        PreparedStatement statement = connection.prepare(String.format(
+                "SELECT Date, Open, High, Low, Close, Volume FROM %s " +
+                        "WHERE Symbol = ? AND Currency = ? AND Date >= ? AND Date <= ? ORDER BY Date ASC",
+                table));
+        statement.setString(1, symbol);
+        statement.setString(2, currency);
+        statement.setLong(3, from);
+        statement.setLong(4, to);
+        try(ResultSet rset = statement.executeQuery()){
+            readRows(rset, handler);
+        }
+    }
+
+    /**
+     * Passes all rows (Date, Open, High, Low, Close, Volume) of the <tt>rset</tt> to the <tt>handler</tt>
+     */
+    private static void readRows(ResultSet rset, ScaledRowHandler handler) throws SQLException {
+        while (rset.next()){
+            long date = rset.getLong(1);
+            long open = rset.getLong(2);
+            long high = rset.getLong(3);
+            long low = rset.getLong(4);
+            long close = rset.getLong(5);
+            double volume = rset.getDouble(6);
+            handler.row(date, open, high, low, close, rset.wasNull() ? Double.NaN : volume);
+        }
+    }
+
+    /**
+     * @return a handler that adds the rows with the prices of the <tt>currency</tt> to the <tt>columns</tt>
+     */
+    private static ScaledRowHandler toColumns(BarColumns columns, Currency currency){
+        return (date, open, high, low, close, volume) -> columns.add(date,
+                CalculationUtils.longToCurrencyValue(open, currency),
+                CalculationUtils.longToCurrencyValue(high, currency),
+                CalculationUtils.longToCurrencyValue(low, currency),
+                CalculationUtils.longToCurrencyValue(close, currency), volume);
+    }
+
+    /**
+     * Aggregates the bars of <tt>table</tt> between <tt>from</tt> and <tt>to</tt> into the coarser tables in one
+     * transaction (see {@link RollupEngine})
+     */
+    private void rollup(PooledConnection connection, String symbol, String currency, GeneralTimePeriod table,
+                        long from, long to) throws SQLException {
+        if(RollupEngine.targetsOf(table).isEmpty()){
+            return;
+        }
+        long start = System.nanoTime();
+        int bars = rollupEngine.update(connection, symbol, currency, table, from, to);
+        if(bars > 0){
+            updateDerivedCatalog(connection, symbol, currency, table);
+        }
+        connection.getConnection().commit();
+        log.info("Aggregated {} bars of {} from {} in {} ms", bars, symbol, table, (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Aggregates all stored bars of the <tt>key</tt> into the coarser tables again, e.g. for data that has been
+     * stored before the aggregation was enabled
+     * @param key the key of the finer time series
+     * @throws SQLException SQLException
+     */
+    public void rebuildRollups(SQLKey key) throws SQLException {
+        getConnection();
+        connections.write(connection -> {
+            long[] bounds = {Long.MAX_VALUE, Long.MIN_VALUE};
+            ScaledRowHandler handler = (date, open, high, low, close, volume) -> {
+                bounds[0] = Math.min(bounds[0], date);
+                bounds[1] = Math.max(bounds[1], date);
+            };
+            readBoundary(connection, key, false, handler);
+            readBoundary(connection, key, true, handler);
+            if(bounds[0] > bounds[1]){
+                return null;
+            }
+            Connection con = connection.getConnection();
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try {
+                rollup(connection, key.symbol, key.currency.getCurrencyCode(), key.period, bounds[0], bounds[1]);
+            } catch (SQLException sqle){
+                con.rollback();
+                throw sqle;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    private static String createStoredRangesStatement(){
+        return String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                "Period VARCHAR (20), " +
+                "Symbol VARCHAR (50), " +
+                "Currency VARCHAR (3), " +
+                "FromDate INTEGER, " +
+                "ToDate INTEGER, " +
+                "PRIMARY KEY (Period, Symbol, Currency, FromDate));", STORED_RANGES);
+    }
+
+    private static String createCatalogStatement(){
+        return String.format("CREATE TABLE IF NOT EXISTS %s (" +
+                "Period VARCHAR (20), " +
+                "Symbol VARCHAR (50), " +
+                "Currency VARCHAR (3), " +
+                "FirstDate INTEGER, " +
+                "LastDate INTEGER, " +
+                "Bars INTEGER, " +
+                "PRIMARY KEY (Period, Symbol, Currency));", CATALOG);
+    }
+
+    /**
+     * Sets the range and size of the stored time series in the catalog (or removes it if there are no bars). The
+     * range is read from the (Symbol, Currency, Date) index or the first and last block
+     */
+    private void updateCatalog(PooledConnection connection, String symbol, String currency, GeneralTimePeriod period)
+            throws SQLException {
+        long[] bounds = {Long.MAX_VALUE, Long.MIN_VALUE};
+        ScaledRowHandler handler = (date, open, high, low, close, volume) -> {
+            bounds[0] = Math.min(bounds[0], date);
+            bounds[1] = Math.max(bounds[1], date);
+        };
+        SQLKey key = new SQLKey(symbol, period, Currency.getInstance(currency));
+        readBoundary(connection, key, false, handler);
+        readBoundary(connection, key, true, handler);
+        if(bounds[0] > bounds[1]){
+            removeFromCatalog(connection, symbol, currency, period);
+            return;
+        }
+        PreparedStatement count = connection.prepare(isBlockLayout(period)
+                ? String.format("SELECT SUM(Count) FROM %s WHERE Symbol = ? AND Currency = ?", DayBlockStore.tableOf(period))
+                : String.format("SELECT COUNT(*) FROM %s WHERE Symbol = ? AND Currency = ?", period));
+        count.setString(1, symbol);
+        count.setString(2, currency);
+        long bars;
+        try(ResultSet rset = count.executeQuery()){
+            bars = rset.next() ? rset.getLong(1) : 0;
+        }
+        PreparedStatement statement = connection.prepare(String.format("INSERT OR REPLACE INTO %s " +
+                "(Period, Symbol, Currency, FirstDate, LastDate, Bars) VALUES(?, ?, ?, ?, ?, ?)", CATALOG));
+        statement.setString(1, period.toString());
+        statement.setString(2, symbol);
+        statement.setString(3, currency);
+        statement.setLong(4, bounds[0]);
+        statement.setLong(5, bounds[1]);
+        statement.setLong(6, bars);
+        statement.executeUpdate();
+    }
 
-        int fractionDigits = series.getCurrency().getDefaultFractionDigits();
-        Num base = Parameter.numFunction.apply((int) Math.pow(10,fractionDigits));
-        for (Bar cd : series.getBarData()) {
-            String procedure =
-                    String.format("%s %s (Symbol, Currency, Date, Open, High, Low, Close, Volume) " +
-                                    "VALUES('%s', '%s', '%s', '%s', %s, %s, %s, %s)",
-                            insert,
-                            table,
-                            series.getName(),
-                            series.getCurrency().getCurrencyCode(),
-                            cd.getEndTime().toEpochSecond(),
-                            cd.getOpenPrice().multipliedBy(base),
-                            cd.getHighPrice().multipliedBy(base),
-                            cd.getLowPrice().multipliedBy(base),
-                            cd.getClosePrice().multipliedBy(base),
-                            cd.getVolume());
-            statement.execute(procedure);
+    /**
+     * Updates the catalog entries of all tables that are aggregated from the <tt>source</tt> table
+     */
+    private void updateDerivedCatalog(PooledConnection connection, String symbol, String currency,
+                                      GeneralTimePeriod source) throws SQLException {
+        for(GeneralTimePeriod target: RollupEngine.targetsOf(source)){
+            updateCatalog(connection, symbol, currency, target);
+            updateDerivedCatalog(connection, symbol, currency, target);
         }
     }
 
+    private void removeFromCatalog(PooledConnection connection, String symbol, String currency, GeneralTimePeriod period)
+            throws SQLException {
+        PreparedStatement statement = connection.prepare(String.format(
+                "DELETE FROM %s WHERE Period = ? AND Symbol = ? AND Currency = ?", CATALOG));
+        statement.setString(1, period.toString());
+        statement.setString(2, symbol);
+        statement.setString(3, currency);
+        statement.executeUpdate();
+    }
+
+    /**
+     * @return the insert throughput (rows per second) of the last {@link #insertData(ChartBarSeries, boolean)} call
+     */
+    public double getLastInsertRate(){
+        return lastInsertRate;
+    }
+
+    /**
+     * @return the average insert throughput (rows per second) of all inserts of this connector
+     */
+    public synchronized double getAverageInsertRate(){
+        return insertNanos == 0 ? 0 : insertedRows / (insertNanos / 1e9);
+    }
+
+    /**
+     * @return the number of rows that have been inserted by this connector
+     */
+    public synchronized long getInsertedRows(){
+        return insertedRows;
+    }
+
+    /**
+     * Reads the bar with the highest date of <tt>key</tt>. The MAX(Date) sub query is answered by the
+     * (Symbol, Currency, Date) index without a table scan
+     * @return the last bar or null if there is no stored bar for the <tt>key</tt>
+     */
     @Override
     public Bar getLastBar(SQLKey key) {
-        return null;
+        return getBoundaryBar(key, true);
     }
 
+    /**
+     * Reads the bar with the lowest date of <tt>key</tt> (see {@link #getLastBar(SQLKey)})
+     * @return the first bar or null if there is no stored bar for the <tt>key</tt>
+     */
     @Override
     public Bar getFirstBar(SQLKey key) {
-        return null;
+        return getBoundaryBar(key, false);
+    }
+
+    private Bar getBoundaryBar(SQLKey key, boolean last){
+        try {
+            getConnection();
+            BarColumns columns = new BarColumns(1);
+            connections.read(connection -> {
+                readBoundary(connection, key, last, toColumns(columns, key.currency));
+                return null;
+            });
+            if(columns.isEmpty()){
+                return null;
+            }
+            return columns.toSeries(key.symbol, key.currency, key.period).getBar(0);
+        } catch (SQLException sqle){
+            log.error("Could not read {} bar of {}: {}", last ? "last" : "first", key, sqle.getMessage());
+            return null;
+        }
+    }
+
+    private void readBoundary(PooledConnection connection, SQLKey key, boolean last, ScaledRowHandler handler)
+            throws SQLException {
+        if(isBlockLayout(key.period)){
+            blockStore.readBoundary(connection, key.symbol, key.currency.getCurrencyCode(), key.period, last, handler);
+            return;
+        }
+        PreparedStatement statement = connection.prepare(String.format(
+                "SELECT Date, Open, High, Low, Close, Volume FROM %1$s " +
+                        "WHERE Symbol = ? AND Currency = ? AND Date = " +
+                        "(SELECT %2$s(Date) FROM %1$s WHERE Symbol = ? AND Currency = ?)",
+                key.period, last ? "MAX" : "MIN"));
+        statement.setString(1, key.symbol);
+        statement.setString(2, key.currency.getCurrencyCode());
+        statement.setString(3, key.symbol);
+        statement.setString(4, key.currency.getCurrencyCode());
+        try(ResultSet rset = statement.executeQuery()){
+            readRows(rset, handler);
+        }
     }
 
     /**
-     *
-     * @param rset the result set
-     * @return a BarSeries object
-     * @throws SQLException d
+     * Brings the database to the current {@link #SCHEMA_VERSION} (integer values, catalog) and moves the bars of
+     * the block periods to the configured layout in one transaction
+     * @return the number of moved bars
      */
-    private TaBarSeries transformResultSet(ResultSet rset, GeneralTimePeriod timeFormatType) throws SQLException {
-        List<Bar> ticks = new ArrayList<>();
-
-        String name=null;
-        Currency currency=null;
+    private int migrate(PooledConnection connection) throws SQLException {
+        Connection con = connection.getConnection();
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try(Statement statement = con.createStatement()){
+            int version;
+            try(ResultSet rset = statement.executeQuery("PRAGMA user_version")){
+                version = rset.next() ? rset.getInt(1) : 0;
+            }
+            if(version < 1){
+                // older versions stored the prices as decimal numbers and the dates as text
+                for(GeneralTimePeriod table: GeneralTimePeriod.values()){
+                    int updated = statement.executeUpdate(normalizeStatement(table.toString()));
+                    if(updated > 0){
+                        log.info("Converted {} rows of {} to 64 bit integers", updated, table);
+                    }
+                }
+            }
+            int moved = 0;
+            for(GeneralTimePeriod table: BLOCK_PERIODS){
+                moved += moveToLayout(connection, table);
+            }
+            if(version < 2){
+                buildCatalog(connection);
+            }
+            if(version < SCHEMA_VERSION){
+                statement.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+            }
+            con.commit();
+            return moved;
+        } catch (SQLException sqle){
+            con.rollback();
+            throw sqle;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
 
-        while (rset.next()){
-            try {
-                Instant i = Instant.ofEpochSecond(Long.parseLong(rset.getString("Date")));
-                ZonedDateTime time = ZonedDateTime.ofInstant(i, ZoneId.systemDefault());
-                name = rset.getString("Symbol");
-                currency = Currency.getInstance(rset.getString("Currency"));
-                BaseBar line = new BaseBar(Duration.ZERO, time,
-                    CalculationUtils.integerToCurrencyValue(rset.getInt("Open"), currency),
-                    CalculationUtils.integerToCurrencyValue(rset.getInt("High"), currency),
-                    CalculationUtils.integerToCurrencyValue(rset.getInt("Low"), currency),
-                    CalculationUtils.integerToCurrencyValue(rset.getInt("Close"), currency),
-                    Parameter.numFunction.apply(rset.getInt("Volume")),
-                    Parameter.numFunction.apply(0) ); //TODO amount is 0
-                ticks.add(line);
-            } catch (DateTimeParseException dte){
-                dte.printStackTrace();
-                log.error("Could not be transformed: {} {}",
-                        name==null?"unnamed":name,
-                        rset.getString("Datum"));
+    /**
+     * Moves the bars of the <tt>table</tt> from the row layout into the block layout or back, depending on
+     * {@link Parameter#DATABASE_MINUTE_BLOCKS}
+     */
+    private int moveToLayout(PooledConnection connection, GeneralTimePeriod table) throws SQLException {
+        boolean toBlocks = isBlockLayout(table);
+        String sourceTable = toBlocks ? table.toString() : DayBlockStore.tableOf(table);
+        List<String[]> keys = new ArrayList<>();
+        try(ResultSet rset = connection.prepare(String.format("SELECT DISTINCT Symbol, Currency FROM %s", sourceTable))
+                .executeQuery()){
+            while(rset.next()){
+                keys.add(new String[]{rset.getString(1), rset.getString(2)});
+            }
+        }
+        int moved = 0;
+        for(String[] key: keys){
+            DayBlockStore.Rows rows = new DayBlockStore.Rows(1024);
+            if(toBlocks){
+                PreparedStatement statement = connection.prepare(String.format(
+                        "SELECT Date, Open, High, Low, Close, Volume FROM %s WHERE Symbol = ? AND Currency = ? ORDER BY Date ASC",
+                        table));
+                statement.setString(1, key[0]);
+                statement.setString(2, key[1]);
+                try(ResultSet rset = statement.executeQuery()){
+                    readRows(rset, rows::add);
+                }
+                blockStore.write(connection, key[0], key[1], table, rows, false);
+                PreparedStatement delete = connection.prepare(String.format(
+                        "DELETE FROM %s WHERE Symbol = ? AND Currency = ?", table));
+                delete.setString(1, key[0]);
+                delete.setString(2, key[1]);
+                delete.executeUpdate();
+            } else {
+                blockStore.read(connection, key[0], key[1], table, Long.MIN_VALUE, Long.MAX_VALUE, rows::add);
+                PreparedStatement insert = connection.prepare(String.format("INSERT OR IGNORE INTO %s " +
+                        "(Symbol, Currency, Date, Open, High, Low, Close, Volume) VALUES(?, ?, ?, ?, ?, ?, ?, ?)", table));
+                insert.setString(1, key[0]);
+                insert.setString(2, key[1]);
+                for(int i = 0; i < rows.size; i++){
+                    insert.setLong(3, rows.dates[i]);
+                    insert.setLong(4, rows.open[i]);
+                    insert.setLong(5, rows.high[i]);
+                    insert.setLong(6, rows.low[i]);
+                    insert.setLong(7, rows.close[i]);
+                    insert.setDouble(8, rows.volume[i]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                blockStore.remove(connection, key[0], key[1], table);
+            }
+            updateCatalog(connection, key[0], key[1], table);
+            moved += rows.size;
+        }
+        if(moved > 0){
+            log.info("Moved {} bars of {} to the {} layout", moved, table, toBlocks ? "block" : "row");
+        }
+        return moved;
+    }
 
+    /**
+     * Fills the catalog with the range and size of all stored time series, once for databases of older versions
+     */
+    private void buildCatalog(PooledConnection connection) throws SQLException {
+        try(Statement statement = connection.getConnection().createStatement()){
+            statement.execute(String.format("DELETE FROM %s", CATALOG));
+            for(GeneralTimePeriod table: GeneralTimePeriod.values()){
+                if(isBlockLayout(table)){
+                    List<String[]> keys = new ArrayList<>();
+                    try(ResultSet rset = statement.executeQuery(String.format("SELECT DISTINCT Symbol, Currency FROM %s",
+                            DayBlockStore.tableOf(table)))){
+                        while(rset.next()){
+                            keys.add(new String[]{rset.getString(1), rset.getString(2)});
+                        }
+                    }
+                    for(String[] key: keys){
+                        updateCatalog(connection, key[0], key[1], table);
+                    }
+                } else {
+                    statement.execute(String.format("INSERT OR REPLACE INTO %1$s " +
+                            "(Period, Symbol, Currency, FirstDate, LastDate, Bars) " +
+                            "SELECT '%2$s', Symbol, Currency, MIN(Date), MAX(Date), COUNT(*) FROM %2$s " +
+                            "GROUP BY Symbol, Currency", CATALOG, table));
+                }
             }
         }
-        return new TaBarSeries(name,ticks,currency,timeFormatType);
+        log.info("Built catalog of stored time series");
     }
 
     private static String createTableStatement(String tableName){
@@ -209,57 +881,228 @@ public class SqlLiteConnector implements SQLConnector {
                 ,tableName);
     }
 
+    /**
+     * Index for range queries of one symbol (see {@link #getSymbolData(SQLKey, ZonedDateTime, ZonedDateTime)})
+     */
+    private static String createIndexStatement(String tableName){
+        return String.format("CREATE INDEX IF NOT EXISTS %1$s_Symbol_Currency_Date ON %1$s (Symbol, Currency, Date);",
+                tableName);
+    }
+
+    /**
+     * Converts text dates and decimal prices of schema version 0 to (rounded) integers
+     */
+    private static String normalizeStatement(String tableName){
+        return String.format("UPDATE OR REPLACE %s SET " +
+                "Date = CAST(Date AS INTEGER), " +
+                "Open = CAST(ROUND(Open) AS INTEGER), " +
+                "High = CAST(ROUND(High) AS INTEGER), " +
+                "Low = CAST(ROUND(Low) AS INTEGER), " +
+                "Close = CAST(ROUND(Close) AS INTEGER), " +
+                "Volume = CASE WHEN typeof(Volume) = 'text' THEN CAST(Volume AS REAL) ELSE Volume END " +
+                "WHERE typeof(Date) != 'integer' OR typeof(Open) != 'integer' OR typeof(High) != 'integer' " +
+                "OR typeof(Low) != 'integer' OR typeof(Close) != 'integer' OR typeof(Volume) = 'text';", tableName);
+    }
+
 	@Override
 	public List<String> getAllAvailableSymbols() throws Exception {
 		// TODO Auto-generated method stub
 		return null;
 	}
 
+	/**
+	 * Reads the bars of <tt>key</tt> between <tt>from</tt> and <tt>to</tt> with a cached {@link PreparedStatement}
+	 * (backed by the (Symbol, Currency, Date) index or the block table) of a read connection directly into the
+	 * columns of a {@link ColumnarBarSeries}
+	 */
 	@Override
-	public TaBarSeries getSymbolData(SQLKey key, ZonedDateTime from, ZonedDateTime to) throws Exception {
-        String table = key.period.toString();
-        String query = String.format(
-                "SELECT * FROM %s WHERE Symbol = '%s' AND Currency = '%s' AND Date >= '%s' AND Date <= '%s' order by Date asc, Symbol desc;",
-                table,key.symbol,key.currency.getCurrencyCode(), from.toEpochSecond(), to.toEpochSecond());
-
-
+	public ChartBarSeries getSymbolData(SQLKey key, ZonedDateTime from, ZonedDateTime to) throws Exception {
         getConnection();
-        Statement statement = con.createStatement();
-        log.debug("Query: {}",query);
-
-        ResultSet rset = statement.executeQuery(query);
-        return transformResultSet(rset, key.period);
+        BarColumns columns = new BarColumns();
+        connections.read(connection -> {
+            readRows(connection, key.symbol, key.currency.getCurrencyCode(), key.period,
+                    from.toEpochSecond(), to.toEpochSecond(), toColumns(columns, key.currency));
+            return null;
+        });
+        log.debug("Read {} bars of {}", columns.size(), key);
+        return columns.toSeries(key.symbol, key.currency, key.period);
 	}
 
 	@Override
-	public TaBarSeries getSymbolData(SQLKey key) throws Exception {
+	public ChartBarSeries getSymbolData(SQLKey key) throws Exception {
 		return getSymbolData(key, ZonedDateTime.now().minusYears(1000), ZonedDateTime.now().plusYears(1000));
 	}
 
+	/**
+	 * Reads the bars of all <tt>keys</tt> with batched queries (see
+	 * {@link #getSymbolData(List, ZonedDateTime, ZonedDateTime, boolean)}). The chunks are read in parallel if there
+	 * are at least {@link Parameter#DATABASE_PARALLEL_READ_KEYS} keys
+	 */
 	@Override
-	public List<TaBarSeries> getSymbolData(List<SQLKey> keys, ZonedDateTime from, ZonedDateTime to) throws Exception {
-		List<TaBarSeries> series = new ArrayList<>();
-		for(SQLKey key: keys) {
-			series.add(getSymbolData(key, from, to));
+	public List<ChartBarSeries> getSymbolData(List<SQLKey> keys, ZonedDateTime from, ZonedDateTime to) throws Exception {
+		return getSymbolData(keys, from, to, keys.size() >= Parameter.DATABASE_PARALLEL_READ_KEYS);
+	}
+
+	/**
+	 * Reads the bars of all <tt>keys</tt> between <tt>from</tt> and <tt>to</tt>. The keys are grouped by their period
+	 * and each chunk of up to {@link #MAX_KEYS_PER_QUERY} keys is read with one query, whose rows are split into the
+	 * series of the keys in one pass.
+	 * @param keys the keys of the time series
+	 * @param from the first date
+	 * @param to the last date
+	 * @param parallel if true the chunks are spread over the read connections of the pool and read concurrently
+	 * @return the series in the order of the <tt>keys</tt> (empty series for keys without stored bars)
+	 * @throws SQLException SQLException
+	 */
+	public List<ChartBarSeries> getSymbolData(List<SQLKey> keys, ZonedDateTime from, ZonedDateTime to, boolean parallel)
+			throws SQLException {
+		getConnection();
+		long start = System.nanoTime();
+		Map<String, BarColumns> columns = new HashMap<>();
+		Map<GeneralTimePeriod, List<SQLKey>> periods = new EnumMap<>(GeneralTimePeriod.class);
+		for(SQLKey key: keys){
+			if(columns.putIfAbsent(columnKey(key.period, key.symbol, key.currency.getCurrencyCode()), new BarColumns(64)) == null){
+				periods.computeIfAbsent(key.period, p -> new ArrayList<>()).add(key);
+			}
+		}
+		int chunkSize = MAX_KEYS_PER_QUERY;
+		if(parallel){
+			int readers = Math.max(1, Parameter.DATABASE_READ_CONNECTIONS);
+			chunkSize = Math.max(1, Math.min(MAX_KEYS_PER_QUERY, (columns.size() + readers - 1) / readers));
 		}
+		List<List<SQLKey>> chunks = new ArrayList<>();
+		for(List<SQLKey> periodKeys: periods.values()){
+			for(int i = 0; i < periodKeys.size(); i += chunkSize){
+				chunks.add(periodKeys.subList(i, Math.min(periodKeys.size(), i + chunkSize)));
+			}
+		}
+		long fromSecond = from.toEpochSecond();
+		long toSecond = to.toEpochSecond();
+		if(parallel && chunks.size() > 1){
+			List<CompletableFuture<Void>> reads = new ArrayList<>();
+			for(List<SQLKey> chunk: chunks){
+				reads.add(CompletableFuture.runAsync(() -> {
+					try {
+						connections.read(connection -> readChunk(connection, chunk, fromSecond, toSecond, columns));
+					} catch (SQLException sqle){
+						throw new CompletionException(sqle);
+					}
+				}));
+			}
+			try {
+				CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])).join();
+			} catch (CompletionException ce){
+				if(ce.getCause() instanceof SQLException){
+					throw (SQLException) ce.getCause();
+				}
+				throw ce;
+			}
+		} else {
+			connections.read(connection -> {
+				for(List<SQLKey> chunk: chunks){
+					readChunk(connection, chunk, fromSecond, toSecond, columns);
+				}
+				return null;
+			});
+		}
+		List<ChartBarSeries> series = new ArrayList<>(keys.size());
+		for(SQLKey key: keys){
+			series.add(columns.get(columnKey(key.period, key.symbol, key.currency.getCurrencyCode()))
+					.toSeries(key.symbol, key.currency, key.period));
+		}
+		log.debug("Read {} series with {} queries in {} ms", keys.size(), chunks.size(), (System.nanoTime() - start) / 1000000);
 		return series;
 	}
 
+	/**
+	 * Reads the bars of the <tt>keys</tt> (all with the same period) into their <tt>columns</tt>
+	 */
+	private Void readChunk(PooledConnection connection, List<SQLKey> keys, long from, long to,
+						   Map<String, BarColumns> columns) throws SQLException {
+		GeneralTimePeriod period = keys.get(0).period;
+		if(isBlockLayout(period)){
+			for(SQLKey key: keys){
+				String currency = key.currency.getCurrencyCode();
+				blockStore.read(connection, key.symbol, currency, period, from, to,
+						toColumns(columns.get(columnKey(period, key.symbol, currency)), key.currency));
+			}
+			return null;
+		}
+		// the keys are joined as a table of (ordinal, symbol, currency) rows, so that each row of the result can be
+		// assigned by its ordinal. The number of rows is rounded up to a power of two with empty keys, so that only a
+		// few different statements are prepared
+		int rows = 8;
+		while(rows < keys.size()){
+			rows <<= 1;
+		}
+		StringBuilder values = new StringBuilder(rows * 12);
+		for(int i = 0; i < rows; i++){
+			values.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+		}
+		PreparedStatement statement = connection.prepare(String.format(
+				"WITH Keys(Ordinal, Symbol, Currency) AS (VALUES %s) " +
+						"SELECT Keys.Ordinal, t.Date, t.Open, t.High, t.Low, t.Close, t.Volume " +
+						"FROM Keys CROSS JOIN %s AS t ON t.Symbol = Keys.Symbol AND t.Currency = Keys.Currency " +
+						"WHERE t.Date >= ? AND t.Date <= ?",
+				values, period));
+		ScaledRowHandler[] handlers = new ScaledRowHandler[keys.size()];
+		int index = 1;
+		for(int i = 0; i < rows; i++){
+			if(i < keys.size()){
+				SQLKey key = keys.get(i);
+				String currency = key.currency.getCurrencyCode();
+				handlers[i] = toColumns(columns.get(columnKey(period, key.symbol, currency)), key.currency);
+				statement.setInt(index++, i);
+				statement.setString(index++, key.symbol);
+				statement.setString(index++, currency);
+			} else {
+				statement.setInt(index++, -1);
+				statement.setNull(index++, Types.VARCHAR);
+				statement.setNull(index++, Types.VARCHAR);
+			}
+		}
+		statement.setLong(index++, from);
+		statement.setLong(index, to);
+		// the rows of a key are in ascending order of the index, the columns are sorted anyway
+		try(ResultSet rset = statement.executeQuery()){
+			while(rset.next()){
+				double volume = rset.getDouble(7);
+				if(rset.wasNull()){
+					volume = Double.NaN;
+				}
+				handlers[rset.getInt(1)].row(rset.getLong(2), rset.getLong(3), rset.getLong(4), rset.getLong(5),
+						rset.getLong(6), volume);
+			}
+		}
+		return null;
+	}
+
+	private static String columnKey(GeneralTimePeriod period, String symbol, String currency){
+		return period + "|" + symbol + "|" + currency;
+	}
+
 	@Override
 	public boolean connect(Void ressource) {
-		// TODO Auto-generated method stub
-		return false;
+		try {
+			getConnection();
+		} catch (SQLException sqle){
+			log.error("Failed to connect to sql-lite database: {} ", sqle.getMessage());
+		}
+		return isReady();
 	}
 
+	/**
+	 * Executes the queued writes and closes all connections
+	 */
 	@Override
-	public void disconnect() {
-		// TODO Auto-generated method stub
-		
+	public synchronized void disconnect() {
+		if(connections != null){
+			connections.close();
+		}
 	}
 
 	@Override
 	public boolean isReady() {
-		// TODO Auto-generated method stub
-		return false;
+		return connections != null && !connections.isClosed();
 	}
 }
@@ -4,6 +4,7 @@ import org.sjwimmer.tacharting.chart.model.key.Key;
 import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
 
 import java.util.Currency;
+import java.util.Objects;
 
 /**
  * Class for representing an unique entry in a SQL table
@@ -21,4 +22,21 @@ public class SQLKey extends Key {
         this.currency = currency;
     }
 
+    @Override
+    public boolean equals(Object o){
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof SQLKey)){
+            return false;
+        }
+        SQLKey other = (SQLKey) o;
+        return symbol.equals(other.symbol) && period == other.period && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode(){
+        return Objects.hash(symbol, period, currency);
+    }
+
 }
@@ -0,0 +1,267 @@
+package org.sjwimmer.tacharting.implementation.service;
+
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes downloads concurrently with a bounded number of threads. Requests to the same host are spaced by a rate
+ * limit and failed downloads are retried with exponential backoff, if the failure is not permanent (see
+ * {@link HttpStatusException#isRetryable()}). The progress of all downloads is reported to a {@link ProgressListener}.
+ */
+public class DownloadEngine {
+
+    private static final long MAX_BACKOFF = 30000;
+
+    private final Logger log = LoggerFactory.getLogger(DownloadEngine.class);
+    private final int concurrency;
+    private final long hostInterval;
+    private final int retries;
+    private final long backoff;
+    private final Map<String, HostLimit> hostLimits = new ConcurrentHashMap<>();
+
+    /**
+     * One download, executed on a thread of the engine
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    public interface Download<T> {
+        T download() throws IOException;
+    }
+
+    /**
+     * Receives the aggregate progress of the downloads (from the download threads)
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * @param done the number of finished (or failed) downloads
+         * @param total the number of downloads
+         * @param message a description of the last finished download
+         */
+        void progress(int done, int total, String message);
+    }
+
+    /**
+     * A download with the name and the host of its request
+     * @param <T> the result type
+     */
+    public static class Job<T> {
+
+        public final String name;
+        public final String host;
+        final Download<T> download;
+
+        public Job(String name, String host, Download<T> download){
+            this.name = name;
+            this.host = host;
+            this.download = download;
+        }
+
+        public Job(String name, URL url, Download<T> download){
+            this(name, url.getHost() + ":" + url.getPort(), download);
+        }
+    }
+
+    /**
+     * The result or the error of one {@link Job}
+     * @param <T> the result type
+     */
+    public static class Outcome<T> {
+
+        public final String name;
+        public final T value;
+        public final Exception error;
+        public final int attempts;
+
+        Outcome(String name, T value, Exception error, int attempts){
+            this.name = name;
+            this.value = value;
+            this.error = error;
+            this.attempts = attempts;
+        }
+
+        public boolean isSuccess(){
+            return error == null;
+        }
+    }
+
+    /**
+     * Http response with an error status code
+     */
+    public static class HttpStatusException extends IOException {
+
+        public final int status;
+        /** the delay (ms) the server asked for with a Retry-After header, or -1 */
+        public final long retryAfter;
+
+        public HttpStatusException(int status, String message, long retryAfter){
+            super(String.format("HTTP %d: %s", status, message));
+            this.status = status;
+            this.retryAfter = retryAfter;
+        }
+
+        /**
+         * @return true for too many requests (429) and server errors (5xx), other client errors are permanent
+         */
+        public boolean isRetryable(){
+            return status == 429 || status >= 500;
+        }
+
+        /**
+         * @param connection a connection with a response
+         * @throws HttpStatusException if the response has an error status code
+         * @throws IOException if the response could not be read
+         */
+        public static void check(HttpURLConnection connection) throws IOException {
+            int status = connection.getResponseCode();
+            if(status < 400){
+                return;
+            }
+            long retryAfter = -1;
+            String header = connection.getHeaderField("Retry-After");
+            if(header != null){
+                try {
+                    retryAfter = Long.parseLong(header.trim()) * 1000;
+                } catch (NumberFormatException nfe){
+                    // http date, use the backoff
+                }
+            }
+            throw new HttpStatusException(status, connection.getURL().toExternalForm(), retryAfter);
+        }
+    }
+
+    /**
+     * Creates an engine with the download settings of {@link Parameter}
+     */
+    public DownloadEngine(){
+        this(Parameter.DOWNLOAD_CONCURRENCY, Parameter.DOWNLOAD_HOST_RATE, Parameter.DOWNLOAD_RETRIES,
+                Parameter.DOWNLOAD_BACKOFF);
+    }
+
+    /**
+     * @param concurrency the maximal number of concurrent downloads
+     * @param hostRate the maximal number of requests per second to one host (&lt;= 0 for no limit)
+     * @param retries the number of retries of a failed download
+     * @param backoff the delay (ms) before the first retry, doubled for each further retry
+     */
+    public DownloadEngine(int concurrency, double hostRate, int retries, long backoff){
+        this.concurrency = Math.max(1, concurrency);
+        this.hostInterval = hostRate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / hostRate) : 0;
+        this.retries = Math.max(0, retries);
+        this.backoff = Math.max(0, backoff);
+    }
+
+    /**
+     * Executes all <tt>jobs</tt> and waits until they are finished. If the calling thread is interrupted (e.g. the
+     * task has been cancelled) the remaining downloads are cancelled.
+     * @param jobs the downloads
+     * @param listener the listener for the progress, may be null
+     * @return the outcomes in the order of the <tt>jobs</tt>
+     * @throws InterruptedException if the calling thread has been interrupted
+     */
+    public <T> List<Outcome<T>> run(List<Job<T>> jobs, ProgressListener listener) throws InterruptedException {
+        if(jobs.isEmpty()){
+            return new ArrayList<>();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, jobs.size()), r -> {
+            Thread thread = new Thread(r, "download-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger done = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            List<Future<Outcome<T>>> futures = new ArrayList<>(jobs.size());
+            for(Job<T> job: jobs){
+                futures.add(executor.submit(() -> {
+                    Outcome<T> outcome = execute(job);
+                    if(listener != null){
+                        listener.progress(done.incrementAndGet(), jobs.size(), outcome.isSuccess()
+                                ? String.format("Downloaded %s", job.name)
+                                : String.format("Download of %s failed: %s", job.name, outcome.error.getMessage()));
+                    }
+                    return outcome;
+                }));
+            }
+            List<Outcome<T>> outcomes = new ArrayList<>(jobs.size());
+            for(Future<Outcome<T>> future: futures){
+                try {
+                    outcomes.add(future.get());
+                } catch (ExecutionException ee){
+                    throw new IllegalStateException(ee.getCause()); // execute catches all exceptions
+                }
+            }
+            log.debug("Downloaded {} jobs with {} threads in {} ms", jobs.size(), concurrency,
+                    (System.nanoTime() - start) / 1000000);
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> Outcome<T> execute(Job<T> job) throws InterruptedException {
+        for(int attempt = 1; ; attempt++){
+            acquire(job.host);
+            try {
+                return new Outcome<>(job.name, job.download.download(), null, attempt);
+            } catch (IOException | RuntimeException e){
+                boolean retryable = !(e instanceof HttpStatusException) || ((HttpStatusException) e).isRetryable();
+                if(!retryable || attempt > retries || e instanceof RuntimeException){
+                    log.error("Download of {} failed after {} attempts: {}", job.name, attempt, e.getMessage());
+                    return new Outcome<>(job.name, null, e, attempt);
+                }
+                // the shift is clamped, so that many retries cannot overflow into a negative delay
+                long delay = Math.min(MAX_BACKOFF, Math.min(backoff, MAX_BACKOFF) << Math.min(attempt - 1, 30));
+                if(e instanceof HttpStatusException && ((HttpStatusException) e).retryAfter >= 0){
+                    delay = Math.min(MAX_BACKOFF, ((HttpStatusException) e).retryAfter);
+                }
+                delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1); // jitter, so retries do not align
+                log.warn("Download of {} failed ({}), retry in {} ms", job.name, e.getMessage(), delay);
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Waits until the next request to the <tt>host</tt> is allowed by the rate limit
+     */
+    private void acquire(String host) throws InterruptedException {
+        if(hostInterval <= 0){
+            return;
+        }
+        long wait = hostLimits.computeIfAbsent(host, h -> new HostLimit()).reserve(hostInterval);
+        if(wait > 0){
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * The time of the next free request slot of a host
+     */
+    private static class HostLimit {
+
+        private long next = Long.MIN_VALUE;
+
+        /**
+         * @return the time (ns) until the reserved slot
+         */
+        synchronized long reserve(long interval){
+            long now = System.nanoTime();
+            long slot = next == Long.MIN_VALUE ? now : Math.max(now, next);
+            next = slot + interval;
+            return slot - now;
+        }
+    }
+}
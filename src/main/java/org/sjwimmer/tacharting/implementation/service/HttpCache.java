@@ -0,0 +1,418 @@
+package org.sjwimmer.tacharting.implementation.service;
+
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache for http responses of the remote data sources, stored under {@link Parameter#HTTP_CACHE_PATH}.
+ * <p>
+ * A response that is younger than the time to live is read from the disk without a request. An older response is
+ * revalidated with a conditional request (If-None-Match/If-Modified-Since) if the server has sent an ETag or
+ * Last-Modified header, and read from the disk if the server answers with 304 Not Modified. Otherwise the response
+ * is requested again. The body of a new response is written to the cache while it is read by the caller. If the
+ * cache is larger than its maximal size the least recently used responses are removed.
+ */
+public class HttpCache {
+
+    private static final String BODY = ".body";
+    private static final String META = ".meta";
+    private static HttpCache defaultCache;
+
+    private final Logger log = LoggerFactory.getLogger(HttpCache.class);
+    private final Path directory;
+    private final long ttl;
+    private final long maxSize;
+    /** size of the cached bodies in access order */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Opens the connection of a request
+     */
+    @FunctionalInterface
+    public interface Request {
+
+        /**
+         * @param conditionalHeaders the headers of a conditional request, to be added to the request
+         * @return the connection with the response
+         * @throws IOException if the request failed
+         */
+        HttpURLConnection open(Map<String, String> conditionalHeaders) throws IOException;
+    }
+
+    /**
+     * The body of a response from the cache or the network
+     */
+    public static class Response extends FilterInputStream {
+
+        private final boolean cached;
+
+        Response(InputStream in, boolean cached){
+            super(in);
+            this.cached = cached;
+        }
+
+        /**
+         * @return true if the body has been read from the cache (with or without revalidation)
+         */
+        public boolean isCached(){
+            return cached;
+        }
+    }
+
+    /**
+     * @return the cache with the settings of {@link Parameter}, shared by all data sources
+     */
+    public static synchronized HttpCache getDefault(){
+        if(defaultCache == null){
+            defaultCache = new HttpCache(Paths.get(Parameter.HTTP_CACHE_PATH),
+                    TimeUnit.SECONDS.toMillis(Parameter.HTTP_CACHE_TTL), Parameter.HTTP_CACHE_SIZE * 1024 * 1024);
+        }
+        return defaultCache;
+    }
+
+    /**
+     * @param directory the directory for the cached responses
+     * @param ttl the time (ms) a response is used without revalidation
+     * @param maxSize the maximal size (bytes) of all cached bodies
+     */
+    public HttpCache(Path directory, long ttl, long maxSize){
+        this.directory = directory;
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+        load();
+    }
+
+    /**
+     * Returns the body of the response for the <tt>key</tt> (e.g. the url) from the cache or from the <tt>request</tt>
+     * @param key the key of the response
+     * @param request the request for the response if it is not cached or outdated
+     * @return the stream of the response body, that must be closed. A new response is only added to the cache if the
+     * stream has been read completely
+     * @throws IOException if the request failed ({@link DownloadEngine.HttpStatusException} for error responses)
+     */
+    public Response open(String key, Request request) throws IOException {
+        String name = hash(key);
+        Path body = directory.resolve(name + BODY);
+        Properties meta = readMeta(name);
+        boolean cached = meta != null && Files.isRegularFile(body);
+        long stored = cached ? Long.parseLong(meta.getProperty("stored", "0")) : 0;
+        if(cached && System.currentTimeMillis() - stored < ttl && touch(name)){
+            hits.incrementAndGet();
+            log.debug("Cache hit for {}", key);
+            return new Response(Files.newInputStream(body), true);
+        }
+
+        Map<String, String> conditionalHeaders = new HashMap<>();
+        if(cached){
+            if(meta.getProperty("etag") != null){
+                conditionalHeaders.put("If-None-Match", meta.getProperty("etag"));
+            }
+            if(meta.getProperty("last_modified") != null){
+                conditionalHeaders.put("If-Modified-Since", meta.getProperty("last_modified"));
+            }
+        }
+        HttpURLConnection connection = request.open(conditionalHeaders);
+        if(connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED){
+            connection.disconnect();
+            if(cached && !conditionalHeaders.isEmpty() && touch(name)){
+                meta.setProperty("stored", String.valueOf(System.currentTimeMillis()));
+                writeMeta(name, meta);
+                revalidations.incrementAndGet();
+                log.debug("Revalidated {}", key);
+                return new Response(Files.newInputStream(body), true);
+            }
+            // the cached body has been evicted since the conditional request, the empty 304 body must not be used
+            log.debug("Cached response of {} has been removed, requesting it again", key);
+            connection = request.open(new HashMap<>());
+            if(connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED){
+                connection.disconnect();
+                throw new DownloadEngine.HttpStatusException(HttpURLConnection.HTTP_NOT_MODIFIED,
+                        connection.getURL().toExternalForm(), -1);
+            }
+        }
+        DownloadEngine.HttpStatusException.check(connection);
+        misses.incrementAndGet();
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if(maxSize <= 0 || (cacheControl != null && cacheControl.toLowerCase().contains("no-store"))){
+            return new Response(connection.getInputStream(), false);
+        }
+        Properties newMeta = new Properties();
+        newMeta.setProperty("key", key);
+        if(connection.getHeaderField("ETag") != null){
+            newMeta.setProperty("etag", connection.getHeaderField("ETag"));
+        }
+        if(connection.getHeaderField("Last-Modified") != null){
+            newMeta.setProperty("last_modified", connection.getHeaderField("Last-Modified"));
+        }
+        return new Recorder(connection.getInputStream(), name, newMeta);
+    }
+
+    /**
+     * @return the number of responses that have been read from the cache without a request
+     */
+    public long getHits(){
+        return hits.get();
+    }
+
+    /**
+     * @return the number of responses that have been read from the cache after a conditional request
+     */
+    public long getRevalidations(){
+        return revalidations.get();
+    }
+
+    /**
+     * @return the number of responses that have been requested
+     */
+    public long getMisses(){
+        return misses.get();
+    }
+
+    /**
+     * @return the share of responses that have been read from the cache (with or without revalidation)
+     */
+    public double getHitRate(){
+        long cached = hits.get() + revalidations.get();
+        long total = cached + misses.get();
+        return total == 0 ? 0 : (double) cached / total;
+    }
+
+    /**
+     * @return the size (bytes) of all cached bodies
+     */
+    public synchronized long getSize(){
+        return size;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%d hits, %d revalidated, %d misses (hit rate %.0f%%), %d kB cached", getHits(),
+                getRevalidations(), getMisses(), getHitRate() * 100, getSize() / 1024);
+    }
+
+    /**
+     * Reads the cached bodies in the order of their last access (last modified time)
+     */
+    private synchronized void load(){
+        if(!Files.isDirectory(directory)){
+            return;
+        }
+        List<File> bodies = new ArrayList<>();
+        File[] files = directory.toFile().listFiles((dir, file) -> file.endsWith(BODY));
+        if(files != null){
+            bodies.addAll(Arrays.asList(files));
+        }
+        bodies.sort(Comparator.comparingLong(File::lastModified));
+        for(File file: bodies){
+            String fileName = file.getName();
+            entries.put(fileName.substring(0, fileName.length() - BODY.length()), file.length());
+            size += file.length();
+        }
+        evict();
+        log.debug("Loaded {} cached responses ({} kB)", entries.size(), size / 1024);
+    }
+
+    /**
+     * Marks the entry as recently used
+     * @return false if the entry is not in the cache (anymore)
+     */
+    private synchronized boolean touch(String name){
+        if(entries.get(name) == null){
+            return false;
+        }
+        directory.resolve(name + BODY).toFile().setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    private synchronized void add(String name, long bodySize){
+        Long previous = entries.put(name, bodySize);
+        size += bodySize - (previous == null ? 0 : previous);
+        evict();
+    }
+
+    private synchronized void evict(){
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while(size > maxSize && iterator.hasNext()){
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            try {
+                Files.deleteIfExists(directory.resolve(eldest.getKey() + BODY));
+                Files.deleteIfExists(directory.resolve(eldest.getKey() + META));
+            } catch (IOException ioe){
+                log.error("Could not remove cached response {}: {}", eldest.getKey(), ioe.getMessage());
+            }
+        }
+    }
+
+    private Properties readMeta(String name){
+        Path file = directory.resolve(name + META);
+        if(!Files.isRegularFile(file)){
+            return null;
+        }
+        Properties meta = new Properties();
+        try(InputStream in = Files.newInputStream(file)){
+            meta.load(in);
+            return meta;
+        } catch (IOException ioe){
+            log.debug("Could not read {}: {}", file, ioe.getMessage());
+            return null;
+        }
+    }
+
+    private void writeMeta(String name, Properties meta) throws IOException {
+        Path tmp = Files.createTempFile(directory, name, META);
+        try(OutputStream out = Files.newOutputStream(tmp)){
+            meta.store(out, null);
+        }
+        Files.move(tmp, directory.resolve(name + META), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String hash(String key){
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for(byte b: digest){
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException nsae){
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * Writes the bytes of a response body to a temporary file while they are read and adds the file to the cache
+     * when the body has been read completely
+     */
+    private class Recorder extends Response {
+
+        private final String name;
+        private final Properties meta;
+        private Path tmp;
+        private OutputStream copy;
+        private long length;
+        private boolean complete;
+        private boolean closed;
+
+        Recorder(InputStream in, String name, Properties meta){
+            super(in, false);
+            this.name = name;
+            this.meta = meta;
+            try {
+                Files.createDirectories(directory);
+                tmp = Files.createTempFile(directory, name, ".tmp");
+                copy = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16);
+            } catch (IOException ioe){
+                log.error("Could not cache response: {}", ioe.getMessage());
+                discard();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b < 0){
+                complete = true;
+            } else {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if(n < 0){
+                complete = true;
+            } else {
+                write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            for(int r; skipped < n && (r = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0;){
+                skipped += r;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported(){
+            return false;
+        }
+
+        private void write(byte[] b, int off, int len){
+            if(copy == null){
+                return;
+            }
+            try {
+                copy.write(b, off, len);
+                length += len;
+            } catch (IOException ioe){
+                log.error("Could not cache response: {}", ioe.getMessage());
+                discard();
+            }
+        }
+
+        private void discard(){
+            try {
+                if(copy != null){
+                    copy.close();
+                }
+                if(tmp != null){
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException ioe){
+                log.debug("Could not remove {}: {}", tmp, ioe.getMessage());
+            }
+            copy = null;
+            tmp = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if(closed){
+                return;
+            }
+            closed = true;
+            if(!complete || copy == null){
+                discard();
+                return;
+            }
+            try {
+                copy.close();
+                copy = null;
+                meta.setProperty("stored", String.valueOf(System.currentTimeMillis()));
+                writeMeta(name, meta);
+                Files.move(tmp, directory.resolve(name + BODY), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                add(name, length);
+            } catch (IOException ioe){
+                log.error("Could not cache response: {}", ioe.getMessage());
+                discard();
+            }
+        }
+    }
+}
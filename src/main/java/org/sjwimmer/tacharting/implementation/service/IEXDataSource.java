@@ -4,9 +4,14 @@ import java.time.*;
 import java.util.ArrayList;
 import java.util.Currency;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.sjwimmer.tacharting.chart.api.OHLCVDataSource;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
 import org.sjwimmer.tacharting.chart.model.TaBarSeries;
 import org.sjwimmer.tacharting.chart.model.types.GeneralTimePeriod;
 import org.sjwimmer.tacharting.chart.parameters.Parameter;
@@ -18,7 +23,7 @@ import org.slf4j.LoggerFactory;
 import org.ta4j.core.BaseBar;
 import org.ta4j.core.BaseBarSeries;
 import org.ta4j.core.BarSeries;
-import org.ta4j.core.num.PrecisionNum;
+import org.ta4j.core.num.Num;
 
 import pl.zankowski.iextrading4j.api.stocks.Chart;
 import pl.zankowski.iextrading4j.api.stocks.ChartRange;
@@ -66,8 +71,8 @@ public class IEXDataSource implements OHLCVDataSource<IEXKey, Object>{
 	}
 
 	@Override
-	public List<TaBarSeries> getSymbolData(List<IEXKey> symbols, ZonedDateTime from, ZonedDateTime to){
-		return symbols.stream().map(line -> {
+	public List<ChartBarSeries> getSymbolData(List<IEXKey> symbols, ZonedDateTime from, ZonedDateTime to){
+		return symbols.stream().<ChartBarSeries>map(line -> {
 			try {
 				return getSymbolData(line);
 			} catch (Exception e) {
@@ -110,6 +115,15 @@ public class IEXDataSource implements OHLCVDataSource<IEXKey, Object>{
 		
 	}
 
+	/**
+	 * The chart range of the configuration is always requested completely, so the series is passed as one chunk
+	 */
+	@Override
+	public CompletableFuture<Void> getSymbolDataChunked(IEXKey symbol, ZonedDateTime from, ZonedDateTime to,
+			Duration chunk, Consumer<ChartBarSeries> consumer, Executor executor) {
+		return getSymbolDataAsync(symbol, from, to, executor).thenAccept(consumer);
+	}
+
 	@Override
 	public void disconnect() {
 		// TODO Auto-generated method stub
@@ -130,11 +144,12 @@ public class IEXDataSource implements OHLCVDataSource<IEXKey, Object>{
 		
 		@Override
 		public TaBarSeries convert(List<Chart> others) {
-			BarSeries series = new BaseBarSeries(name, PrecisionNum::valueOf);
+			Function<Number, Num> numFunction = Parameter.numFunction;
+			BarSeries series = new BaseBarSeries(name, numFunction);
 			for(Chart other: others) {
 				ZonedDateTime time = ZonedDateTime.of(LocalDate.parse(other.getDate()),LocalTime.of(12, 0,0), ZoneId.systemDefault());
 				series.addBar(
-						new BaseBar(Duration.ZERO, time, Parameter.numFunction.apply(other.getOpen()), Parameter.numFunction.apply(other.getHigh()), Parameter.numFunction.apply(other.getLow()), Parameter.numFunction.apply(other.getClose()), Parameter.numFunction.apply(other.getVolume()),Parameter.numFunction.apply(0)));
+						new BaseBar(Duration.ZERO, time, numFunction.apply(other.getOpen()), numFunction.apply(other.getHigh()), numFunction.apply(other.getLow()), numFunction.apply(other.getClose()), numFunction.apply(other.getVolume()),numFunction.apply(0)));
 			}
 			return new TaBarSeries(series,Currency.getInstance("USD") ,FormatUtils.extractPeriod(series));
 		}	
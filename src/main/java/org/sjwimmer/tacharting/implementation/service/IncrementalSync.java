@@ -0,0 +1,123 @@
+package org.sjwimmer.tacharting.implementation.service;
+
+import org.sjwimmer.tacharting.chart.api.SQLConnector;
+import org.sjwimmer.tacharting.chart.model.BarColumns;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
+import org.sjwimmer.tacharting.chart.model.ColumnarBarSeries;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.sjwimmer.tacharting.implementation.model.api.key.SQLKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.ta4j.core.Bar;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Updates stored time series with the bars that are newer than the last stored bar. For each {@link SQLKey} the last
+ * stored bar is read with {@link SQLConnector#getLastBar(SQLKey)}, only the following period is requested from the
+ * data source and the new bars are appended with {@link SQLConnector#insertData(ChartBarSeries, boolean)}.
+ */
+public class IncrementalSync {
+
+    private final Logger log = LoggerFactory.getLogger(IncrementalSync.class);
+    private final SQLConnector connector;
+    private final BarRequest request;
+
+    /**
+     * Requests the bars of a stored time series from a data source
+     */
+    @FunctionalInterface
+    public interface BarRequest {
+
+        /**
+         * @param key the key of the stored time series
+         * @param from the end time of the last stored bar (or the default look back if nothing is stored)
+         * @param to the current time
+         * @return the bars of the data source, may contain bars that are already stored
+         * @throws Exception if the request failed
+         */
+        ChartBarSeries request(SQLKey key, ZonedDateTime from, ZonedDateTime to) throws Exception;
+    }
+
+    /**
+     * @param connector the database with the stored time series
+     * @param request the request for the data source of the time series
+     */
+    public IncrementalSync(SQLConnector connector, BarRequest request){
+        this.connector = connector;
+        this.request = request;
+    }
+
+    /**
+     * Appends the bars of the data source that are newer than the last stored bar of the <tt>key</tt>
+     * @param key the key of the stored time series
+     * @return the number of fetched and written bars
+     * @throws Exception if the request or the insert failed
+     */
+    public Result sync(SQLKey key) throws Exception {
+        long start = System.nanoTime();
+        Bar lastBar = connector.getLastBar(key);
+        ZonedDateTime to = ZonedDateTime.now();
+        ZonedDateTime from = lastBar == null ? to.minusYears(Parameter.DEFAULT_LOOK_BACK) : lastBar.getEndTime();
+        long lastSecond = lastBar == null ? Long.MIN_VALUE : lastBar.getEndTime().toEpochSecond();
+
+        ChartBarSeries fetched = request.request(key, from, to);
+        int fetchedBars = fetched == null ? 0 : fetched.getBarCount();
+        if(fetchedBars > 0 && fetched.getTimeFormatType() != key.period){
+            log.warn("Data source returned {} bars for {}, expected {}. Nothing written",
+                    fetched.getTimeFormatType(), key, key.period);
+            return new Result(key, fetchedBars, 0, System.nanoTime() - start);
+        }
+
+        BarColumns newBars = new BarColumns(fetchedBars);
+        if(fetchedBars > 0){
+            ColumnarBarSeries columnar = fetched instanceof ColumnarBarSeries ? (ColumnarBarSeries) fetched : null;
+            for(int i = fetched.getBeginIndex(); i <= fetched.getEndIndex(); i++){
+                if(columnar != null){
+                    if(columnar.getEndEpochSecond(i) > lastSecond){
+                        newBars.add(columnar.getEndEpochSecond(i), columnar.getOpen(i), columnar.getHigh(i),
+                                columnar.getLow(i), columnar.getClose(i), columnar.getVolume(i));
+                    }
+                    continue;
+                }
+                Bar bar = fetched.getBar(i);
+                if(bar.getEndTime().toEpochSecond() > lastSecond){
+                    newBars.add(bar.getEndTime().toEpochSecond(), bar.getOpenPrice().doubleValue(),
+                            bar.getHighPrice().doubleValue(), bar.getLowPrice().doubleValue(),
+                            bar.getClosePrice().doubleValue(), bar.getVolume().doubleValue());
+                }
+            }
+        }
+        int written = newBars.size();
+        if(written > 0){
+            connector.insertData(newBars.toSeries(key.symbol, key.currency, key.period), false);
+        }
+        Result result = new Result(key, fetchedBars, written, System.nanoTime() - start);
+        log.info("{}", result);
+        return result;
+    }
+
+    /**
+     * The outcome of one {@link #sync(SQLKey)} call
+     */
+    public static class Result {
+
+        public final SQLKey key;
+        public final int fetched;
+        public final int written;
+        public final long nanos;
+
+        Result(SQLKey key, int fetched, int written, long nanos){
+            this.key = key;
+            this.fetched = fetched;
+            this.written = written;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("Synchronized %s (%s): %d bars fetched, %d bars written in %d ms",
+                    key, key.period, fetched, written, nanos / 1000000);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.sjwimmer.tacharting.implementation.service;
+
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives the raw responses of a data source gzip compressed in a directory, e.g. for audits of downloaded data.
+ * The files are written by one background thread. If it falls behind, the thread that submits a response writes it
+ * itself, so that the number of buffered responses is bounded.
+ */
+public class ResponseArchive {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS");
+    private static final int QUEUE_SIZE = 32;
+    private static ResponseArchive yahooArchive;
+
+    private final Logger log = LoggerFactory.getLogger(ResponseArchive.class);
+    private final File directory;
+    private final ExecutorService writer;
+
+    /**
+     * @return the archive of the Yahoo responses in {@link Parameter#ARCHIVE_PATH}, shared by all Yahoo services
+     */
+    public static synchronized ResponseArchive getYahooArchive(){
+        if(yahooArchive == null){
+            yahooArchive = new ResponseArchive(new File(Parameter.ARCHIVE_PATH, "yahoo"));
+        }
+        return yahooArchive;
+    }
+
+    /**
+     * @param directory the directory of the archived responses, created if it does not exist
+     */
+    public ResponseArchive(File directory){
+        this.directory = directory;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "response-archive");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Wraps the <tt>response</tt> stream so that all bytes that are read from it are archived when it is closed
+     * @param name the name of the response (e.g. the symbol)
+     * @param response the stream of the response body
+     * @return a stream that reads the <tt>response</tt>
+     */
+    public InputStream record(String name, InputStream response){
+        return new FilterInputStream(response) {
+
+            private final ByteArrayOutputStream copy = new ByteArrayOutputStream(64 * 1024);
+            private boolean closed;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if(b >= 0){
+                    copy.write(b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if(n > 0){
+                    copy.write(b, off, n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                byte[] buffer = new byte[(int) Math.min(n, 8192)];
+                long skipped = 0;
+                for(int r; skipped < n && (r = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) > 0;){
+                    skipped += r;
+                }
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported(){
+                return false;
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if(!closed){
+                    closed = true;
+                    archive(name, copy.toByteArray());
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the <tt>body</tt> to a new file of the archive in the background
+     * @param name the name of the response (e.g. the symbol)
+     * @param body the raw response body
+     * @return a future with the archived file
+     */
+    public CompletableFuture<File> archive(String name, byte[] body){
+        String fileName = String.format("%s_%s.csv.gz", name.replaceAll("[^A-Za-z0-9._-]", "_"),
+                LocalDateTime.now().format(FILE_TIME));
+        CompletableFuture<File> result = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                File file = new File(directory, fileName);
+                try {
+                    if(!directory.isDirectory() && !directory.mkdirs()){
+                        throw new IOException(String.format("Could not create directory %s", directory));
+                    }
+                    try(OutputStream out = new GZIPOutputStream(new FileOutputStream(file))){
+                        out.write(body);
+                    }
+                    result.complete(file);
+                } catch (IOException ioe){
+                    log.error("Could not archive response {}: {}", name, ioe.getMessage());
+                    result.completeExceptionally(ioe);
+                }
+            });
+        } catch (RejectedExecutionException ree){
+            result.completeExceptionally(ree);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the submitted responses and stops the background thread
+     */
+    public void close(){
+        writer.shutdown();
+    }
+}
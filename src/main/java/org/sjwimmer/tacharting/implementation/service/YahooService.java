@@ -21,7 +21,7 @@ package org.sjwimmer.tacharting.implementation.service;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 
-import org.sjwimmer.tacharting.chart.model.TaBarSeries;
+import org.sjwimmer.tacharting.chart.model.ChartBarSeries;
 import org.sjwimmer.tacharting.chart.model.types.TimeFormatType;
 import org.sjwimmer.tacharting.chart.model.types.YahooTimePeriod;
 import org.sjwimmer.tacharting.chart.parameters.Parameter;
@@ -35,8 +35,8 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -46,135 +46,217 @@ import java.util.*;
  * Connector class to request financial data from yahoo
  * following https://github.com/sstrickx/yahoofinance-api>
  */
-public class YahooService extends Service<List<TaBarSeries>> {
+public class YahooService extends Service<List<ChartBarSeries>> {
 
     private final Logger log = LoggerFactory.getLogger(YahooService.class);
 
     private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern(TimeFormatType.YAHOO.pattern);
-    private static final String REQ_BASE_URL = "https://query1.finance.yahoo.com/v7/finance/download/";
+    private static final String YAHOO_HOST = "finance.yahoo.com";
     private final Properties properties;
     private final String[] resources;
+    private final String baseUrl;
+    private final CSVConnector csvConnector = new CSVConnector();
+    private final DownloadEngine downloadEngine;
+    private final HttpCache httpCache;
+    private final ResponseArchive archive;
 
 
     public YahooService(String... resources){
+        this(Parameter.YAHOO_BASE_URL, new DownloadEngine(), Parameter.HTTP_CACHE_SIZE > 0 ? HttpCache.getDefault() : null,
+                Parameter.YAHOO_ARCHIVE ? ResponseArchive.getYahooArchive() : null, resources);
+    }
+
+    /**
+     * @param baseUrl the url of the download api, the yahoo crumb and cookie are only requested for yahoo hosts
+     * @param downloadEngine the engine for concurrent downloads of the <tt>resources</tt>
+     * @param httpCache the cache for the responses or null
+     * @param archive the archive for the raw responses (not the cached ones) or null
+     * @param resources the symbols to download
+     */
+    public YahooService(String baseUrl, DownloadEngine downloadEngine, HttpCache httpCache, ResponseArchive archive,
+                        String... resources){
         this.properties = YahooSettingsManager.getProperties();
         this.resources = resources;
+        this.baseUrl = baseUrl;
+        this.downloadEngine = downloadEngine;
+        this.httpCache = httpCache;
+        this.archive = archive;
     }
 
     @Override
-    protected Task<List<TaBarSeries>> createTask() {
+    protected Task<List<ChartBarSeries>> createTask() {
         return new RequestTimeSeries();
     }
 
 
 
-    class RequestTimeSeries extends Task<List<TaBarSeries>>{
+    class RequestTimeSeries extends Task<List<ChartBarSeries>>{
 
         @Override
-        protected List<TaBarSeries> call() throws Exception {
+        protected List<ChartBarSeries> call() throws Exception {
             String from = properties
                     .getProperty(Parameter.PROPERTY_YAHOO_FROM,
                             ZonedDateTime.now().minusYears(Parameter.DEFAULT_LOOK_BACK)
                                     .format(DateTimeFormatter.ofPattern(TimeFormatType.YAHOO.pattern)));
             LocalDate localDateFrom = LocalDate.parse(from, dateTimeFormatter);
-            LocalDateTime dateTimeFrom = localDateFrom.atStartOfDay();
+            long fromSecond = localDateFrom.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
 
             String to = properties
                     .getProperty(Parameter.PROPERTY_YAHOO_TO, ZonedDateTime.now()
                             .format(DateTimeFormatter.ofPattern(TimeFormatType.YAHOO.pattern)));
 
             LocalDate localDateTo= LocalDate.parse(to, dateTimeFormatter);
-            LocalDateTime dateTimeTo = localDateTo.atStartOfDay();
-
-
-            List<TaBarSeries> seriesList = new ArrayList<>();
-            CSVConnector csvConnector = new CSVConnector();
-            for(int i = 0; i < resources.length; i++) {
-                String interval = YahooTimePeriod.of(properties.getProperty(Parameter.PROPERTY_YAHOO_INTERVAL, "1d")).toYahooString();
-                Map<String, String> params = new LinkedHashMap<String, String>();
-                params.put("period1", String.valueOf(dateTimeFrom.toEpochSecond(ZoneOffset.UTC)));
-                params.put("period2", String.valueOf(dateTimeTo.toEpochSecond(ZoneOffset.UTC)));
+            long toSecond = localDateTo.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
 
-                params.put("interval", interval);
 
-                params.put("crumb", CrumbManager.getCrumb());
-                Map<String, String> requestProperties = new HashMap<String, String>();
-                requestProperties.put("Cookie", CrumbManager.getCookie());
+            List<DownloadEngine.Job<ChartBarSeries>> jobs = new ArrayList<>();
+            for(String symbol: resources) {
+                jobs.add(new DownloadEngine.Job<>(symbol, new URL(baseUrl),
+                        () -> requestSeries(symbol, fromSecond, toSecond)));
+            }
+            updateProgress(0, resources.length);
+            updateMessage(String.format("Request data for %d symbols", resources.length));
+            List<DownloadEngine.Outcome<ChartBarSeries>> outcomes = downloadEngine.run(jobs, (done, total, message) -> {
+                updateProgress(done, total);
+                updateMessage(message);
+            });
+
+            List<ChartBarSeries> seriesList = new ArrayList<>();
+            Exception error = null;
+            for(DownloadEngine.Outcome<ChartBarSeries> outcome: outcomes){
+                if(outcome.isSuccess()){
+                    seriesList.add(outcome.value);
+                } else if(error == null){
+                    error = outcome.error;
+                }
+            }
+            if(seriesList.isEmpty() && error != null){
+                throw error;
+            }
+            updateMessage(httpCache == null
+                    ? String.format("Downloaded %d of %d symbols", seriesList.size(), resources.length)
+                    : String.format("Downloaded %d of %d symbols, cache: %s", seriesList.size(), resources.length, httpCache));
+            return seriesList;
+        }
+    }
 
-                String symbol = resources[i];
-                updateProgress(i, resources.length - 1);
-                updateMessage("Request data for " + symbol);
-                String url = REQ_BASE_URL + URLEncoder.encode(symbol, "UTF-8") + "?" + createURLParameters(params);
-                URL request = new URL(url);
-                HttpURLConnection connection = null;
-                int redirects = 0;
-                boolean hasResponse = false;
-                URL currentRequest = request;
-                while (!hasResponse && redirects < 5) {
-                    connection = (HttpURLConnection) currentRequest.openConnection();
-                    connection.setConnectTimeout(10000);
-                    connection.setReadTimeout(10000);
-                    for (String property : requestProperties.keySet()) {
-                        connection.addRequestProperty(property, requestProperties.get(property));
-                    }
-                    connection.setInstanceFollowRedirects(true);
+    /**
+     * Requests the bars of one symbol between <tt>from</tt> and <tt>to</tt> with the interval of the
+     * yahoo properties
+     * @param symbol the yahoo symbol
+     * @param from the start of the requested period
+     * @param to the end of the requested period
+     * @return the series with the bars of the yahoo response
+     * @throws IOException if the request failed ({@link DownloadEngine.HttpStatusException} for error responses)
+     */
+    public ChartBarSeries requestSeries(String symbol, ZonedDateTime from, ZonedDateTime to) throws IOException {
+        return requestSeries(symbol, from.toEpochSecond(), to.toEpochSecond());
+    }
 
-                    switch (connection.getResponseCode()) {
-                        case HttpURLConnection.HTTP_MOVED_PERM:
-                        case HttpURLConnection.HTTP_MOVED_TEMP:
-                            redirects++;
-                            String location = connection.getHeaderField("Location");
-                            currentRequest = new URL(request, location);
-                            break;
-                        default:
-                            hasResponse = true;
-                    }
-                }
+    /**
+     * @param fromSecond the start of the requested period (epoch second)
+     * @param toSecond the end of the requested period (epoch second)
+     */
+    private ChartBarSeries requestSeries(String symbol, long fromSecond, long toSecond) throws IOException {
+        String interval = YahooTimePeriod.of(properties.getProperty(Parameter.PROPERTY_YAHOO_INTERVAL, "1d")).toYahooString();
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        params.put("period1", String.valueOf(fromSecond));
+        params.put("period2", String.valueOf(toSecond));
+
+        params.put("interval", interval);
+
+        // the crumb changes with the session and is not part of the cache key
+        String cacheKey = baseUrl + URLEncoder.encode(symbol, "UTF-8") + "?" + createURLParameters(params);
+        InputStream body;
+        boolean cached = false;
+        if(httpCache != null){
+            HttpCache.Response response = httpCache.open(cacheKey,
+                    conditionalHeaders -> openRequest(symbol, params, conditionalHeaders));
+            cached = response.isCached();
+            body = response;
+        } else {
+            HttpURLConnection connection = openRequest(symbol, params, new HashMap<String, String>());
+            DownloadEngine.HttpStatusException.check(connection);
+            body = connection.getInputStream();
+        }
+        if(archive != null && !cached){
+            body = archive.record(symbol, body);
+        }
+        try(Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))){
+            return csvConnector.getSeriesFromYahoo(symbol, reader);
+        }
+    }
 
-                if (redirects > 5) {
-                    throw new IOException("Protocol redirect count exceeded for url: " + request.toExternalForm());
-                } else if (connection == null) {
-                    throw new IOException("Unexpected error while opening connection");
-                } else {
-                    InputStreamReader is = new InputStreamReader(connection.getInputStream());
-                    BufferedReader br = new BufferedReader(is);
-                    File file = new File(Parameter.PROGRAM_FOLDER + Parameter.S + symbol+"temp.csv");
-                    FileOutputStream fos = new FileOutputStream(file);
-                    BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(fos));
-                    String header = br.readLine();
-                    bufferedWriter.write(header);
-                    for (String line = br.readLine(); line != null; line = br.readLine()) {
-                        bufferedWriter.newLine();
-                        bufferedWriter.write(line);
-                    }
-                    bufferedWriter.close();
+    /**
+     * Opens the request of the <tt>symbol</tt>, the crumb and cookie of the Yahoo session are only fetched here so
+     * that responses from the cache do not need them
+     */
+    private HttpURLConnection openRequest(String symbol, Map<String, String> params, Map<String, String> headers) throws IOException {
+        Map<String, String> requestParams = new LinkedHashMap<String, String>(params);
+        Map<String, String> requestProperties = new HashMap<String, String>(headers);
+        if(baseUrl.contains(YAHOO_HOST)){
+            requestParams.put("crumb", CrumbManager.getCrumb());
+            requestProperties.put("Cookie", CrumbManager.getCookie());
+        }
+        URL request = new URL(baseUrl + URLEncoder.encode(symbol, "UTF-8") + "?" + createURLParameters(requestParams));
+        return openConnection(request, requestProperties);
+    }
 
-                    seriesList.add(csvConnector.getSeriesFromYahooFile(symbol, file));
-                    log.debug("{}",file.delete());
-                }
+    /**
+     * Opens the connection of the <tt>request</tt> and follows up to five redirects
+     */
+    private HttpURLConnection openConnection(URL request, Map<String, String> requestProperties) throws IOException {
+        HttpURLConnection connection = null;
+        int redirects = 0;
+        boolean hasResponse = false;
+        URL currentRequest = request;
+        while (!hasResponse && redirects < 5) {
+            connection = (HttpURLConnection) currentRequest.openConnection();
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(10000);
+            for (String property : requestProperties.keySet()) {
+                connection.addRequestProperty(property, requestProperties.get(property));
+            }
+            connection.setInstanceFollowRedirects(true);
+
+            switch (connection.getResponseCode()) {
+                case HttpURLConnection.HTTP_MOVED_PERM:
+                case HttpURLConnection.HTTP_MOVED_TEMP:
+                    redirects++;
+                    String location = connection.getHeaderField("Location");
+                    currentRequest = new URL(request, location);
+                    break;
+                default:
+                    hasResponse = true;
             }
-            return seriesList;
         }
 
-        private String createURLParameters(Map<String, String> params) {
-            StringBuilder sb = new StringBuilder();
+        if (redirects > 5) {
+            throw new IOException("Protocol redirect count exceeded for url: " + request.toExternalForm());
+        } else if (connection == null) {
+            throw new IOException("Unexpected error while opening connection");
+        }
+        return connection;
+    }
 
-            for (Map.Entry<String, String> entry : params.entrySet()) {
-                if (sb.length() > 0) {
-                    sb.append("&");
-                }
-                String key = entry.getKey();
-                String value = entry.getValue();
-                try {
-                    key = URLEncoder.encode(key, "UTF-8");
-                    value = URLEncoder.encode(value, "UTF-8");
-                } catch (UnsupportedEncodingException ex) {
-                    log.debug(ex.getMessage());
-                }
-                sb.append(String.format("%s=%s", key, value));
+    private String createURLParameters(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append("&");
+            }
+            String key = entry.getKey();
+            String value = entry.getValue();
+            try {
+                key = URLEncoder.encode(key, "UTF-8");
+                value = URLEncoder.encode(value, "UTF-8");
+            } catch (UnsupportedEncodingException ex) {
+                log.debug(ex.getMessage());
             }
-            return sb.toString();
+            sb.append(String.format("%s=%s", key, value));
         }
+        return sb.toString();
     }
 
     static class CrumbManager{
@@ -288,7 +370,7 @@ public class YahooService extends Service<List<TaBarSeries>> {
             setCrumb();
         }
 
-        public static String getCookie(){
+        public static synchronized String getCookie(){
             if(cookie == null || cookie.isEmpty()){
                 refresh();
             }
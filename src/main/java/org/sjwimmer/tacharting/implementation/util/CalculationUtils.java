@@ -30,22 +30,47 @@ public class CalculationUtils {
         return String.format("%."+d+"f",value);
     }
 
-    public static Num integerToCurrencyValue(int value, Currency currency){
-        int fractionDigits = currency.getDefaultFractionDigits();
-        double base = Math.pow(10,fractionDigits);
-
-        return Parameter.numFunction.apply(value/base);
+    public static Num integerToCurrencyValue(long value, Currency currency){
+        return Parameter.numFunction.apply(longToCurrencyValue(value, currency));
     }
 
     public static Num stringToCurrencyValue(String stringValue, Currency currency){
         String value = stringValue.replaceAll("\\s","");
-        return integerToCurrencyValue(Integer.parseInt(value), currency);
+        return integerToCurrencyValue(Long.parseLong(value), currency);
+    }
+
+    public static long currencyValueToInteger(Num value, Currency currency){
+        return currencyValueToLong(value.doubleValue(), currency);
+    }
+
+    /**
+     * Scales a price to an integer in the smallest unit of the <tt>currency</tt> (e.g. 12.34 USD to 1234)
+     * @param value the price
+     * @param currency the currency of the price
+     * @return the rounded, scaled price
+     * @throws ArithmeticException if the scaled price does not fit into a long
+     */
+    public static long currencyValueToLong(double value, Currency currency){
+        double scaled = value * scale(currency);
+        if(Double.isNaN(scaled) || Math.abs(scaled) >= 0x1p63){
+            throw new ArithmeticException(String.format("%s %s can not be stored as scaled integer", value, currency));
+        }
+        return Math.round(scaled);
+    }
+
+    /**
+     * @param value a price in the smallest unit of the <tt>currency</tt> (see {@link #currencyValueToLong(double, Currency)})
+     * @param currency the currency of the price
+     * @return the price
+     */
+    public static double longToCurrencyValue(long value, Currency currency){
+        return value / scale(currency);
     }
 
-    public static int currencyValueToInteger(Num value, Currency currency){
-        int fractionDigits = currency.getDefaultFractionDigits();
-        int base = (int)Math.pow(10,fractionDigits);
+    private static final double[] SCALES = {1, 10, 100, 1000, 10000, 100000, 1000000};
 
-        return (int)value.doubleValue()*base;
+    private static double scale(Currency currency){
+        int fractionDigits = Math.max(0, currency.getDefaultFractionDigits());
+        return fractionDigits < SCALES.length ? SCALES[fractionDigits] : Math.pow(10, fractionDigits);
     }
 }
@@ -25,21 +25,25 @@ import org.sjwimmer.tacharting.chart.parameters.Parameter;
 import org.ta4j.core.Bar;
 import org.ta4j.core.BaseBar;
 import org.ta4j.core.BarSeries;
+import org.ta4j.core.num.Num;
 
 import java.awt.*;
 import java.time.Duration;
-import java.time.LocalDate;
-import java.time.ZoneId;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 import static org.sjwimmer.tacharting.chart.model.types.IndicatorParameterType.*;
 
 
 public class FormatUtils {
 
+    /** decoder of the last header layout and date format that has been used by extractOHLCData (per thread) */
+    private static final ThreadLocal<RowDecoder> ROW_DECODER = new ThreadLocal<>();
+
     /**
      * Tries to find the needed columns from a header row
      * @param firstLine line with the header descriptions (e.g.: time, open, high, low, close, volume...)
@@ -85,25 +89,34 @@ public class FormatUtils {
      * @return a {@link Bar Bar} object with the ohlc org.sjwimmer.tacharting.data
      */
     public static Bar extractOHLCData(Map<Parameter.Columns, Integer> headerMap, DateTimeFormatter formatPattern, String[] line,boolean twoDateColumns){
-        ZonedDateTime date;
-        if(twoDateColumns){
-            date = ZonedDateTime.parse(line[headerMap.get(Parameter.Columns.DATE)]
-                    +" "+line[headerMap.get(Parameter.Columns.DATE2)]+" PST", formatPattern);
-        } else {
-            //TODO: its a workaround, because some formats do not allow directly convert to ZonedDateTime because of missing ZoneId...
-            LocalDate localDate = LocalDate.parse(line[headerMap.get(Parameter.Columns.DATE)],formatPattern);
-            ZonedDateTime zonedDateTime = localDate.atStartOfDay(ZoneId.systemDefault());
-            date = zonedDateTime;
+        return extractOHLCData(headerMap, formatPattern, line, twoDateColumns, Parameter.numFunction);
+    }
+
+    /**
+     * Extracts the OHLC org.sjwimmer.tacharting.data from a string array into a Bar object
+     * @param headerMap the header maps that maps indices colorOf the <tt>line</tt> to the {@link Parameter.Columns columns}
+     * @param formatPattern the {@link DateTimeFormatter dateTimeFormatter}
+     * @param line the string array with corresponding entries for the Bar
+     * @param numFunction the function to create the {@link Num} values of the bar
+     * @return a {@link Bar Bar} object with the ohlc org.sjwimmer.tacharting.data
+     */
+    public static Bar extractOHLCData(Map<Parameter.Columns, Integer> headerMap, DateTimeFormatter formatPattern, String[] line,
+                                      boolean twoDateColumns, Function<Number, Num> numFunction){
+        RowDecoder decoder = ROW_DECODER.get();
+        if(decoder == null || !decoder.isCompiledFor(headerMap, formatPattern, twoDateColumns)){
+            decoder = RowDecoder.compile(headerMap, formatPattern, twoDateColumns);
+            ROW_DECODER.set(decoder);
         }
-        double open = Double.parseDouble(line[headerMap.get(Parameter.Columns.OPEN)]);
-        double high = Double.parseDouble(line[headerMap.get(Parameter.Columns.HIGH)]);
-        double low = Double.parseDouble(line[headerMap.get(Parameter.Columns.LOW)]);
-        double close = Double.parseDouble(line[headerMap.get(Parameter.Columns.CLOSE)]);
+        ZonedDateTime date = ZonedDateTime.ofInstant(Instant.ofEpochSecond(decoder.endTime(line)), decoder.getZone());
+        double open = RowDecoder.parseDouble(line[decoder.openIndex]);
+        double high = RowDecoder.parseDouble(line[decoder.highIndex]);
+        double low = RowDecoder.parseDouble(line[decoder.lowIndex]);
+        double close = RowDecoder.parseDouble(line[decoder.closeIndex]);
         double volume = Double.NaN;
-        if(headerMap.get(Parameter.Columns.VOLUME) != null){
-            volume = Double.parseDouble(line[headerMap.get(Parameter.Columns.VOLUME)]);
+        if(decoder.volumeIndex >= 0){
+            volume = RowDecoder.parseDouble(line[decoder.volumeIndex]);
         }
-        return new BaseBar(Duration.ZERO, date, open, high, low, close, volume, 0, 0, Parameter.numFunction);
+        return new BaseBar(Duration.ZERO, date, open, high, low, close, volume, 0, 0, numFunction);
     }
 
     public static DateTimeFormatter getDateTimeFormatter(int id){
@@ -132,15 +145,28 @@ public class FormatUtils {
      * complete time series or the minimum gap of at least 20 percent of consecutive Bars of the <tt>series</tt>
      */
     public static GeneralTimePeriod extractPeriod(BarSeries series){
+        long[] endTimes = new long[series.getBarCount()];
+        for(int i=0;i<endTimes.length;i++){
+            endTimes[i] = series.getBar(i).getEndTime().toEpochSecond();
+        }
+        return extractPeriod(series.getName(), endTimes, endTimes.length);
+    }
+
+    /**
+     * Run over the end times of bars and return their {@link GeneralTimePeriod}
+     * @param name the name of the series (only used for error message)
+     * @param endTimes the end times of the bars as epoch seconds in ascending order
+     * @param size the number of valid entries in <tt>endTimes</tt>
+     * @return the underlying {@link GeneralTimePeriod} (see {@link #extractPeriod(BarSeries)})
+     */
+    public static GeneralTimePeriod extractPeriod(String name, long[] endTimes, int size){
         long minDiff = Long.MAX_VALUE;
         int counter=0;
-        double threshold = series.getBarCount()*0.2;
+        double threshold = size*0.2;
         // get the index i and i+1 of the Bars with min diff
         // stop if 20% of the series have the same minDiff
-        for(int i=0;i<series.getBarCount()-1;i++){
-            Bar Bar = series.getBar(i);
-            Bar next = series.getBar(i+1);
-            long diff =  Duration.between(Bar.getEndTime(),next.getEndTime()).toMinutes();
+        for(int i=0;i<size-1;i++){
+            long diff = (endTimes[i+1] - endTimes[i]) / 60;
             if(diff < minDiff){
                 minDiff = diff;
             } else if(minDiff == diff){
@@ -170,7 +196,7 @@ public class FormatUtils {
             return GeneralTimePeriod.YEAR;
         }
         throw new IllegalArgumentException(
-                String.format("TimePeriod of series %s could not be extracted minDiff (seconds): %s",series.getName(),minDiff));
+                String.format("TimePeriod of series %s could not be extracted minDiff (seconds): %s",name,minDiff));
     }
 
 
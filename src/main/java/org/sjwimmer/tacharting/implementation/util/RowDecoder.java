@@ -0,0 +1,395 @@
+/*
+ GNU Lesser General Public License
+
+ Copyright (c) 2017 Wimmer, Simon-Justus
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.sjwimmer.tacharting.implementation.util;
+
+import org.sjwimmer.tacharting.chart.model.BarColumns;
+import org.sjwimmer.tacharting.chart.model.types.TimeFormatType;
+import org.sjwimmer.tacharting.chart.parameters.Parameter;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Map;
+
+/**
+ * Decoder for rows of OHLCV data that is compiled once for a header layout and a {@link TimeFormatType}.
+ * The column indices are resolved at compile time and the known date patterns and decimal numbers are parsed
+ * directly from the characters of the fields without creating intermediate objects. Fields that do not match the
+ * expected pattern are parsed by the {@link DateTimeFormatter} and {@link Double#parseDouble(String)}, so the results
+ * are always the same as of {@link FormatUtils#extractOHLCData(Map, DateTimeFormatter, String[], boolean)}.
+ * @apiNote a RowDecoder caches the zone offset of the last decoded day and must not be shared between threads
+ */
+public class RowDecoder {
+
+    private static final long DAYS_0000_TO_1970 = 719528L;
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    public final int dateIndex;
+    public final int date2Index;
+    public final int openIndex;
+    public final int highIndex;
+    public final int lowIndex;
+    public final int closeIndex;
+    /** -1 if there is no volume column */
+    public final int volumeIndex;
+
+    private final Map<Parameter.Columns, Integer> headerMap;
+    private final DateTimeFormatter formatter;
+    private final TimeFormatType type;
+    private final boolean twoDateColumns;
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final String[] months;
+
+    private int position;
+    private long offsetDay = Long.MIN_VALUE;
+    private int dayOffset;
+    private boolean dayHasTransition;
+
+    private RowDecoder(Map<Parameter.Columns, Integer> headerMap, DateTimeFormatter formatter, TimeFormatType type,
+                       boolean twoDateColumns){
+        this.headerMap = headerMap;
+        this.formatter = formatter;
+        this.type = type;
+        this.twoDateColumns = twoDateColumns;
+        this.dateIndex = headerMap.get(Parameter.Columns.DATE);
+        this.date2Index = twoDateColumns ? headerMap.get(Parameter.Columns.DATE2) : -1;
+        this.openIndex = headerMap.get(Parameter.Columns.OPEN);
+        this.highIndex = headerMap.get(Parameter.Columns.HIGH);
+        this.lowIndex = headerMap.get(Parameter.Columns.LOW);
+        this.closeIndex = headerMap.get(Parameter.Columns.CLOSE);
+        Integer volume = headerMap.get(Parameter.Columns.VOLUME);
+        this.volumeIndex = volume == null ? -1 : volume;
+        this.zone = twoDateColumns ? ZoneId.of("PST", ZoneId.SHORT_IDS) : ZoneId.systemDefault();
+        this.rules = zone.getRules();
+        this.months = new String[12];
+        for(int i = 0; i < 12; i++){
+            months[i] = Month.of(i + 1).getDisplayName(TextStyle.SHORT, Parameter.DEFAULT_LOCALE);
+        }
+    }
+
+    /**
+     * Compiles a decoder for the header layout and the time format id of a file
+     * @param headerMap the header map (see {@link FormatUtils#getHeaderMap(Iterable)})
+     * @param timeFormatId the id of the {@link TimeFormatType}
+     * @return the RowDecoder
+     */
+    public static RowDecoder compile(Map<Parameter.Columns, Integer> headerMap, int timeFormatId){
+        TimeFormatType type = TimeFormatType.yyyyMMdd;
+        for(TimeFormatType timeFormatType: TimeFormatType.values()){
+            if(timeFormatType.id == timeFormatId){
+                type = timeFormatType;
+            }
+        }
+        return new RowDecoder(headerMap, FormatUtils.getDateTimeFormatter(timeFormatId), type,
+                type == TimeFormatType.yyyy_MM_ddHmsz);
+    }
+
+    /**
+     * Compiles a decoder for the header layout and a {@link DateTimeFormatter}. If the formatter does not belong
+     * to a {@link TimeFormatType} the dates are always parsed with the formatter.
+     * @param headerMap the header map (see {@link FormatUtils#getHeaderMap(Iterable)})
+     * @param formatter the formatter for the date column(s)
+     * @param twoDateColumns true if date and time are stored in two columns
+     * @return the RowDecoder
+     */
+    public static RowDecoder compile(Map<Parameter.Columns, Integer> headerMap, DateTimeFormatter formatter,
+                                     boolean twoDateColumns){
+        String pattern = formatter.toString();
+        TimeFormatType type = null;
+        for(TimeFormatType timeFormatType: TimeFormatType.values()){
+            boolean twoColumns = timeFormatType == TimeFormatType.yyyy_MM_ddHmsz;
+            if(twoColumns == twoDateColumns
+                    && DateTimeFormatter.ofPattern(timeFormatType.pattern).toString().equals(pattern)){
+                type = timeFormatType;
+            }
+        }
+        return new RowDecoder(headerMap, formatter, type, twoDateColumns);
+    }
+
+    /**
+     * @param headerMap a header map
+     * @param formatter a formatter
+     * @param twoDateColumns true if date and time are stored in two columns
+     * @return true if this decoder has been compiled for exact these instances
+     */
+    boolean isCompiledFor(Map<Parameter.Columns, Integer> headerMap, DateTimeFormatter formatter, boolean twoDateColumns){
+        return this.headerMap == headerMap && this.formatter == formatter && this.twoDateColumns == twoDateColumns;
+    }
+
+    /**
+     * @return the zone of the decoded end times
+     */
+    public ZoneId getZone(){
+        return zone;
+    }
+
+    /**
+     * @return the highest column index that is needed to decode a row
+     */
+    public int getMaxIndex(){
+        return Math.max(Math.max(Math.max(dateIndex, date2Index), Math.max(openIndex, highIndex)),
+                Math.max(Math.max(lowIndex, closeIndex), volumeIndex));
+    }
+
+    /**
+     * Decodes a row and adds it to the <tt>columns</tt> if its end time is between <tt>fromSecond</tt> and
+     * <tt>toSecond</tt>. The prices and volume are not parsed if the row is outside of this range.
+     * @param line the fields of the row
+     * @param fromSecond the minimum end time (epoch second)
+     * @param toSecond the maximum end time (epoch second)
+     * @param columns the columns to add the row to
+     * @return true if the row has been added
+     */
+    public boolean decode(CharSequence[] line, long fromSecond, long toSecond, BarColumns columns){
+        long endTime = endTime(line[dateIndex], twoDateColumns ? line[date2Index] : null);
+        if(endTime < fromSecond || endTime > toSecond){
+            return false;
+        }
+        columns.add(endTime,
+                parseDouble(line[openIndex]),
+                parseDouble(line[highIndex]),
+                parseDouble(line[lowIndex]),
+                parseDouble(line[closeIndex]),
+                volumeIndex < 0 ? Double.NaN : parseDouble(line[volumeIndex]));
+        return true;
+    }
+
+    /**
+     * @param line the fields of the row
+     * @return the end time of the row as epoch second
+     */
+    public long endTime(CharSequence[] line){
+        return endTime(line[dateIndex], twoDateColumns ? line[date2Index] : null);
+    }
+
+    /**
+     * Decodes the end time of a row
+     * @param date the date field
+     * @param time the time field or null if there is only one date column
+     * @return the end time as epoch second
+     */
+    public long endTime(CharSequence date, CharSequence time){
+        long epochDay = type == null ? Long.MIN_VALUE : parseEpochDay(date);
+        if(epochDay == Long.MIN_VALUE){
+            return parseWithFormatter(date, time);
+        }
+        long localSecond = epochDay * SECONDS_PER_DAY;
+        if(twoDateColumns){
+            int secondOfDay = parseSecondOfDay(time);
+            if(secondOfDay < 0){
+                return parseWithFormatter(date, time);
+            }
+            localSecond += secondOfDay;
+        }
+        if(epochDay != offsetDay){
+            updateOffset(epochDay);
+        }
+        if(dayHasTransition){
+            LocalDateTime dateTime = LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+            return twoDateColumns
+                    ? ZonedDateTime.of(dateTime, zone).toEpochSecond()
+                    : dateTime.toLocalDate().atStartOfDay(zone).toEpochSecond();
+        }
+        return localSecond - dayOffset;
+    }
+
+    /**
+     * Parses a decimal number of the form [+-]digits[.digits]. Numbers with more than 15 significant digits or
+     * other formats (e.g. exponent) are parsed by {@link Double#parseDouble(String)}
+     * @param s the characters of the number
+     * @return the double value (the same value as of {@link Double#parseDouble(String)})
+     */
+    public static double parseDouble(CharSequence s){
+        int start = 0;
+        int end = s.length();
+        while(start < end && s.charAt(start) <= ' '){
+            start++;
+        }
+        while(end > start && s.charAt(end - 1) <= ' '){
+            end--;
+        }
+        int i = start;
+        boolean negative = false;
+        if(i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')){
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        boolean hasDigit = false;
+        for(; i < end; i++){
+            char c = s.charAt(i);
+            if(c >= '0' && c <= '9'){
+                hasDigit = true;
+                mantissa = mantissa * 10 + (c - '0');
+                if(mantissa != 0){
+                    digits++;
+                }
+                if(scale >= 0){
+                    scale++;
+                }
+            } else if(c == '.' && scale < 0){
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+        if(i != end || !hasDigit || digits > 15 || scale > 22){
+            return Double.parseDouble(s.toString());
+        }
+        // both values are exact doubles, so the division is correctly rounded like Double.parseDouble
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return the epoch day of the date or Long.MIN_VALUE if the date does not match the pattern
+     */
+    private long parseEpochDay(CharSequence s){
+        position = 0;
+        int year, month, day;
+        switch (type){
+            case yyyy_MM_ddHmsz:
+            case YAHOO:
+                year = digits(s, 4, 4);
+                month = separator(s, '-') ? digits(s, 2, 2) : -1;
+                day = separator(s, '-') ? digits(s, 2, 2) : -1;
+                break;
+            case yyyyMMdd:
+                year = digits(s, 4, 4);
+                month = separator(s, '/') ? digits(s, 2, 2) : -1;
+                day = separator(s, '/') ? digits(s, 2, 2) : -1;
+                break;
+            case EODATA:
+                day = digits(s, 2, 2);
+                month = separator(s, ' ') ? month(s) : -1;
+                year = separator(s, ' ') ? digits(s, 4, 4) : -1;
+                break;
+            default:
+                return Long.MIN_VALUE;
+        }
+        if(position != s.length() || year < 1 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))){
+            return Long.MIN_VALUE;
+        }
+        return epochDay(year, month, day);
+    }
+
+    /**
+     * @return the second of day of a time in format H:m:s or -1 if the time does not match the pattern
+     */
+    private int parseSecondOfDay(CharSequence s){
+        position = 0;
+        int hour = digits(s, 1, 2);
+        int minute = separator(s, ':') ? digits(s, 1, 2) : -1;
+        int second = separator(s, ':') ? digits(s, 1, 2) : -1;
+        if(position != s.length() || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59){
+            return -1;
+        }
+        return hour * 3600 + minute * 60 + second;
+    }
+
+    private int digits(CharSequence s, int min, int max){
+        int value = 0;
+        int count = 0;
+        while(position < s.length() && count < max){
+            char c = s.charAt(position);
+            if(c < '0' || c > '9'){
+                break;
+            }
+            value = value * 10 + (c - '0');
+            position++;
+            count++;
+        }
+        return count < min ? -1 : value;
+    }
+
+    private boolean separator(CharSequence s, char separator){
+        if(position < s.length() && s.charAt(position) == separator){
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private int month(CharSequence s){
+        for(int m = 0; m < months.length; m++){
+            String name = months[m];
+            if(position + name.length() > s.length()){
+                continue;
+            }
+            boolean equal = true;
+            for(int i = 0; i < name.length() && equal; i++){
+                equal = s.charAt(position + i) == name.charAt(i);
+            }
+            if(equal){
+                position += name.length();
+                return m + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Caches the offset of the zone for a day. If the offset changes at this day the end times are calculated
+     * by {@link ZonedDateTime}
+     */
+    private void updateOffset(long epochDay){
+        offsetDay = epochDay;
+        LocalDate day = LocalDate.ofEpochDay(epochDay);
+        dayHasTransition = false;
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochSecond((epochDay - 2) * SECONDS_PER_DAY));
+        while(transition != null && transition.toEpochSecond() <= (epochDay + 2) * SECONDS_PER_DAY){
+            if(transition.getDateTimeBefore().toLocalDate().equals(day)
+                    || transition.getDateTimeAfter().toLocalDate().equals(day)){
+                dayHasTransition = true;
+            }
+            transition = rules.nextTransition(transition.getInstant());
+        }
+        dayOffset = rules.getOffset(day.atStartOfDay()).getTotalSeconds();
+    }
+
+    private long parseWithFormatter(CharSequence date, CharSequence time){
+        if(twoDateColumns){
+            return ZonedDateTime.parse(date + " " + time + " PST", formatter).toEpochSecond();
+        }
+        return LocalDate.parse(date, formatter).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static long epochDay(long year, int month, int day){
+        long total = 365 * year;
+        total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if(month > 2){
+            total--;
+            if(!Year.isLeap(year)){
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}